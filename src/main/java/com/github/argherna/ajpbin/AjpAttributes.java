@@ -0,0 +1,167 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.CERTIFICATE_CACHE_SIZE;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import javax.security.auth.x500.X500Principal;
+
+/**
+ * Decodes the request attributes an AJP connector forwards into values that can be echoed.
+ *
+ * <p>
+ * The connector sets the remote port and the TLS session details of the front end server as
+ * request attributes. Each is decoded to its natural type: numbers as Integers, the cipher suite
+ * and session id as Strings, and a client certificate chain as a List of certificate summaries. A
+ * client usually sends the same certificate on every request, so the summaries are kept in a
+ * bounded cache keyed by the SHA-256 fingerprint of the certificate and parsed only once.
+ */
+final class AjpAttributes {
+
+  /** Name of the attribute holding the client certificate chain. */
+  static final String CERTIFICATE_ATTR_NAME = "javax.servlet.request.X509Certificate";
+
+  /** Name of the attribute holding the cipher suite. */
+  static final String CIPHER_SUITE_ATTR_NAME = "javax.servlet.request.cipher_suite";
+
+  /** Name of the attribute holding the key size. */
+  static final String KEY_SIZE_ATTR_NAME = "javax.servlet.request.key_size";
+
+  /** Name of the attribute holding the SSL session id. */
+  static final String SSL_SESSION_ID_ATTR_NAME = "javax.servlet.request.ssl_session_id";
+
+  /** Name of the attribute holding the remote port as seen by the front end server. */
+  static final String REMOTE_PORT_ATTR_NAME = "AJP_REMOTE_PORT";
+
+  private static final Logger LOGGER = Logger.getLogger(AjpAttributes.class.getName());
+
+  private static final BoundedCache<String, Map<String, Object>> CERTIFICATES =
+      new BoundedCache<>(CERTIFICATE_CACHE_SIZE);
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private AjpAttributes() {
+  }
+
+  /**
+   * Decodes a request attribute.
+   *
+   * <p>
+   * The AJP attributes are decoded as described above. Any other Iterable or array is copied to a
+   * List, Booleans and Numbers are kept and everything else is converted to a String.
+   *
+   * @param name  the attribute name.
+   * @param value the attribute value, not {@code null}.
+   * @return the decoded value.
+   */
+  static Object decode(String name, Object value) {
+    switch (name) {
+      case CERTIFICATE_ATTR_NAME:
+        if (value instanceof X509Certificate[]) {
+          return certificates((X509Certificate[]) value);
+        }
+        break;
+      case KEY_SIZE_ATTR_NAME:
+      case REMOTE_PORT_ATTR_NAME:
+        return toInteger(value);
+      case CIPHER_SUITE_ATTR_NAME:
+      case SSL_SESSION_ID_ATTR_NAME:
+        return value.toString();
+      default:
+        break;
+    }
+    if (value instanceof Iterable) {
+      var values = new ArrayList<Object>();
+      for (var element : (Iterable<?>) value) {
+        values.add(element);
+      }
+      return values;
+    } else if (value instanceof Object[]) {
+      // Not List.of, which rejects null elements.
+      return new ArrayList<>(Arrays.asList((Object[]) value));
+    } else if (value instanceof Boolean || value instanceof Number) {
+      return value;
+    }
+    return value.toString();
+  }
+
+  /**
+   * Returns the summary of a certificate, from the cache if it was summarized before.
+   *
+   * <p>
+   * The summary holds the subject and issuer names, the serial number in hexadecimal, the validity
+   * period as ISO-8601 instants and the SHA-256 fingerprint.
+   *
+   * @param certificate the certificate.
+   * @return unmodifiable Map summarizing the certificate.
+   */
+  static Map<String, Object> summarize(X509Certificate certificate) {
+    byte[] encoded;
+    try {
+      encoded = certificate.getEncoded();
+    } catch (CertificateEncodingException e) {
+      LOGGER.fine(() -> String.format("Not caching unencodable certificate: %s", e.getMessage()));
+      return summarize(certificate, null);
+    }
+    var fingerprint = Hex.encode(sha256(encoded));
+    return CERTIFICATES.get(fingerprint, key -> summarize(certificate, key));
+  }
+
+  /**
+   * @return the number of cached certificate summaries.
+   */
+  static int cachedCertificates() {
+    return CERTIFICATES.size();
+  }
+
+  private static List<Map<String, Object>> certificates(X509Certificate[] chain) {
+    var summaries = new ArrayList<Map<String, Object>>(chain.length);
+    for (var certificate : chain) {
+      summaries.add(summarize(certificate));
+    }
+    return summaries;
+  }
+
+  private static Map<String, Object> summarize(X509Certificate certificate, String fingerprint) {
+    var summary = new LinkedHashMap<String, Object>();
+    summary.put("subject", certificate.getSubjectX500Principal().getName(X500Principal.RFC2253));
+    summary.put("issuer", certificate.getIssuerX500Principal().getName(X500Principal.RFC2253));
+    summary.put("serialNumber", certificate.getSerialNumber().toString(16));
+    summary.put("notBefore", certificate.getNotBefore().toInstant().toString());
+    summary.put("notAfter", certificate.getNotAfter().toInstant().toString());
+    if (fingerprint != null) {
+      summary.put("sha256", fingerprint);
+    }
+    return Collections.unmodifiableMap(summary);
+  }
+
+  private static Object toInteger(Object value) {
+    if (value instanceof Number) {
+      return ((Number) value).intValue();
+    }
+    try {
+      return Integer.valueOf(value.toString().trim());
+    } catch (NumberFormatException e) {
+      return value.toString();
+    }
+  }
+
+  private static byte[] sha256(byte[] bytes) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(bytes);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -2,18 +2,27 @@ package com.github.argherna.ajpbin;
 
 import static com.github.argherna.ajpbin.Constants.CT_APPLICATION_JSON;
 import static com.github.argherna.ajpbin.Constants.CT_FORM_URLENCODED;
-import static com.github.argherna.ajpbin.Constants.OUTPUT_MAP_ATTR_NAME;
-import static com.github.argherna.ajpbin.Json.marshal;
-import static com.github.argherna.ajpbin.Requests.getArguments;
-import static com.github.argherna.ajpbin.Requests.getAttributes;
-import static com.github.argherna.ajpbin.Requests.getForm;
-import static com.github.argherna.ajpbin.Requests.getHeaders;
-import static com.github.argherna.ajpbin.Requests.getDataAsString;
-import static com.github.argherna.ajpbin.Requests.getRequestUrl;
-import static com.github.argherna.ajpbin.Requests.parameterStringToMap;
-import static java.lang.String.format;
+import static com.github.argherna.ajpbin.Constants.CT_MULTIPART_FORM_DATA;
+import static com.github.argherna.ajpbin.Constants.FORM_MAX_FIELD_SIZE;
+import static com.github.argherna.ajpbin.Constants.JSON_MAX_DEPTH;
+import static com.github.argherna.ajpbin.Constants.JSON_MAX_SIZE;
+import static com.github.argherna.ajpbin.Constants.JSON_MAX_STRING_LENGTH;
+import static com.github.argherna.ajpbin.Constants.MAX_PARAMETERS;
+import static com.github.argherna.ajpbin.Constants.MULTIPART_MAX_SIZE;
+import static com.github.argherna.ajpbin.Constants.MULTIPART_PART_THRESHOLD;
+import static com.github.argherna.ajpbin.Constants.OUTPUT_ECHO_ATTR_NAME;
+import static com.github.argherna.ajpbin.Constants.REQUEST_BODY_ATTR_NAME;
+import static com.github.argherna.ajpbin.Constants.REQUEST_BODY_MAX_SIZE;
+import static com.github.argherna.ajpbin.Constants.REQUEST_BODY_MEMORY_THRESHOLD;
+import static com.github.argherna.ajpbin.Constants.REQUEST_BODY_TIMEOUT_MILLIS;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNullElse;
 import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+import static javax.servlet.http.HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.Map;
 import java.util.logging.Logger;
 import javax.servlet.ServletException;
@@ -22,21 +31,67 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-@WebServlet(name = "AjpMethodsServlet", urlPatterns = {"/http"})
+@WebServlet(name = "AjpMethodsServlet", urlPatterns = {"/http"}, asyncSupported = true)
 public class AjpMethodsServlet extends HttpServlet {
 
   private static final Logger LOGGER = Logger.getLogger(AjpMethodsServlet.class.getName());
 
+  private JsonParser.Limits jsonLimits = JsonParser.Limits.DEFAULT;
+
+  private RequestBody.Limits bodyLimits = RequestBody.Limits.DEFAULT;
+
+  private RequestBody.Limits multipartBodyLimits =
+      RequestBody.Limits.of(MULTIPART_MAX_SIZE, REQUEST_BODY_MEMORY_THRESHOLD);
+
+  private long bodyTimeoutMillis = REQUEST_BODY_TIMEOUT_MILLIS;
+
+  private int maxParameters = MAX_PARAMETERS;
+
+  private int maxFormFieldSize = FORM_MAX_FIELD_SIZE;
+
+  private int multipartPartThreshold = MULTIPART_PART_THRESHOLD;
+
+  /**
+   * Reads the limits for request bodies from the init parameters {@code body.maxSize} and
+   * {@code body.memoryThreshold}, the maximum size of a multipart body from
+   * {@code multipart.maxSize}, the time in milliseconds allowed for reading a body
+   * asynchronously from {@code body.timeout}, the maximum number of parsed query string and form
+   * parameters from {@code parameters.max}, the maximum size of a form field from
+   * {@code form.maxFieldSize}, the size above which multipart parts are echoed by digest from
+   * {@code multipart.partThreshold} and the limits for parsing json request bodies from the init
+   * parameters {@code json.maxDepth}, {@code json.maxSize} and {@code json.maxStringLength}.
+   */
+  @Override
+  public void init() throws ServletException {
+    var config = getServletConfig();
+    var memoryThreshold =
+        InitParameters.getLong(config, "body.memoryThreshold", REQUEST_BODY_MEMORY_THRESHOLD);
+    bodyLimits = RequestBody.Limits.of(
+        InitParameters.getLong(config, "body.maxSize", REQUEST_BODY_MAX_SIZE), memoryThreshold);
+    multipartBodyLimits = RequestBody.Limits.of(
+        InitParameters.getLong(config, "multipart.maxSize", MULTIPART_MAX_SIZE), memoryThreshold);
+    bodyTimeoutMillis =
+        InitParameters.getLong(config, "body.timeout", REQUEST_BODY_TIMEOUT_MILLIS);
+    maxParameters = InitParameters.getInt(config, "parameters.max", MAX_PARAMETERS);
+    maxFormFieldSize = InitParameters.getInt(config, "form.maxFieldSize", FORM_MAX_FIELD_SIZE);
+    multipartPartThreshold =
+        InitParameters.getInt(config, "multipart.partThreshold", MULTIPART_PART_THRESHOLD);
+    jsonLimits = JsonParser.Limits.of(
+        InitParameters.getInt(config, "json.maxDepth", JSON_MAX_DEPTH),
+        InitParameters.getLong(config, "json.maxSize", JSON_MAX_SIZE),
+        InitParameters.getInt(config, "json.maxStringLength", JSON_MAX_STRING_LENGTH));
+  }
+
   @Override
   protected void doDelete(HttpServletRequest request, HttpServletResponse response)
       throws ServletException, IOException {
-    request.setAttribute(OUTPUT_MAP_ATTR_NAME, createBodylessRequestOutput(request));
+    request.setAttribute(OUTPUT_ECHO_ATTR_NAME, createBodylessRequestOutput(request));
   }
 
   @Override
   protected void doGet(HttpServletRequest request, HttpServletResponse response)
       throws IOException, ServletException {
-    request.setAttribute(OUTPUT_MAP_ATTR_NAME, createBodylessRequestOutput(request));
+    request.setAttribute(OUTPUT_ECHO_ATTR_NAME, createBodylessRequestOutput(request));
   }
 
   @Override
@@ -55,6 +110,15 @@ public class AjpMethodsServlet extends HttpServlet {
   /**
    * Handles requests that have a body (POST, PUT, etc.).
    * 
+   * <p>
+   * When the request supports it, the body is read asynchronously by a {@link BodyReadListener}
+   * which dispatches the request back here once the whole body is available, or answers it with
+   * {@value HttpServletResponse#SC_REQUEST_TIMEOUT} if that takes longer than {@code body.timeout}
+   * milliseconds. Otherwise the body is read on the calling thread. Bodies larger than
+   * {@code body.maxSize} bytes, or {@code multipart.maxSize} bytes for multipart bodies, are
+   * answered with {@value HttpServletResponse#SC_REQUEST_ENTITY_TOO_LARGE}, before reading
+   * anything if the Content-Length says so.
+   * 
    * @param request  the servlet request
    * @param response the servlet response
    * @throws ServletException if a ServletException is thrown
@@ -62,15 +126,6 @@ public class AjpMethodsServlet extends HttpServlet {
    */
   private void doMethodWithRequestBody(HttpServletRequest request, HttpServletResponse response)
       throws ServletException, IOException {
-    var headers = getHeaders(request);
-    var url = getRequestUrl(request);
-    var attributes = getAttributes(request);
-
-    Map<String, Object> form = Map.of();
-    Map<String, Object> args = Map.of();
-    Map<String, Object> json = Map.of();
-    var data = "";
-
     // Process the payload.
     var contentType = request.getHeader("Content-Type");
     if (contentType == null || contentType.isEmpty()) {
@@ -78,49 +133,126 @@ public class AjpMethodsServlet extends HttpServlet {
       return;
     }
 
-    switch (contentType) {
+    var mediaType = MediaType.parse(contentType);
+    var body = (RequestBody) request.getAttribute(REQUEST_BODY_ATTR_NAME);
+    if (body == null) {
+      var limits = mediaType.getEssence().equals(CT_MULTIPART_FORM_DATA) ? multipartBodyLimits
+          : bodyLimits;
+      if (request.getContentLengthLong() > limits.maxSize()) {
+        response.sendError(SC_REQUEST_ENTITY_TOO_LARGE,
+            new RequestBody.TooLargeException(limits.maxSize()).getMessage());
+        return;
+      }
+      if (request.isAsyncSupported()) {
+        var asyncContext = request.startAsync();
+        asyncContext.setTimeout(bodyTimeoutMillis);
+        BodyReadListener.start(asyncContext, limits);
+        return;
+      }
+      try {
+        body = RequestBody.read(request.getInputStream(), request.getContentLengthLong(),
+            limits);
+      } catch (RequestBody.TooLargeException e) {
+        response.sendError(SC_REQUEST_ENTITY_TOO_LARGE, e.getMessage());
+        return;
+      }
+    } else {
+      // Keep the body out of the echoed attributes.
+      request.removeAttribute(REQUEST_BODY_ATTR_NAME);
+    }
+
+    try {
+      echoRequestWithBody(request, response, mediaType, body);
+    } finally {
+      body.release();
+    }
+  }
+
+  private void echoRequestWithBody(HttpServletRequest request, HttpServletResponse response,
+      MediaType mediaType, RequestBody body) throws IOException {
+    var snapshot = RequestSnapshot.capture(request, maxParameters);
+    var charset = mediaType.getCharset(UTF_8);
+
+    Map<String, Object> form = Map.of();
+    Map<String, Object> files = Map.of();
+    Object json = Map.of();
+    var data = "";
 
-      // Can't use Requests.getArguments here since BOTH query strings AND form parameters would be
-      // part of it. Also, we want a separate "form" field in the response json. So get the form
-      // data out "manually" and add it to the output map. It's possible for a POST to have a query
-      // string so using Requests.parameterStringToMap will be used to process both.
+    switch (mediaType.getEssence()) {
+
+      // The body has already been read, so the container can't parse form parameters from it.
+      // Parse the form data from the body and the query string separately so that they get their
+      // own "form" and "args" fields in the response json.
       case CT_FORM_URLENCODED:
-        form = getForm(request);
+        try (var in = body.openStream()) {
+          form = UrlEncoded.parse(in, charset, maxParameters, maxFormFieldSize);
+        } catch (UrlEncoded.LimitExceededException e) {
+          response.sendError(SC_REQUEST_ENTITY_TOO_LARGE, e.getMessage());
+          return;
+        }
         break;
 
       case CT_APPLICATION_JSON:
-        data = getDataAsString(request);
-        json = marshal(data);
+        data = getData(body, charset);
+        // The json parser reads UTF-8; transcode a body declared in another charset.
+        try (var in = charset.equals(UTF_8) || charset.equals(US_ASCII) ? body.openStream()
+            : new ByteArrayInputStream(data.getBytes(UTF_8))) {
+          json = requireNonNullElse(Json.parse(in, jsonLimits), Map.of());
+        } catch (JsonParser.ParseException e) {
+          response.sendError(SC_BAD_REQUEST, e.getMessage());
+          return;
+        }
+        break;
+
+      case CT_MULTIPART_FORM_DATA:
+        var boundary = Multipart.boundary(mediaType);
+        if (boundary == null) {
+          response.sendError(SC_BAD_REQUEST, "Missing multipart boundary");
+          return;
+        }
+        try (var in = body.openStream()) {
+          var multipart = Multipart.parse(in, boundary, maxParameters, multipartPartThreshold);
+          form = multipart.getForm();
+          files = multipart.getFiles();
+        } catch (Multipart.FormatException e) {
+          response.sendError(SC_BAD_REQUEST, e.getMessage());
+          return;
+        }
         break;
 
       default:
+        data = getData(body, charset);
         break;
     }
 
-    // Process query string if it's there.
-    if (request.getQueryString() != null && !request.getQueryString().isEmpty()) {
-      LOGGER.fine(() -> {
-        return format("request.getQueryString()=%s", request.getQueryString());
-      });
-      args = parameterStringToMap(request.getQueryString());
-    }
+    request.setAttribute(OUTPUT_ECHO_ATTR_NAME,
+        new EchoResponse(snapshot, form, files, json, data));
+  }
 
-    request.setAttribute(OUTPUT_MAP_ATTR_NAME, Map.of("headers", headers, "url", url, "attributes",
-        attributes, "form", form, "args", args, "json", json, "data", data));
+  /**
+   * Returns the body as text if it is valid in the given charset, otherwise as a base64 encoded
+   * {@code data:} URL the way httpbin does.
+   * 
+   * @param body    the request body
+   * @param charset the charset declared by the Content-Type, or UTF-8
+   * @return the data
+   * @throws IOException if the body can't be read
+   */
+  private static String getData(RequestBody body, Charset charset) throws IOException {
+    var text = body.toText(charset);
+    return text != null ? text : body.toDataUrl("application/octet-stream");
   }
 
   /**
-   * Creates and returns a Map whose keys are the components of the output and whose values are the
-   * values of those components.
+   * Creates and returns the output for a request without a body.
    * 
    * <p>
    * This method should be used when parsing headers, attributes, urls, and request parameters.
    * 
-   * @param request
-   * @return
+   * @param request the servlet request
+   * @return the output
    */
-  private Map<String, Object> createBodylessRequestOutput(HttpServletRequest request) {
-    return Map.of("args", getArguments(request), "headers", getHeaders(request), "attributes",
-        getAttributes(request), "url", getRequestUrl(request));
+  private EchoResponse createBodylessRequestOutput(HttpServletRequest request) {
+    return new EchoResponse(RequestSnapshot.capture(request, maxParameters));
   }
 }
@@ -1,7 +1,5 @@
 package com.github.argherna.ajpbin;
 
-import java.util.Date;
-
 import javax.servlet.http.HttpServletResponse;
 
 final class AjpbinHeaders {
@@ -9,7 +7,7 @@ final class AjpbinHeaders {
     }
 
     static void setHeaders(HttpServletResponse response) {
-        response.setDateHeader("Date", new Date().getTime());
+        response.setDateHeader("Date", System.currentTimeMillis());
         response.setHeader("X-Content-Type-Options", "nosniff");
         response.setHeader("X-Frame-Options", "DENY");
         response.setHeader("X-XSS-Protection", "1; mode=block");
@@ -0,0 +1,343 @@
+package com.github.argherna.ajpbin;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Binary encodings of the output Map, offered as alternatives to json.
+ *
+ * <p>
+ * Each format renders the same Maps, Lists and scalars as {@link Json} and skips the same values
+ * (see {@link Json#hasValue(Object)}). Maps and arrays are written with definite lengths, strings
+ * are written as UTF-8 text strings, integral numbers use the smallest encoding that holds them and
+ * other numbers are written as 64 bit floats.
+ */
+enum BinaryFormat {
+
+  /** Concise Binary Object Representation, RFC 8949. */
+  CBOR("application/cbor") {
+
+    @Override
+    void writeMapHeader(Json.Utf8Sink out, int size) throws IOException {
+      writeHead(out, 5, size);
+    }
+
+    @Override
+    void writeArrayHeader(Json.Utf8Sink out, int size) throws IOException {
+      writeHead(out, 4, size);
+    }
+
+    @Override
+    void writeString(Json.Utf8Sink out, String value) throws IOException {
+      writeHead(out, 3, Json.Utf8Sink.utf8Length(value));
+      out.append(value);
+      out.flushPendingSurrogate();
+    }
+
+    @Override
+    void writeLong(Json.Utf8Sink out, long value) throws IOException {
+      if (value >= 0) {
+        writeHead(out, 0, value);
+      } else {
+        writeHead(out, 1, -1 - value);
+      }
+    }
+
+    @Override
+    void writeDouble(Json.Utf8Sink out, double value) throws IOException {
+      out.write(0xfb);
+      writeBigEndian(out, Double.doubleToLongBits(value), 8);
+    }
+
+    @Override
+    void writeBoolean(Json.Utf8Sink out, boolean value) throws IOException {
+      out.write(value ? 0xf5 : 0xf4);
+    }
+
+    @Override
+    void writeNull(Json.Utf8Sink out) throws IOException {
+      out.write(0xf6);
+    }
+
+    // Writes an initial byte with the given major type followed by the argument.
+    private void writeHead(Json.Utf8Sink out, int major, long argument) throws IOException {
+      var type = major << 5;
+      if (argument < 24) {
+        out.write(type | (int) argument);
+      } else if (argument <= 0xffL) {
+        out.write(type | 24);
+        writeBigEndian(out, argument, 1);
+      } else if (argument <= 0xffffL) {
+        out.write(type | 25);
+        writeBigEndian(out, argument, 2);
+      } else if (argument <= 0xffffffffL) {
+        out.write(type | 26);
+        writeBigEndian(out, argument, 4);
+      } else {
+        out.write(type | 27);
+        writeBigEndian(out, argument, 8);
+      }
+    }
+  },
+
+  /** MessagePack, https://msgpack.org/. */
+  MESSAGE_PACK("application/msgpack") {
+
+    @Override
+    void writeMapHeader(Json.Utf8Sink out, int size) throws IOException {
+      writeCollectionHeader(out, size, 0x80, 0xde);
+    }
+
+    @Override
+    void writeArrayHeader(Json.Utf8Sink out, int size) throws IOException {
+      writeCollectionHeader(out, size, 0x90, 0xdc);
+    }
+
+    @Override
+    void writeString(Json.Utf8Sink out, String value) throws IOException {
+      var length = Json.Utf8Sink.utf8Length(value);
+      if (length < 32) {
+        out.write(0xa0 | length);
+      } else if (length <= 0xff) {
+        out.write(0xd9);
+        writeBigEndian(out, length, 1);
+      } else if (length <= 0xffff) {
+        out.write(0xda);
+        writeBigEndian(out, length, 2);
+      } else {
+        out.write(0xdb);
+        writeBigEndian(out, length, 4);
+      }
+      out.append(value);
+      out.flushPendingSurrogate();
+    }
+
+    @Override
+    void writeLong(Json.Utf8Sink out, long value) throws IOException {
+      if (value >= 0) {
+        if (value < 128) {
+          out.write((int) value);
+        } else if (value <= 0xffL) {
+          out.write(0xcc);
+          writeBigEndian(out, value, 1);
+        } else if (value <= 0xffffL) {
+          out.write(0xcd);
+          writeBigEndian(out, value, 2);
+        } else if (value <= 0xffffffffL) {
+          out.write(0xce);
+          writeBigEndian(out, value, 4);
+        } else {
+          out.write(0xcf);
+          writeBigEndian(out, value, 8);
+        }
+      } else if (value >= -32) {
+        out.write((int) value & 0xff);
+      } else if (value >= Byte.MIN_VALUE) {
+        out.write(0xd0);
+        writeBigEndian(out, value, 1);
+      } else if (value >= Short.MIN_VALUE) {
+        out.write(0xd1);
+        writeBigEndian(out, value, 2);
+      } else if (value >= Integer.MIN_VALUE) {
+        out.write(0xd2);
+        writeBigEndian(out, value, 4);
+      } else {
+        out.write(0xd3);
+        writeBigEndian(out, value, 8);
+      }
+    }
+
+    @Override
+    void writeDouble(Json.Utf8Sink out, double value) throws IOException {
+      out.write(0xcb);
+      writeBigEndian(out, Double.doubleToLongBits(value), 8);
+    }
+
+    @Override
+    void writeBoolean(Json.Utf8Sink out, boolean value) throws IOException {
+      out.write(value ? 0xc3 : 0xc2);
+    }
+
+    @Override
+    void writeNull(Json.Utf8Sink out) throws IOException {
+      out.write(0xc0);
+    }
+
+    private void writeCollectionHeader(Json.Utf8Sink out, int size, int fixType, int type16)
+        throws IOException {
+      if (size < 16) {
+        out.write(fixType | size);
+      } else if (size <= 0xffff) {
+        out.write(type16);
+        writeBigEndian(out, size, 2);
+      } else {
+        out.write(type16 + 1);
+        writeBigEndian(out, size, 4);
+      }
+    }
+  };
+
+  private final String contentType;
+
+  private BinaryFormat(String contentType) {
+    this.contentType = contentType;
+  }
+
+  /**
+   * @return the Content-Type of this format.
+   */
+  String getContentType() {
+    return contentType;
+  }
+
+  /**
+   * Returns the binary format the client prefers according to the given {@code Accept} header, or
+   * {@code null} if json should be used.
+   *
+   * <p>
+   * A binary format is chosen only if it is named explicitly (wildcards select json) and its
+   * quality is greater than zero and not less than that of {@code application/json}.
+   * {@code application/x-msgpack} is accepted as an alias of {@code application/msgpack}.
+   *
+   * @param accept the Accept header value, may be {@code null}.
+   * @return the preferred binary format, or {@code null} for json.
+   */
+  static BinaryFormat negotiate(String accept) {
+    // Most clients never ask for a binary format; don't parse their Accept headers.
+    if (accept == null || (accept.indexOf("cbor") < 0 && accept.indexOf("msgpack") < 0)) {
+      return null;
+    }
+    BinaryFormat best = null;
+    var bestQuality = 0f;
+    var jsonQuality = 0f;
+    for (var range : accept.split(",")) {
+      var semicolon = range.indexOf(';');
+      var type = (semicolon < 0 ? range : range.substring(0, semicolon)).trim();
+      var quality = semicolon < 0 ? 1f : quality(range.substring(semicolon + 1));
+      if (type.equalsIgnoreCase(Constants.CT_APPLICATION_JSON)) {
+        jsonQuality = Math.max(jsonQuality, quality);
+      } else {
+        var format = type.equalsIgnoreCase(CBOR.contentType) ? CBOR
+            : type.equalsIgnoreCase(MESSAGE_PACK.contentType)
+                || type.equalsIgnoreCase("application/x-msgpack") ? MESSAGE_PACK : null;
+        if (format != null && quality > bestQuality) {
+          best = format;
+          bestQuality = quality;
+        }
+      }
+    }
+    return bestQuality >= jsonQuality ? best : null;
+  }
+
+  /**
+   * Renders the given Map to the given sink in this format.
+   *
+   * @param data     a Map as described in {@link Json#renderObject(Map)}.
+   * @param out      the sink to write to.
+   * @param sortKeys {@code true} to write keys in natural String order.
+   * @throws IOException if an IOException occurs during render.
+   */
+  void renderObject(Map<String, ?> data, Json.Utf8Sink out, boolean sortKeys)
+      throws IOException {
+    var size = 0;
+    for (var value : data.values()) {
+      if (Json.hasValue(value)) {
+        size++;
+      }
+    }
+    writeMapHeader(out, size);
+    if (sortKeys && !isNaturallySorted(data)) {
+      var keys = data.keySet().toArray(new String[data.size()]);
+      Arrays.sort(keys);
+      for (var key : keys) {
+        renderMember(key, data.get(key), out, sortKeys);
+      }
+    } else {
+      for (var entry : data.entrySet()) {
+        renderMember(entry.getKey(), entry.getValue(), out, sortKeys);
+      }
+    }
+  }
+
+  abstract void writeMapHeader(Json.Utf8Sink out, int size) throws IOException;
+
+  abstract void writeArrayHeader(Json.Utf8Sink out, int size) throws IOException;
+
+  abstract void writeString(Json.Utf8Sink out, String value) throws IOException;
+
+  abstract void writeLong(Json.Utf8Sink out, long value) throws IOException;
+
+  abstract void writeDouble(Json.Utf8Sink out, double value) throws IOException;
+
+  abstract void writeBoolean(Json.Utf8Sink out, boolean value) throws IOException;
+
+  abstract void writeNull(Json.Utf8Sink out) throws IOException;
+
+  private void renderMember(String key, Object value, Json.Utf8Sink out, boolean sortKeys)
+      throws IOException {
+    if (Json.hasValue(value)) {
+      writeString(out, key);
+      renderValue(value, out, sortKeys);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void renderValue(Object value, Json.Utf8Sink out, boolean sortKeys) throws IOException {
+    if (value instanceof Map) {
+      renderObject((Map<String, Object>) value, out, sortKeys);
+    } else if (value instanceof List) {
+      var list = (List<Object>) value;
+      var size = 0;
+      for (var element : list) {
+        if (Json.hasValue(element)) {
+          size++;
+        }
+      }
+      writeArrayHeader(out, size);
+      for (var element : list) {
+        if (Json.hasValue(element)) {
+          renderValue(element, out, sortKeys);
+        }
+      }
+    } else if (value == null) {
+      writeNull(out);
+    } else if (value instanceof Boolean) {
+      writeBoolean(out, (Boolean) value);
+    } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+        || value instanceof Byte) {
+      writeLong(out, ((Number) value).longValue());
+    } else if (value instanceof Number) {
+      writeDouble(out, ((Number) value).doubleValue());
+    } else {
+      writeString(out, value.toString());
+    }
+  }
+
+  private static boolean isNaturallySorted(Map<String, ?> data) {
+    return data instanceof SortedMap && ((SortedMap<String, ?>) data).comparator() == null;
+  }
+
+  // Returns the value of the q parameter in the given media range parameters.
+  private static float quality(String params) {
+    for (var param : params.split(";")) {
+      param = param.trim();
+      if (param.startsWith("q=")) {
+        try {
+          return Float.parseFloat(param.substring(2));
+        } catch (NumberFormatException e) {
+          return 0f;
+        }
+      }
+    }
+    return 1f;
+  }
+
+  private static void writeBigEndian(Json.Utf8Sink out, long value, int bytes) throws IOException {
+    for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+      out.write((int) (value >>> shift) & 0xff);
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.REQUEST_BODY_ATTR_NAME;
+import static java.util.logging.Level.WARNING;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+import static javax.servlet.http.HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE;
+import static javax.servlet.http.HttpServletResponse.SC_REQUEST_TIMEOUT;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Reads a request body without blocking a container thread.
+ *
+ * <p>
+ * Bytes are read into a {@link RequestBody} whenever the container reports they are available.
+ * Once the whole body has been read it is stored in the
+ * {@value Constants#REQUEST_BODY_ATTR_NAME} request attribute and the request is dispatched
+ * again, so the servlet and its filters finish the response on a container thread as usual. A
+ * body larger than the maximum size of the given limits is answered with
+ * {@value HttpServletResponse#SC_REQUEST_ENTITY_TOO_LARGE}.
+ *
+ * <p>
+ * The listener is also registered as the request's {@link AsyncListener}, so a body that isn't
+ * read before the asynchronous timeout is answered with
+ * {@value HttpServletResponse#SC_REQUEST_TIMEOUT}, and the part read so far is released then or
+ * when the container reports an error.
+ */
+final class BodyReadListener implements ReadListener, AsyncListener {
+
+  private static final Logger LOGGER = Logger.getLogger(BodyReadListener.class.getName());
+
+  private final AsyncContext asyncContext;
+
+  private final ServletInputStream in;
+
+  private final long maxSize;
+
+  private final RequestBody body;
+
+  private boolean done;
+
+  /**
+   * Starts reading the body of the given asynchronous request.
+   *
+   * @param asyncContext the started AsyncContext of the request.
+   * @param limits       the limits for the body.
+   * @throws IOException if the request's InputStream can't be obtained.
+   */
+  static void start(AsyncContext asyncContext, RequestBody.Limits limits) throws IOException {
+    var request = asyncContext.getRequest();
+    var body = new RequestBody(request.getContentLengthLong(), limits.memoryThreshold());
+    var in = request.getInputStream();
+    var listener = new BodyReadListener(asyncContext, in, body, limits.maxSize());
+    asyncContext.addListener(listener);
+    in.setReadListener(listener);
+  }
+
+  private BodyReadListener(AsyncContext asyncContext, ServletInputStream in, RequestBody body,
+      long maxSize) {
+    this.asyncContext = asyncContext;
+    this.in = in;
+    this.body = body;
+    this.maxSize = maxSize;
+  }
+
+  @Override
+  public void onDataAvailable() throws IOException {
+    while (!done && in.isReady() && !in.isFinished()) {
+      if (body.readFrom(in) == -1) {
+        return;
+      }
+      if (body.size() > maxSize) {
+        fail(SC_REQUEST_ENTITY_TOO_LARGE, new RequestBody.TooLargeException(maxSize).getMessage());
+      }
+    }
+  }
+
+  @Override
+  public void onAllDataRead() throws IOException {
+    if (!done) {
+      done = true;
+      asyncContext.getRequest().setAttribute(REQUEST_BODY_ATTR_NAME, body);
+      asyncContext.dispatch();
+    }
+  }
+
+  @Override
+  public void onError(Throwable t) {
+    LOGGER.log(WARNING, "Failed to read request body", t);
+    try {
+      fail(SC_BAD_REQUEST, t.getMessage());
+    } catch (IOException e) {
+      LOGGER.log(WARNING, "Failed to send error response", e);
+    }
+  }
+
+  @Override
+  public void onTimeout(AsyncEvent event) throws IOException {
+    fail(SC_REQUEST_TIMEOUT, "Request body not received in time");
+  }
+
+  @Override
+  public void onError(AsyncEvent event) {
+    onError(event.getThrowable());
+  }
+
+  @Override
+  public void onComplete(AsyncEvent event) {
+  }
+
+  @Override
+  public void onStartAsync(AsyncEvent event) {
+  }
+
+  private void fail(int status, String message) throws IOException {
+    if (done) {
+      return;
+    }
+    done = true;
+    body.release();
+    try {
+      ((HttpServletResponse) asyncContext.getResponse()).sendError(status, message);
+    } finally {
+      asyncContext.complete();
+    }
+  }
+}
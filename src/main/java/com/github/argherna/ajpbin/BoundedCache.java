@@ -0,0 +1,68 @@
+package com.github.argherna.ajpbin;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A thread safe cache holding at most a fixed number of entries, evicting the least recently used.
+ *
+ * <p>
+ * Meant for small caches of values that are expensive to compute from a key that recurs often,
+ * such as parsed header values. Values are computed outside of the lock, so two threads missing on
+ * the same key may both compute it; the values must therefore be interchangeable.
+ *
+ * @param <K> type of the keys.
+ * @param <V> type of the values.
+ */
+final class BoundedCache<K, V> {
+
+  private final LinkedHashMap<K, V> entries;
+
+  /**
+   * Constructs a new BoundedCache.
+   *
+   * @param maxSize maximum number of entries kept.
+   */
+  BoundedCache(int maxSize) {
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * Returns the value cached for the given key, computing and caching it if there is none.
+   *
+   * @param key    the key.
+   * @param loader computes the value for a key; should not return {@code null}.
+   * @return the value.
+   */
+  V get(K key, Function<? super K, ? extends V> loader) {
+    V value;
+    synchronized (entries) {
+      value = entries.get(key);
+    }
+    if (value == null) {
+      value = loader.apply(key);
+      synchronized (entries) {
+        entries.put(key, value);
+      }
+    }
+    return value;
+  }
+
+  /**
+   * @return the number of cached entries.
+   */
+  int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+}
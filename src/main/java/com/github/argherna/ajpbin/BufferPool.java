@@ -0,0 +1,63 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.BUFFER_SIZE;
+import static com.github.argherna.ajpbin.Constants.MAX_POOLED_BUFFERS;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A bounded pool of equally sized byte arrays.
+ *
+ * <p>
+ * Buffers are handed out by {@link #acquire()} and given back with {@link #release(byte[])}. When
+ * the pool is empty a new buffer is allocated; when it is full a released buffer is left for the
+ * garbage collector. A buffer must not be used after it has been released.
+ */
+final class BufferPool {
+
+  /** Pool shared by the request and response paths of this application. */
+  static final BufferPool SHARED = new BufferPool(BUFFER_SIZE, MAX_POOLED_BUFFERS);
+
+  private final int bufferSize;
+
+  private final ArrayBlockingQueue<byte[]> buffers;
+
+  /**
+   * Constructs a new BufferPool.
+   *
+   * @param bufferSize size in bytes of each buffer.
+   * @param maxPooled  maximum number of idle buffers kept.
+   */
+  BufferPool(int bufferSize, int maxPooled) {
+    this.bufferSize = bufferSize;
+    this.buffers = new ArrayBlockingQueue<>(maxPooled);
+  }
+
+  /**
+   * Returns a buffer from the pool, allocating a new one if none are available.
+   *
+   * @return a buffer of {@link #bufferSize()} bytes.
+   */
+  byte[] acquire() {
+    var buffer = buffers.poll();
+    return buffer != null ? buffer : new byte[bufferSize];
+  }
+
+  /**
+   * Returns the given buffer to the pool.
+   *
+   * @param buffer buffer to return; ignored if {@code null} or not from this pool.
+   */
+  void release(byte[] buffer) {
+    if (buffer != null && buffer.length == bufferSize) {
+      buffers.offer(buffer);
+    }
+  }
+
+  /**
+   * @return the size in bytes of the buffers in this pool.
+   */
+  int bufferSize() {
+    return bufferSize;
+  }
+}
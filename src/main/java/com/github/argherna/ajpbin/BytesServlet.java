@@ -0,0 +1,83 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.BYTES_MAX;
+import static com.github.argherna.ajpbin.Constants.STREAM_BYTES_CHUNK_SIZE;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Returns {@code n} pseudo-random bytes, {@code /bytes/{n}} with a Content-Length or
+ * {@code /stream-bytes/{n}} chunked.
+ *
+ * <p>
+ * The optional {@code seed} query parameter makes the bytes the same for every request with that
+ * seed, and a seeded {@code /bytes/{n}} honors Range requests, see {@link Ranges}. A streamed
+ * response is flushed every {@code chunk_size} bytes (default
+ * {@value Constants#STREAM_BYTES_CHUNK_SIZE}). {@code n} is capped by the {@code bytes.max} init
+ * parameter, 1 GiB by default. The bytes come from {@link RandomBytes}.
+ */
+@WebServlet(name = "BytesServlet", urlPatterns = {"/bytes/*", "/stream-bytes/*"})
+public class BytesServlet extends HttpServlet {
+
+  private long maxBytes = BYTES_MAX;
+
+  /**
+   * Reads the maximum number of bytes from the {@code bytes.max} init parameter.
+   */
+  @Override
+  public void init() throws ServletException {
+    maxBytes = InitParameters.getLong(getServletConfig(), "bytes.max", BYTES_MAX);
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response)
+      throws ServletException, IOException {
+    var streamed = request.getServletPath().equals("/stream-bytes");
+    var pathInfo = request.getPathInfo();
+    long length;
+    int offset;
+    int chunkSize;
+    Long seed;
+    try {
+      if (pathInfo == null || pathInfo.length() < 2) {
+        throw new NumberFormatException("Missing number of bytes");
+      }
+      length = Long.parseLong(pathInfo.substring(1));
+      var seedParameter = request.getParameter("seed");
+      seed = seedParameter == null ? null : Long.valueOf(seedParameter);
+      offset = seed == null ? RandomBytes.randomOffset() : RandomBytes.offset(seed);
+      var chunkSizeParameter = request.getParameter("chunk_size");
+      chunkSize = chunkSizeParameter == null ? STREAM_BYTES_CHUNK_SIZE
+          : Integer.parseInt(chunkSizeParameter);
+    } catch (NumberFormatException e) {
+      response.sendError(SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+    if (length < 0 || chunkSize < 1) {
+      response.sendError(SC_BAD_REQUEST, "Invalid number of bytes or chunk size");
+      return;
+    }
+    length = Math.min(length, maxBytes);
+
+    AjpbinHeaders.setHeaders(response);
+    if (!streamed && seed != null) {
+      Ranges.serve(request, response, RandomBytes.content(length, offset),
+          "application/octet-stream", "\"bytes" + length + "-" + seed + "\"");
+      return;
+    }
+    response.setContentType("application/octet-stream");
+    if (!streamed) {
+      response.setContentLengthLong(length);
+    }
+    var out = response.getOutputStream();
+    RandomBytes.write(out, length, offset, streamed ? chunkSize : 0);
+    out.flush();
+  }
+}
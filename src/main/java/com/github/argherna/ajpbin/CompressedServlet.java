@@ -0,0 +1,40 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.CONTENT_ENCODING_ATTR_NAME;
+import static com.github.argherna.ajpbin.Constants.OUTPUT_MAP_ATTR_NAME;
+import static com.github.argherna.ajpbin.Constants.MAX_PARAMETERS;
+
+import java.io.IOException;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Returns the echo output compressed with the content coding named by the path, {@code /gzip} or
+ * {@code /deflate}, regardless of the request's {@code Accept-Encoding} header.
+ *
+ * <p>
+ * The output contains {@code "gzipped": true} or {@code "deflated": true} in addition to the
+ * usual {@code headers}, {@code args}, {@code attributes} and {@code url}. Compression itself is
+ * done by {@link CompressionFilter}.
+ */
+@WebServlet(name = "CompressedServlet", urlPatterns = {"/gzip", "/deflate"})
+public class CompressedServlet extends HttpServlet {
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response)
+      throws ServletException, IOException {
+    var coding = request.getServletPath().equals("/gzip") ? CompressionFilter.GZIP
+        : CompressionFilter.DEFLATE;
+    request.setAttribute(CONTENT_ENCODING_ATTR_NAME, coding);
+    var snapshot = RequestSnapshot.capture(request, MAX_PARAMETERS);
+    request.setAttribute(OUTPUT_MAP_ATTR_NAME,
+        Map.of("args", snapshot.args(), "headers", snapshot.headers(), "attributes",
+            snapshot.attributes(), "url", snapshot.url(),
+            CompressionFilter.GZIP.equals(coding) ? "gzipped" : "deflated", Boolean.TRUE));
+  }
+}
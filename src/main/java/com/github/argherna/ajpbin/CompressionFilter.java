@@ -0,0 +1,451 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.COMPRESSION_LEVEL;
+import static com.github.argherna.ajpbin.Constants.COMPRESSION_THRESHOLD;
+import static com.github.argherna.ajpbin.Constants.CONTENT_ENCODING_ATTR_NAME;
+import static com.github.argherna.ajpbin.Constants.H_CONTENT_LENGTH;
+import static com.github.argherna.ajpbin.Constants.MAX_POOLED_DEFLATERS;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Compresses response bodies with the {@code gzip} or {@code deflate} content coding.
+ *
+ * <p>
+ * The coding is negotiated from the {@code Accept-Encoding} request header, preferring
+ * {@code gzip}. A servlet can force a coding by setting the
+ * {@value Constants#CONTENT_ENCODING_ATTR_NAME} request attribute to {@code gzip} or
+ * {@code deflate}. Bodies are buffered until {@code compression.threshold} bytes (init parameter,
+ * default {@value Constants#COMPRESSION_THRESHOLD}) have been written; complete bodies smaller than
+ * that are sent uncompressed with their exact Content-Length. Bodies that already have a
+ * Content-Encoding are never compressed, nor are bodies that advertise byte ranges with
+ * Accept-Ranges or are one with Content-Range: ranges and their If-Range entity tags refer to the
+ * uncompressed bytes. The compression level is set with the {@code compression.level} init
+ * parameter.
+ *
+ * <p>
+ * Deflaters are taken from a pool and returned when the body is finished. This filter is declared
+ * in {@code web.xml} so it wraps the other filters and sees the bodies they render.
+ */
+public class CompressionFilter extends HttpFilter {
+
+  static final String GZIP = "gzip";
+
+  static final String DEFLATE = "deflate";
+
+  private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0,
+      0, (byte) 0xff};
+
+  private int threshold;
+
+  private DeflaterPool gzipDeflaters;
+
+  private DeflaterPool deflateDeflaters;
+
+  @Override
+  public void init() throws ServletException {
+    var config = getFilterConfig();
+    threshold = Math.min(InitParameters.getInt(config, "compression.threshold",
+        COMPRESSION_THRESHOLD), BufferPool.SHARED.bufferSize());
+    var level = InitParameters.getInt(config, "compression.level", COMPRESSION_LEVEL);
+    gzipDeflaters = new DeflaterPool(level, true, MAX_POOLED_DEFLATERS);
+    deflateDeflaters = new DeflaterPool(level, false, MAX_POOLED_DEFLATERS);
+  }
+
+  @Override
+  public void destroy() {
+    gzipDeflaters.clear();
+    deflateDeflaters.clear();
+  }
+
+  @Override
+  protected void doFilter(HttpServletRequest request, HttpServletResponse response,
+      FilterChain chain) throws IOException, ServletException {
+    // An asynchronous dispatch continues a response that already has the header.
+    if (request.getDispatcherType() != DispatcherType.ASYNC) {
+      response.addHeader("Vary", "Accept-Encoding");
+    }
+    var wrapper = new CompressingResponse(request, response,
+        negotiate(request.getHeader("Accept-Encoding")));
+    var handled = false;
+    try {
+      chain.doFilter(request, wrapper);
+      handled = true;
+    } finally {
+      if (!handled) {
+        // Nothing more is written; the container reports the failure.
+        wrapper.release();
+      }
+    }
+    // An asynchronous request is finished by a later dispatch through this filter.
+    if (!request.isAsyncStarted()) {
+      wrapper.finish();
+    }
+  }
+
+  /**
+   * Returns the content coding to use for the given {@code Accept-Encoding} header.
+   *
+   * @param acceptEncoding the header value, may be {@code null}.
+   * @return {@value #GZIP}, {@value #DEFLATE} or {@code null} if neither is acceptable.
+   */
+  static String negotiate(String acceptEncoding) {
+    if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+      return null;
+    }
+    var gzip = -1f;
+    var deflate = -1f;
+    var any = -1f;
+    for (var coding : acceptEncoding.split(",")) {
+      var semicolon = coding.indexOf(';');
+      var name = (semicolon < 0 ? coding : coding.substring(0, semicolon)).trim();
+      var quality = 1f;
+      if (semicolon >= 0) {
+        var param = coding.substring(semicolon + 1).trim();
+        if (param.startsWith("q=")) {
+          try {
+            quality = Float.parseFloat(param.substring(2));
+          } catch (NumberFormatException e) {
+            quality = 0f;
+          }
+        }
+      }
+      if (name.equalsIgnoreCase(GZIP) || name.equalsIgnoreCase("x-gzip")) {
+        gzip = quality;
+      } else if (name.equalsIgnoreCase(DEFLATE)) {
+        deflate = quality;
+      } else if (name.equals("*")) {
+        any = quality;
+      }
+    }
+    gzip = gzip < 0 ? any : gzip;
+    deflate = deflate < 0 ? any : deflate;
+    if (gzip > 0 && gzip >= deflate) {
+      return GZIP;
+    }
+    return deflate > 0 ? DEFLATE : null;
+  }
+
+  private DeflaterPool pool(String coding) {
+    return GZIP.equals(coding) ? gzipDeflaters : deflateDeflaters;
+  }
+
+  /**
+   * Response that routes its body through a {@link CompressingOutputStream}.
+   */
+  private final class CompressingResponse extends HttpServletResponseWrapper {
+
+    private final HttpServletRequest request;
+
+    private final String acceptedCoding;
+
+    private long declaredLength = -1;
+
+    private CompressingOutputStream stream;
+
+    private PrintWriter writer;
+
+    private CompressingResponse(HttpServletRequest request, HttpServletResponse response,
+        String acceptedCoding) {
+      super(response);
+      this.request = request;
+      this.acceptedCoding = acceptedCoding;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+      declaredLength = len;
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+      declaredLength = len;
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+      if (H_CONTENT_LENGTH.equalsIgnoreCase(name)) {
+        declaredLength = value == null ? -1 : Long.parseLong(value);
+      } else {
+        super.setHeader(name, value);
+      }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+      if (writer != null) {
+        throw new IllegalStateException("getWriter() has already been called");
+      }
+      return stream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+      if (writer == null) {
+        if (stream != null) {
+          throw new IllegalStateException("getOutputStream() has already been called");
+        }
+        writer = new PrintWriter(new OutputStreamWriter(stream(), getCharacterEncoding()));
+      }
+      return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+      if (writer != null) {
+        writer.flush();
+      } else if (stream != null) {
+        stream.flush();
+      } else {
+        super.flushBuffer();
+      }
+    }
+
+    private CompressingOutputStream stream() {
+      if (stream == null) {
+        stream = new CompressingOutputStream(this);
+      }
+      return stream;
+    }
+
+    // Picks the coding once the size of the body (or that it is streamed) is known.
+    private String coding(boolean complete, long size) {
+      var forced = request.getAttribute(CONTENT_ENCODING_ATTR_NAME);
+      if (GZIP.equals(forced) || DEFLATE.equals(forced)) {
+        return (String) forced;
+      }
+      if (acceptedCoding == null || containsHeader("Content-Encoding")
+          || containsHeader("Accept-Ranges") || containsHeader("Content-Range")
+          || (complete && size < threshold)) {
+        return null;
+      }
+      return acceptedCoding;
+    }
+
+    private void finish() throws IOException {
+      if (writer != null) {
+        writer.flush();
+      }
+      if (stream != null) {
+        stream.finish();
+      }
+    }
+
+    private void release() {
+      if (stream != null) {
+        stream.release();
+      }
+    }
+  }
+
+  /**
+   * Buffers the start of a body to decide whether to compress it, then writes it either as is or
+   * compressed.
+   */
+  private final class CompressingOutputStream extends ServletOutputStream {
+
+    private final CompressingResponse response;
+
+    private ServletOutputStream out;
+
+    // Start of the body, kept until the coding is decided.
+    private byte[] pending = BufferPool.SHARED.acquire();
+
+    private int pendingCount;
+
+    private long written;
+
+    private boolean decided;
+
+    private boolean finished;
+
+    private DeflaterPool pool;
+
+    private Deflater deflater;
+
+    private CRC32 crc;
+
+    private byte[] deflated;
+
+    private final byte[] single = new byte[1];
+
+    private CompressingOutputStream(CompressingResponse response) {
+      this.response = response;
+    }
+
+    @Override
+    public boolean isReady() {
+      return out == null || out.isReady();
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      try {
+        underlying().setWriteListener(writeListener);
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      single[0] = (byte) b;
+      write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (finished) {
+        throw new IOException("Response body already finished");
+      }
+      written += len;
+      if (!decided) {
+        if (pendingCount + len <= threshold) {
+          System.arraycopy(b, off, pending, pendingCount, len);
+          pendingCount += len;
+          return;
+        }
+        decide(false);
+      }
+      if (deflater != null) {
+        deflate(b, off, len, Deflater.NO_FLUSH, false);
+      } else {
+        out.write(b, off, len);
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (finished) {
+        return;
+      }
+      // A flush after the declared number of bytes means the body is complete.
+      var complete = response.declaredLength >= 0 && written >= response.declaredLength;
+      if (!decided) {
+        decide(complete);
+      }
+      if (complete) {
+        finish();
+      } else {
+        if (deflater != null) {
+          deflate(pending, 0, 0, Deflater.SYNC_FLUSH, false);
+        }
+        out.flush();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      finish();
+    }
+
+    private void finish() throws IOException {
+      if (finished) {
+        return;
+      }
+      if (!decided) {
+        decide(true);
+      }
+      finished = true;
+      try {
+        if (deflater != null) {
+          deflater.finish();
+          deflate(pending, 0, 0, Deflater.NO_FLUSH, true);
+          if (crc != null) {
+            writeIntLE((int) crc.getValue());
+            writeIntLE((int) deflater.getBytesRead());
+          }
+        }
+        out.flush();
+      } finally {
+        release();
+      }
+    }
+
+    // Returns the Deflater and the buffers to their pools; nothing can be written afterwards.
+    private void release() {
+      finished = true;
+      if (deflater != null) {
+        pool.release(deflater);
+        deflater = null;
+      }
+      BufferPool.SHARED.release(pending);
+      BufferPool.SHARED.release(deflated);
+      pending = null;
+      deflated = null;
+    }
+
+    private void decide(boolean complete) throws IOException {
+      decided = true;
+      var coding = response.coding(complete, written);
+      var wrapped = (HttpServletResponse) response.getResponse();
+      if (coding == null) {
+        if (complete) {
+          wrapped.setContentLengthLong(written);
+        } else if (response.declaredLength >= 0) {
+          wrapped.setContentLengthLong(response.declaredLength);
+        }
+        out = underlying();
+        if (pendingCount > 0) {
+          out.write(pending, 0, pendingCount);
+        }
+      } else {
+        wrapped.setHeader("Content-Encoding", coding);
+        out = underlying();
+        pool = pool(coding);
+        deflater = pool.acquire();
+        deflated = BufferPool.SHARED.acquire();
+        if (GZIP.equals(coding)) {
+          crc = new CRC32();
+          out.write(GZIP_HEADER);
+        }
+        deflate(pending, 0, pendingCount, Deflater.NO_FLUSH, false);
+      }
+      pendingCount = 0;
+    }
+
+    // Feeds the given bytes to the Deflater and writes out everything it produces. When finishing,
+    // runs until the Deflater has written all of its output.
+    private void deflate(byte[] b, int off, int len, int flush, boolean finishing)
+        throws IOException {
+      if (len > 0) {
+        deflater.setInput(b, off, len);
+        if (crc != null) {
+          crc.update(b, off, len);
+        }
+      }
+      int n;
+      do {
+        n = deflater.deflate(deflated, 0, deflated.length, flush);
+        if (n > 0) {
+          out.write(deflated, 0, n);
+        }
+      } while (finishing ? !deflater.finished() : n == deflated.length || !deflater.needsInput());
+    }
+
+    private void writeIntLE(int value) throws IOException {
+      out.write(value & 0xff);
+      out.write((value >> 8) & 0xff);
+      out.write((value >> 16) & 0xff);
+      out.write((value >>> 24) & 0xff);
+    }
+
+    private ServletOutputStream underlying() throws IOException {
+      return out != null ? out : response.getResponse().getOutputStream();
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.MAX_PARAMETERS;
+import static com.github.argherna.ajpbin.Constants.OUTPUT_ECHO_ATTR_NAME;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
+import static javax.servlet.http.HttpServletResponse.SC_PRECONDITION_FAILED;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Conditional requests the way httpbin's {@code /etag/{etag}}, {@code /cache} and
+ * {@code /cache/{seconds}} do them, returning the echo output when the condition holds.
+ *
+ * <ul>
+ * <li>{@code /etag/{etag}} has the entity tag {@code "{etag}"}. A matching {@code If-None-Match}
+ * is answered with {@value HttpServletResponse#SC_NOT_MODIFIED}; an {@code If-Match} that doesn't
+ * match with {@value HttpServletResponse#SC_PRECONDITION_FAILED}.
+ * <li>{@code /cache} has an entity tag and a Last-Modified time that stay the same while the
+ * application runs. A matching {@code If-None-Match} or, without one, an
+ * {@code If-Modified-Since} not before the Last-Modified time is answered with
+ * {@value HttpServletResponse#SC_NOT_MODIFIED}.
+ * <li>{@code /cache/{seconds}} sets {@code Cache-Control: public, max-age={seconds}}.
+ * </ul>
+ *
+ * <p>
+ * A {@value HttpServletResponse#SC_NOT_MODIFIED} response carries the validators but no body; the
+ * echo output isn't even captured for it.
+ */
+@WebServlet(name = "ConditionalServlet", urlPatterns = {"/etag/*", "/cache", "/cache/*"})
+public class ConditionalServlet extends HttpServlet {
+
+  // Whole seconds, as Last-Modified and If-Modified-Since have no finer resolution.
+  private final long lastModified = System.currentTimeMillis() / 1000 * 1000;
+
+  private final String cacheEtag = "\"" + Long.toHexString(lastModified) + "\"";
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response)
+      throws ServletException, IOException {
+    var pathInfo = request.getPathInfo();
+    if (request.getServletPath().equals("/etag")) {
+      etag(request, response, pathInfo);
+    } else if (pathInfo == null || pathInfo.equals("/")) {
+      cache(request, response);
+    } else {
+      cacheFor(request, response, pathInfo);
+    }
+  }
+
+  private void etag(HttpServletRequest request, HttpServletResponse response, String pathInfo)
+      throws IOException {
+    if (pathInfo == null || pathInfo.length() < 2 || pathInfo.indexOf('"') >= 0) {
+      response.sendError(SC_BAD_REQUEST, "Invalid entity tag");
+      return;
+    }
+    var etag = "\"" + pathInfo.substring(1) + "\"";
+    var ifMatch = request.getHeader("If-Match");
+    if (ifMatch != null && !matches(ifMatch, etag, false)) {
+      response.sendError(SC_PRECONDITION_FAILED);
+      return;
+    }
+    response.setHeader("ETag", etag);
+    var ifNoneMatch = request.getHeader("If-None-Match");
+    if (ifNoneMatch != null && matches(ifNoneMatch, etag, true)) {
+      response.setStatus(SC_NOT_MODIFIED);
+      return;
+    }
+    echo(request);
+  }
+
+  private void cache(HttpServletRequest request, HttpServletResponse response) {
+    response.setHeader("ETag", cacheEtag);
+    response.setDateHeader("Last-Modified", lastModified);
+    if (notModified(request, cacheEtag, lastModified)) {
+      response.setStatus(SC_NOT_MODIFIED);
+      return;
+    }
+    echo(request);
+  }
+
+  private void cacheFor(HttpServletRequest request, HttpServletResponse response, String pathInfo)
+      throws IOException {
+    long seconds;
+    try {
+      seconds = Long.parseLong(pathInfo.substring(1));
+    } catch (NumberFormatException e) {
+      seconds = -1;
+    }
+    if (seconds < 0) {
+      response.sendError(SC_BAD_REQUEST, "Invalid max-age");
+      return;
+    }
+    response.setHeader("Cache-Control", "public, max-age=" + seconds);
+    echo(request);
+  }
+
+  private static void echo(HttpServletRequest request) {
+    request.setAttribute(OUTPUT_ECHO_ATTR_NAME,
+        new EchoResponse(RequestSnapshot.capture(request, MAX_PARAMETERS)));
+  }
+
+  /**
+   * Evaluates {@code If-None-Match} and {@code If-Modified-Since} for a GET or HEAD request. When
+   * {@code If-None-Match} is present, {@code If-Modified-Since} is ignored.
+   *
+   * @param request      the request.
+   * @param etag         the quoted entity tag of the resource.
+   * @param lastModified the modification time of the resource in whole seconds, or {@code -1}.
+   * @return {@code true} if the request is to be answered with
+   *         {@value HttpServletResponse#SC_NOT_MODIFIED}.
+   */
+  static boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+    var ifNoneMatch = request.getHeader("If-None-Match");
+    if (ifNoneMatch != null) {
+      return matches(ifNoneMatch, etag, true);
+    }
+    if (lastModified < 0) {
+      return false;
+    }
+    long ifModifiedSince;
+    try {
+      ifModifiedSince = request.getDateHeader("If-Modified-Since");
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+    return ifModifiedSince >= lastModified;
+  }
+
+  /**
+   * Matches an entity tag against the list of an {@code If-Match} or {@code If-None-Match} header.
+   *
+   * @param header the header value, {@code *} or a comma separated list of entity tags.
+   * @param etag   the quoted strong entity tag of the resource.
+   * @param weak   {@code true} for the weak comparison of {@code If-None-Match}, {@code false} for
+   *               the strong comparison of {@code If-Match}, which no weak tag passes.
+   * @return {@code true} if the header matches.
+   */
+  static boolean matches(String header, String etag, boolean weak) {
+    for (var tag : header.split(",")) {
+      tag = tag.trim();
+      if (tag.equals("*")) {
+        return true;
+      }
+      if (tag.startsWith("W/")) {
+        if (!weak) {
+          continue;
+        }
+        tag = tag.substring(2);
+      }
+      if (tag.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -69,12 +69,31 @@ final class Constants {
   /** Name of the output Map attribute containing Json data processed at the end of the request. */
   static final String OUTPUT_MAP_ATTR_NAME = Constants.class.getPackage().getName() + ".OutputMap";
 
+  /**
+   * Name of the output {@link EchoResponse} attribute rendered at the end of the request. Takes
+   * precedence over the output Map.
+   */
+  static final String OUTPUT_ECHO_ATTR_NAME = Constants.class.getPackageName() + ".OutputEcho";
+
   /**
    * Name of the output Document attribute containing Xml data processed at the end of the request.
    */
   static final String OUTPUT_DOCUMENT_ATTR_NAME =
       Constants.class.getPackage().getName() + ".OutputDocument";
 
+  /**
+   * Name of the attribute a servlet sets to force a content coding ({@code gzip} or
+   * {@code deflate}) on its response.
+   */
+  static final String CONTENT_ENCODING_ATTR_NAME =
+      Constants.class.getPackageName() + ".ContentEncoding";
+
+  /** Name of the attribute holding a request body read asynchronously. */
+  static final String REQUEST_BODY_ATTR_NAME = Constants.class.getPackageName() + ".RequestBody";
+
+  /** Name of the attribute holding the error status of a request delayed by fault injection. */
+  static final String FAULT_ATTR_NAME = Constants.class.getPackageName() + ".Fault";
+
   static final String OUTPUT_WRITER_ATTR_NAME = Constants.class.getPackageName() + ".OutputWriter";
 
   static final String LOCKSCOPE_ATTR_NAME = Constants.class.getPackage().getName() + ".Lockscope";
@@ -89,12 +108,130 @@ final class Constants {
 
   static final int MAX_MULTISTATUS = 6;
 
+  /**
+   * Size in bytes of pooled I/O buffers. Response bodies up to this size are sent with an exact
+   * Content-Length, larger ones are streamed.
+   */
+  static final int BUFFER_SIZE = 16 * 1024;
+
+  /** Maximum number of idle buffers kept by the shared buffer pool. */
+  static final int MAX_POOLED_BUFFERS = 256;
+
+  /** Default size in bytes below which complete response bodies are sent uncompressed. */
+  static final int COMPRESSION_THRESHOLD = 1024;
+
+  /** Default Deflater compression level. */
+  static final int COMPRESSION_LEVEL = 6;
+
+  /** Maximum number of idle Deflaters kept per content coding. */
+  static final int MAX_POOLED_DEFLATERS = 32;
+
+  /** Default maximum size in bytes of a request body. */
+  static final long REQUEST_BODY_MAX_SIZE = 64L * 1024 * 1024;
+
+  /** Default size in bytes above which a request body is kept in a temporary file. */
+  static final long REQUEST_BODY_MEMORY_THRESHOLD = 1024 * 1024;
+
+  /** Default time in milliseconds allowed for reading a request body asynchronously. */
+  static final long REQUEST_BODY_TIMEOUT_MILLIS = 10 * 60 * 1000L;
+
+  /** Default maximum number of parameters parsed from a query string or form body. */
+  static final int MAX_PARAMETERS = 10000;
+
+  /** Default maximum size in bytes of a decoded form field name or value. */
+  static final int FORM_MAX_FIELD_SIZE = 1024 * 1024;
+
+  /**
+   * Default maximum size in bytes of a multipart request body. Larger than
+   * {@link #REQUEST_BODY_MAX_SIZE} so that files of gigabytes can be uploaded: such a body is kept
+   * in a temporary file and its large parts are only digested, so it costs disk, not heap.
+   */
+  static final long MULTIPART_MAX_SIZE = 4L * 1024 * 1024 * 1024;
+
+  /** Default size in bytes above which a multipart part is echoed by its size and digest. */
+  static final int MULTIPART_PART_THRESHOLD = 64 * 1024;
+
+  /** Maximum number of parsed client certificate summaries kept. */
+  static final int CERTIFICATE_CACHE_SIZE = 256;
+
+  /** Maximum number of parsed Content-Type values kept. */
+  static final int MEDIA_TYPE_CACHE_SIZE = 64;
+
+  /** Number of threads of the shared scheduler that resumes delayed requests. */
+  static final int SCHEDULER_THREADS = 2;
+
+  /** Default maximum delay in milliseconds of a delayed response. */
+  static final long DELAY_MAX_MILLIS = 10 * 1000L;
+
+  /** Default maximum number of bytes of a drip response. */
+  static final long DRIP_MAX_BYTES = 10 * 1024 * 1024L;
+
+  /** Shortest interval in milliseconds between the writes of a drip response. */
+  static final long DRIP_MIN_INTERVAL_MILLIS = 10L;
+
+  /** Size in bytes of the block of pseudo-random bytes responses are sliced from. */
+  static final int RANDOM_BLOCK_SIZE = 1024 * 1024;
+
+  /** Default maximum size in bytes of a random bytes response. */
+  static final long BYTES_MAX = 1024 * 1024 * 1024L;
+
+  /** Default maximum size in bytes of a range endpoint response, as httpbin's. */
+  static final long RANGE_MAX = 100 * 1024L;
+
+  /** Default size in bytes of the chunks of a streamed random bytes response. */
+  static final int STREAM_BYTES_CHUNK_SIZE = 10 * 1024;
+
+  /** Maximum number of ranges served from one Range header; more are answered in full. */
+  static final int MAX_RANGES = 16;
+
+  /** Default maximum number of lines of a streamed echo response. */
+  static final long STREAM_MAX_LINES = 1000 * 1000L;
+
+  /** Content-Type of newline delimited json. */
+  static final String CT_APPLICATION_NDJSON = "application/x-ndjson";
+
+  /** Maximum number of parsed fault injection specifications kept. */
+  static final int FAULT_CACHE_SIZE = 64;
+
+  /** Size in bytes of the buffers the sink reads request bodies with. */
+  static final int SINK_BUFFER_SIZE = 256 * 1024;
+
+  /** Maximum number of idle sink buffers kept. */
+  static final int MAX_POOLED_SINK_BUFFERS = 16;
+
+  /** Default time in milliseconds allowed for the sink to read a request body. */
+  static final long SINK_TIMEOUT_MILLIS = 10 * 60 * 1000L;
+
+  /** Size in bytes of the memory-mapped file virtual WebDAV files are sliced from. */
+  static final int VIRTUAL_FILE_BACKING_SIZE = 16 * 1024 * 1024;
+
+  /** Smallest size in bytes of a virtual WebDAV file. */
+  static final long VIRTUAL_FILE_MIN_SIZE = 1024L;
+
+  /** Largest size in bytes of a virtual WebDAV file. */
+  static final long VIRTUAL_FILE_MAX_SIZE = 8 * 1024 * 1024L;
+
+  /** Default maximum nesting depth of parsed json. */
+  static final int JSON_MAX_DEPTH = 64;
+
+  /** Default maximum size in bytes of parsed json. */
+  static final long JSON_MAX_SIZE = 10L * 1024 * 1024;
+
+  /** Default maximum length in chars of a parsed json string. */
+  static final int JSON_MAX_STRING_LENGTH = 1024 * 1024;
+
   /** Content-Type form url encoded. */
   static final String CT_FORM_URLENCODED = "application/x-www-form-urlencoded";
 
+  /** Content-Type multipart/form-data, without its boundary parameter. */
+  static final String CT_MULTIPART_FORM_DATA = "multipart/form-data";
+
   /** Content-Type application/json. */
   static final String CT_APPLICATION_JSON = "application/json";
 
+  /** Content-Type application/json with the charset used for rendered output. */
+  static final String CT_APPLICATION_JSON_UTF_8 = CT_APPLICATION_JSON + ";charset=UTF-8";
+
   /** Content-Type text/xml. */
   static final String CT_TEXT_XML = "text/xml";
 
@@ -0,0 +1,67 @@
+package com.github.argherna.ajpbin;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * A bounded pool of {@link Deflater} instances sharing a compression level and format.
+ *
+ * <p>
+ * A Deflater holds native memory that is only freed by {@link Deflater#end()}, so reusing them is
+ * much cheaper than creating one per response. Released Deflaters are reset; if the pool is full
+ * they are ended instead.
+ */
+final class DeflaterPool {
+
+  private final int level;
+
+  private final boolean nowrap;
+
+  private final ArrayBlockingQueue<Deflater> deflaters;
+
+  /**
+   * Constructs a new DeflaterPool.
+   *
+   * @param level     compression level, 0-9 or {@link Deflater#DEFAULT_COMPRESSION}.
+   * @param nowrap    {@code true} for raw deflate data (as used by gzip), {@code false} for the
+   *                  zlib format (as used by the {@code deflate} content coding).
+   * @param maxPooled maximum number of idle Deflaters kept.
+   */
+  DeflaterPool(int level, boolean nowrap, int maxPooled) {
+    this.level = level;
+    this.nowrap = nowrap;
+    this.deflaters = new ArrayBlockingQueue<>(maxPooled);
+  }
+
+  /**
+   * Returns a Deflater from the pool, creating a new one if none are available.
+   *
+   * @return a Deflater ready for new input.
+   */
+  Deflater acquire() {
+    var deflater = deflaters.poll();
+    return deflater != null ? deflater : new Deflater(level, nowrap);
+  }
+
+  /**
+   * Resets the given Deflater and returns it to the pool.
+   *
+   * @param deflater Deflater obtained from {@link #acquire()}.
+   */
+  void release(Deflater deflater) {
+    deflater.reset();
+    if (!deflaters.offer(deflater)) {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Ends all idle Deflaters in the pool.
+   */
+  void clear() {
+    Deflater deflater;
+    while ((deflater = deflaters.poll()) != null) {
+      deflater.end();
+    }
+  }
+}
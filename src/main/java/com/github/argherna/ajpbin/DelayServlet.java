@@ -0,0 +1,161 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.DELAY_MAX_MILLIS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+import static javax.servlet.http.HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.logging.Logger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Returns the echo output after a delay given by the path, {@code /delay/{seconds}} or
+ * {@code /delay-ms/{milliseconds}}.
+ *
+ * <p>
+ * Seconds may have a fraction. The delay is capped by the {@code delay.max} init parameter in
+ * milliseconds, 10 seconds by default. The request doesn't hold a container thread while it waits:
+ * it is suspended with an AsyncContext and dispatched again by a task on the {@link Scheduler}. A
+ * delayed request whose filters don't all support asynchronous processing is answered with
+ * {@value HttpServletResponse#SC_INTERNAL_SERVER_ERROR} rather than delayed on a container thread.
+ * That dispatch, and any later one, is handled by {@link AjpMethodsServlet}, so every method it
+ * supports is delayed and echoed the same way, a request body included, and the output is rendered
+ * by the filters as usual.
+ */
+@WebServlet(name = "DelayServlet", urlPatterns = {"/delay/*", "/delay-ms/*"},
+    asyncSupported = true)
+public class DelayServlet extends AjpMethodsServlet {
+
+  private static final Logger LOGGER = Logger.getLogger(DelayServlet.class.getName());
+
+  // Time allowed beyond the delay for the dispatched request to finish.
+  private static final long TIMEOUT_MARGIN_MILLIS = 10 * 1000L;
+
+  private long maxDelayMillis = DELAY_MAX_MILLIS;
+
+  /**
+   * Reads the maximum delay from the {@code delay.max} init parameter, and the limits of
+   * {@link AjpMethodsServlet#init()}.
+   */
+  @Override
+  public void init() throws ServletException {
+    super.init();
+    maxDelayMillis = InitParameters.getLong(getServletConfig(), "delay.max", DELAY_MAX_MILLIS);
+  }
+
+  @Override
+  protected void service(HttpServletRequest request, HttpServletResponse response)
+      throws ServletException, IOException {
+    // Dispatched again when the delay is over, or when the body has been read.
+    if (request.getDispatcherType() == DispatcherType.ASYNC) {
+      super.service(request, response);
+      return;
+    }
+
+    var delayMillis = delayMillis(request.getServletPath(), request.getPathInfo());
+    if (delayMillis < 0) {
+      response.sendError(SC_BAD_REQUEST, "Invalid delay");
+      return;
+    }
+    delayMillis = Math.min(delayMillis, maxDelayMillis);
+
+    if (delayMillis == 0) {
+      super.service(request, response);
+      return;
+    }
+    if (!request.isAsyncSupported()) {
+      // Some filter in the chain can't go asynchronous. Sleeping would hold a container thread
+      // for the whole delay, which is what this servlet is there to avoid.
+      response.sendError(SC_INTERNAL_SERVER_ERROR,
+          "Delays need asynchronous processing, which a filter of this request doesn't support");
+      return;
+    }
+
+    var asyncContext = request.startAsync();
+    asyncContext.setTimeout(delayMillis + TIMEOUT_MARGIN_MILLIS);
+    // Listen before scheduling; a short delay may be over before this method returns.
+    var listener = new CancellingListener();
+    asyncContext.addListener(listener);
+    listener.resume =
+        Scheduler.get().schedule(() -> dispatch(asyncContext), delayMillis, MILLISECONDS);
+  }
+
+  /**
+   * Returns the delay in milliseconds given by the path of a request.
+   *
+   * @param servletPath the servlet path, {@code /delay} for seconds or {@code /delay-ms} for
+   *                    milliseconds.
+   * @param pathInfo    the path info, a slash and the delay.
+   * @return the delay in milliseconds, or {@code -1} if it is missing or not a non-negative number.
+   */
+  static long delayMillis(String servletPath, String pathInfo) {
+    if (pathInfo == null || pathInfo.length() < 2 || pathInfo.indexOf('/', 1) >= 0) {
+      return -1;
+    }
+    var value = pathInfo.substring(1);
+    try {
+      if (servletPath.equals("/delay-ms")) {
+        var millis = Long.parseLong(value);
+        return millis < 0 ? -1 : millis;
+      }
+      var seconds = Double.parseDouble(value);
+      return seconds >= 0 && seconds <= Long.MAX_VALUE / 1000 ? Math.round(seconds * 1000) : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static void dispatch(AsyncContext asyncContext) {
+    try {
+      asyncContext.dispatch();
+    } catch (IllegalStateException e) {
+      // The request has timed out or failed in the meantime.
+      LOGGER.fine(() -> String.format("Not resuming delayed request: %s", e.getMessage()));
+    }
+  }
+
+  /**
+   * Cancels the pending dispatch of a request that ends some other way, so the scheduler doesn't
+   * keep it.
+   */
+  private static final class CancellingListener implements AsyncListener {
+
+    private volatile ScheduledFuture<?> resume;
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+      cancel();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+      cancel();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+      cancel();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+
+    private void cancel() {
+      var pending = resume;
+      if (pending != null) {
+        pending.cancel(false);
+      }
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.DELAY_MAX_MILLIS;
+import static com.github.argherna.ajpbin.Constants.DRIP_MAX_BYTES;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Drips data over a duration after a delay, the way httpbin's {@code /drip} does.
+ *
+ * <p>
+ * The query parameters are {@code numbytes} (default 10), {@code duration} and {@code delay} in
+ * seconds (defaults 2 and 0) and {@code code}, the response status (default 200). The response is
+ * {@code numbytes} asterisks with a Content-Length. The number of bytes is capped by the
+ * {@code drip.maxBytes} init parameter and the delay and duration each by {@code delay.max} in
+ * milliseconds. The bytes are written by a {@link DripWriteListener}, so a drip holds no container
+ * thread while it lasts.
+ */
+@WebServlet(name = "DripServlet", urlPatterns = {"/drip"}, asyncSupported = true)
+public class DripServlet extends HttpServlet {
+
+  // Time allowed beyond the delay and duration for the response to be written.
+  private static final long TIMEOUT_MARGIN_MILLIS = 10 * 1000L;
+
+  private long maxBytes = DRIP_MAX_BYTES;
+
+  private long maxDelayMillis = DELAY_MAX_MILLIS;
+
+  /**
+   * Reads the maximum number of bytes from the {@code drip.maxBytes} init parameter and the maximum
+   * delay and duration from {@code delay.max}.
+   */
+  @Override
+  public void init() throws ServletException {
+    var config = getServletConfig();
+    maxBytes = InitParameters.getLong(config, "drip.maxBytes", DRIP_MAX_BYTES);
+    maxDelayMillis = InitParameters.getLong(config, "delay.max", DELAY_MAX_MILLIS);
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response)
+      throws ServletException, IOException {
+    long numBytes;
+    long durationMillis;
+    long delayMillis;
+    int code;
+    try {
+      numBytes = Long.parseLong(parameter(request, "numbytes", "10"));
+      durationMillis = millis(parameter(request, "duration", "2"));
+      delayMillis = millis(parameter(request, "delay", "0"));
+      code = Integer.parseInt(parameter(request, "code", "200"));
+    } catch (NumberFormatException e) {
+      response.sendError(SC_BAD_REQUEST, "Invalid drip parameter: " + e.getMessage());
+      return;
+    }
+    if (numBytes <= 0 || durationMillis < 0 || delayMillis < 0 || code < 100 || code > 599) {
+      response.sendError(SC_BAD_REQUEST, "Invalid drip parameter");
+      return;
+    }
+    numBytes = Math.min(numBytes, maxBytes);
+    durationMillis = Math.min(durationMillis, maxDelayMillis);
+    delayMillis = Math.min(delayMillis, maxDelayMillis);
+
+    response.setStatus(code);
+    response.setContentType("application/octet-stream");
+    response.setContentLengthLong(numBytes);
+
+    var asyncContext = request.startAsync();
+    asyncContext.setTimeout(delayMillis + durationMillis + TIMEOUT_MARGIN_MILLIS);
+    DripWriteListener.start(asyncContext, numBytes, delayMillis, durationMillis);
+  }
+
+  private static String parameter(HttpServletRequest request, String name, String defaultValue) {
+    var value = request.getParameter(name);
+    return value == null || value.isEmpty() ? defaultValue : value;
+  }
+
+  // Seconds, possibly with a fraction, to milliseconds; negative if not a non-negative number.
+  private static long millis(String seconds) {
+    var value = Double.parseDouble(seconds);
+    return value >= 0 && value <= Long.MAX_VALUE / 1000 ? Math.round(value * 1000) : -1;
+  }
+}
@@ -0,0 +1,209 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.DRIP_MIN_INTERVAL_MILLIS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.logging.Level.WARNING;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.logging.Logger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+/**
+ * Writes a drip response without blocking a container thread.
+ *
+ * <p>
+ * The bytes are spread evenly over the duration in a number of writes no closer together than
+ * {@value Constants#DRIP_MIN_INTERVAL_MILLIS} ms. Each write is made by a task on the
+ * {@link Scheduler}, after the initial delay. When the output stream isn't ready, no further
+ * write is scheduled until the container reports the stream is writable again, so a slow client
+ * pauses the drip instead of filling buffers. The AsyncContext is completed after the last byte.
+ *
+ * <p>
+ * The listener is also registered as the request's {@link AsyncListener}. If the request times
+ * out, fails or is completed some other way, the drip stops and its pending write is cancelled,
+ * so nothing is written to a finished response.
+ */
+final class DripWriteListener implements WriteListener, AsyncListener {
+
+  private static final Logger LOGGER = Logger.getLogger(DripWriteListener.class.getName());
+
+  private static final byte[] DRIP = new byte[1024];
+
+  static {
+    Arrays.fill(DRIP, (byte) '*');
+  }
+
+  private final AsyncContext asyncContext;
+
+  private final ServletOutputStream out;
+
+  private final long numBytes;
+
+  private final long delayMillis;
+
+  private final long durationMillis;
+
+  private final long writes;
+
+  private long startNanos;
+
+  // Index of the write being made; its bytes are due once it is scheduled.
+  private long write = -1;
+
+  private long written;
+
+  private boolean done;
+
+  private ScheduledFuture<?> next;
+
+  /**
+   * Starts a drip of the given asynchronous request.
+   *
+   * @param asyncContext   the started AsyncContext of the request.
+   * @param numBytes       the number of bytes to write, at least 1.
+   * @param delayMillis    time to wait before the first byte.
+   * @param durationMillis time over which the bytes are spread.
+   * @throws IOException if the response's OutputStream can't be obtained.
+   */
+  static void start(AsyncContext asyncContext, long numBytes, long delayMillis,
+      long durationMillis) throws IOException {
+    var out = asyncContext.getResponse().getOutputStream();
+    var listener = new DripWriteListener(asyncContext, out, numBytes, delayMillis, durationMillis);
+    asyncContext.addListener(listener);
+    out.setWriteListener(listener);
+  }
+
+  private DripWriteListener(AsyncContext asyncContext, ServletOutputStream out, long numBytes,
+      long delayMillis, long durationMillis) {
+    this.asyncContext = asyncContext;
+    this.out = out;
+    this.numBytes = numBytes;
+    this.delayMillis = delayMillis;
+    this.durationMillis = durationMillis;
+    this.writes = writes(numBytes, durationMillis);
+  }
+
+  /**
+   * Returns the number of writes a drip is made in.
+   *
+   * @param numBytes       the number of bytes, at least 1.
+   * @param durationMillis the duration.
+   * @return the number of writes, at least 1 and at most {@code numBytes}.
+   */
+  static long writes(long numBytes, long durationMillis) {
+    return Math.max(1, Math.min(numBytes, durationMillis / DRIP_MIN_INTERVAL_MILLIS));
+  }
+
+  @Override
+  public synchronized void onWritePossible() throws IOException {
+    if (write < 0) {
+      // Called once the servlet has returned; the drip starts from here.
+      startNanos = System.nanoTime();
+      scheduleNext();
+    } else {
+      drip();
+    }
+  }
+
+  @Override
+  public synchronized void onError(Throwable t) {
+    LOGGER.log(WARNING, "Failed to write drip response", t);
+    finish();
+  }
+
+  @Override
+  public synchronized void onTimeout(AsyncEvent event) {
+    LOGGER.fine("Drip timed out");
+    stop();
+  }
+
+  @Override
+  public synchronized void onError(AsyncEvent event) {
+    LOGGER.log(WARNING, "Drip response failed", event.getThrowable());
+    stop();
+  }
+
+  @Override
+  public synchronized void onComplete(AsyncEvent event) {
+    stop();
+  }
+
+  @Override
+  public void onStartAsync(AsyncEvent event) {
+  }
+
+  private synchronized void tick() {
+    try {
+      drip();
+    } catch (IOException | IllegalStateException e) {
+      LOGGER.fine(() -> String.format("Drip stopped: %s", e.getMessage()));
+      finish();
+    }
+  }
+
+  // Writes the bytes due so far for as long as the stream takes them.
+  private void drip() throws IOException {
+    if (done) {
+      return;
+    }
+    // Write k makes the total numBytes * (k + 1) / writes.
+    var due = (long) (numBytes * ((write + 1) / (double) writes));
+    while (written < due) {
+      if (!out.isReady()) {
+        return;
+      }
+      var length = (int) Math.min(due - written, DRIP.length);
+      out.write(DRIP, 0, length);
+      written += length;
+    }
+    if (!out.isReady()) {
+      return;
+    }
+    out.flush();
+    if (!out.isReady()) {
+      return;
+    }
+    if (written == numBytes) {
+      finish();
+    } else {
+      scheduleNext();
+    }
+  }
+
+  private void scheduleNext() {
+    write++;
+    var dueNanos = startNanos
+        + MILLISECONDS.toNanos(delayMillis + durationMillis * write / writes);
+    try {
+      next = Scheduler.get().schedule(this::tick, dueNanos - System.nanoTime(), NANOSECONDS);
+    } catch (RejectedExecutionException e) {
+      LOGGER.fine("Scheduler is shut down, ending drip");
+      finish();
+    }
+  }
+
+  private void finish() {
+    if (!done) {
+      done = true;
+      asyncContext.complete();
+    }
+  }
+
+  // Ends the drip without completing; the container is ending the request.
+  private void stop() {
+    done = true;
+    if (next != null) {
+      next.cancel(false);
+      next = null;
+    }
+  }
+}
@@ -0,0 +1,252 @@
+package com.github.argherna.ajpbin;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * The output of the echo endpoints: what the client sent, as seen by the servlet.
+ *
+ * <p>
+ * The fields are always rendered in the same (alphabetical) order by {@link #renderJson}, which
+ * writes them directly instead of going through a Map; headers and attributes are written straight
+ * from the {@link RequestSnapshot}. {@code data}, {@code files}, {@code form} and {@code json} are
+ * only present for requests with a body. Use {@link #asMap()} where a Map is needed, for example
+ * for the binary formats.
+ */
+final class EchoResponse {
+
+  private final RequestSnapshot request;
+
+  private final String data;
+
+  private final Map<String, Object> files;
+
+  private final Map<String, Object> form;
+
+  private final Object json;
+
+  /**
+   * Constructs an EchoResponse for a request without a body.
+   *
+   * @param request the captured request.
+   */
+  EchoResponse(RequestSnapshot request) {
+    this(request, null, null, null, null);
+  }
+
+  /**
+   * Constructs an EchoResponse for a request with a body.
+   *
+   * @param request the captured request.
+   * @param form    the form fields of the body, or {@code null}.
+   * @param files   the files of a multipart body, or {@code null}.
+   * @param json    the parsed json body, or {@code null}.
+   * @param data    the body as text, or {@code null}.
+   */
+  EchoResponse(RequestSnapshot request, Map<String, Object> form, Map<String, Object> files,
+      Object json, String data) {
+    this.request = requireNonNull(request);
+    this.form = form;
+    this.files = files;
+    this.json = json;
+    this.data = data;
+  }
+
+  Map<String, Object> getArgs() {
+    return request.args();
+  }
+
+  Map<String, Object> getAttributes() {
+    return request.attributes();
+  }
+
+  String getData() {
+    return data;
+  }
+
+  Map<String, Object> getFiles() {
+    return files;
+  }
+
+  Map<String, Object> getForm() {
+    return form;
+  }
+
+  Map<String, Object> getHeaders() {
+    return request.headers();
+  }
+
+  Object getJson() {
+    return json;
+  }
+
+  String getUrl() {
+    return request.url();
+  }
+
+  /**
+   * Renders this response as a json object to the given Appendable.
+   *
+   * <p>
+   * The output is the same as rendering {@link #asMap()} with {@link Json#renderObject(Map,
+   * Appendable, boolean)}. The fields are already in sorted order, so {@code sortKeys} only affects
+   * the nested objects.
+   *
+   * @param buffer   the Appendable to render to.
+   * @param sortKeys {@code true} to render the keys of nested objects in natural String order.
+   * @throws IOException if an IOException occurs during render.
+   */
+  void renderJson(Appendable buffer, boolean sortKeys) throws IOException {
+    buffer.append("{\"args\":");
+    renderFields(request.args(), buffer, sortKeys);
+    buffer.append(",\"attributes\":");
+    renderAttributes(buffer, sortKeys);
+    if (Json.hasValue(data)) {
+      buffer.append(",\"data\":");
+      renderString(data, buffer);
+    }
+    if (files != null) {
+      buffer.append(",\"files\":");
+      Json.renderObject(files, buffer, sortKeys);
+    }
+    if (form != null) {
+      buffer.append(",\"form\":");
+      renderFields(form, buffer, sortKeys);
+    }
+    buffer.append(",\"headers\":");
+    renderHeaders(buffer, sortKeys);
+    if (json != null) {
+      buffer.append(",\"json\":");
+      Json.renderValue(json, buffer, sortKeys);
+    }
+    buffer.append(",\"url\":");
+    renderString(request.url(), buffer);
+    buffer.append('}');
+  }
+
+  /**
+   * Returns the fields of this response as an unmodifiable Map in rendering order. Absent fields
+   * are left out.
+   *
+   * @return Map of field names to values.
+   */
+  Map<String, Object> asMap() {
+    var map = new LinkedHashMap<String, Object>();
+    map.put("args", request.args());
+    map.put("attributes", request.attributes());
+    if (data != null) {
+      map.put("data", data);
+    }
+    if (files != null) {
+      map.put("files", files);
+    }
+    if (form != null) {
+      map.put("form", form);
+    }
+    map.put("headers", request.headers());
+    if (json != null) {
+      map.put("json", json);
+    }
+    map.put("url", request.url());
+    return Collections.unmodifiableMap(map);
+  }
+
+  // Renders the headers straight from the snapshot; the values of a repeated header are adjacent.
+  private void renderHeaders(Appendable buffer, boolean sortKeys) throws IOException {
+    if (sortKeys) {
+      Json.renderObject(request.headers(), buffer, true);
+      return;
+    }
+    var writer = new Json.HeadersWriter(buffer);
+    for (int i = 0, count = request.headerCount(); i < count; i++) {
+      writer.header(request.headerName(i), request.headerValue(i));
+    }
+    writer.close();
+  }
+
+  private void renderAttributes(Appendable buffer, boolean sortKeys) throws IOException {
+    if (sortKeys) {
+      Json.renderObject(request.attributes(), buffer, true);
+      return;
+    }
+    buffer.append('{');
+    var first = true;
+    for (int i = 0, count = request.attributeCount(); i < count; i++) {
+      var value = request.attributeValue(i);
+      if (Json.hasValue(value)) {
+        first = renderName(request.attributeName(i), buffer, first);
+        Json.renderValue(value, buffer, false);
+      }
+    }
+    buffer.append('}');
+  }
+
+  private static boolean renderName(String name, Appendable buffer, boolean first)
+      throws IOException {
+    if (!first) {
+      buffer.append(',');
+    }
+    renderString(name, buffer);
+    buffer.append(':');
+    return false;
+  }
+
+  // Renders arguments or form fields, whose values are Strings or Lists of Strings.
+  private static void renderFields(Map<String, Object> fields, Appendable buffer,
+      boolean sortKeys) throws IOException {
+    if (sortKeys) {
+      Json.renderObject(fields, buffer, true);
+      return;
+    }
+    buffer.append('{');
+    var first = true;
+    for (var entry : fields.entrySet()) {
+      var value = entry.getValue();
+      if (!Json.hasValue(value)) {
+        continue;
+      }
+      first = renderName(entry.getKey(), buffer, first);
+      if (value instanceof String) {
+        renderString((String) value, buffer);
+      } else if (value instanceof List && value instanceof RandomAccess) {
+        renderStrings((List<?>) value, buffer);
+      } else {
+        Json.renderValue(value, buffer, false);
+      }
+    }
+    buffer.append('}');
+  }
+
+  private static void renderStrings(List<?> values, Appendable buffer) throws IOException {
+    buffer.append('[');
+    var first = true;
+    for (int i = 0, size = values.size(); i < size; i++) {
+      var value = values.get(i);
+      if (!Json.hasValue(value)) {
+        continue;
+      }
+      if (!first) {
+        buffer.append(',');
+      }
+      first = false;
+      if (value instanceof String) {
+        renderString((String) value, buffer);
+      } else {
+        Json.renderValue(value, buffer, false);
+      }
+    }
+    buffer.append(']');
+  }
+
+  private static void renderString(String value, Appendable buffer) throws IOException {
+    buffer.append('"');
+    Json.escape(value, buffer);
+    buffer.append('"');
+  }
+}
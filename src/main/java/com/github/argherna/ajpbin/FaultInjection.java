@@ -0,0 +1,215 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.FAULT_CACHE_SIZE;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A parsed fault injection specification: a latency distribution, an error rate and the statuses
+ * to fail with.
+ *
+ * <p>
+ * A specification is a list of {@code name=value} settings separated by semicolons, for example
+ * {@code latency=pareto:20,1.5; error_rate=0.01; status=502:1,503:3}. The settings are:
+ *
+ * <dl>
+ * <dt>{@code latency}
+ * <dd>The distribution of the delay in milliseconds: {@code fixed:ms}, {@code uniform:min,max},
+ * {@code normal:mean,sd} (never negative) or {@code pareto:scale,shape}, the long tailed
+ * distribution whose smallest value is {@code scale}. No delay if not set.
+ * <dt>{@code error_rate}
+ * <dd>The probability, from 0 to 1, of failing the request. 0 if not set.
+ * <dt>{@code status}
+ * <dd>The statuses to fail with, each with an optional integer weight after a colon, default 1.
+ * 500 if not set.
+ * </dl>
+ *
+ * <p>
+ * Clients send few distinct specifications, so parsed ones are kept in a bounded cache keyed by
+ * the specification. Instances are immutable.
+ */
+final class FaultInjection {
+
+  /**
+   * The kinds of latency distribution.
+   */
+  enum Distribution {
+    FIXED(1), UNIFORM(2), NORMAL(2), PARETO(2);
+
+    private final int parameterCount;
+
+    Distribution(int parameterCount) {
+      this.parameterCount = parameterCount;
+    }
+  }
+
+  private static final BoundedCache<String, FaultInjection> CACHE =
+      new BoundedCache<>(FAULT_CACHE_SIZE);
+
+  private static final int[] DEFAULT_STATUSES = {500};
+
+  private static final int[] DEFAULT_WEIGHTS = {1};
+
+  private final Distribution distribution;
+
+  private final double a;
+
+  private final double b;
+
+  private final double errorRate;
+
+  private final int[] statuses;
+
+  // Running totals of the weights of the statuses.
+  private final int[] cumulativeWeights;
+
+  private FaultInjection(Distribution distribution, double a, double b, double errorRate,
+      int[] statuses, int[] cumulativeWeights) {
+    this.distribution = distribution;
+    this.a = a;
+    this.b = b;
+    this.errorRate = errorRate;
+    this.statuses = statuses;
+    this.cumulativeWeights = cumulativeWeights;
+  }
+
+  /**
+   * Returns the parsed specification.
+   *
+   * @param spec the specification.
+   * @return the fault injection it specifies.
+   * @throws IllegalArgumentException if the specification is malformed.
+   */
+  static FaultInjection parse(String spec) {
+    return CACHE.get(spec, FaultInjection::parseUncached);
+  }
+
+  /**
+   * @return {@code true} if the specification has a latency distribution.
+   */
+  boolean hasLatency() {
+    return distribution != null;
+  }
+
+  /**
+   * Draws a delay from the latency distribution.
+   *
+   * @param random   the source of randomness.
+   * @param maxDelay the largest delay returned, in milliseconds.
+   * @return the delay in milliseconds, {@code 0} if there is no latency distribution.
+   */
+  long sampleDelayMillis(Random random, long maxDelay) {
+    if (distribution == null) {
+      return 0;
+    }
+    double delay;
+    switch (distribution) {
+      case UNIFORM:
+        delay = a + random.nextDouble() * (b - a);
+        break;
+      case NORMAL:
+        delay = a + random.nextGaussian() * b;
+        break;
+      case PARETO:
+        delay = a / Math.pow(1 - random.nextDouble(), 1 / b);
+        break;
+      default:
+        delay = a;
+        break;
+    }
+    return Math.min(Math.max(0, Math.round(delay)), maxDelay);
+  }
+
+  /**
+   * Decides whether to fail the request and with what status.
+   *
+   * @param random the source of randomness.
+   * @return the status to fail with, or {@code 0} to not fail.
+   */
+  int sampleStatus(Random random) {
+    if (errorRate <= 0 || random.nextDouble() >= errorRate) {
+      return 0;
+    }
+    var pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    var index = Arrays.binarySearch(cumulativeWeights, pick + 1);
+    return statuses[index >= 0 ? index : -index - 1];
+  }
+
+  private static FaultInjection parseUncached(String spec) {
+    Distribution distribution = null;
+    var parameters = new double[2];
+    var errorRate = 0d;
+    var statuses = DEFAULT_STATUSES;
+    var cumulativeWeights = DEFAULT_WEIGHTS;
+    try {
+      for (var setting : spec.split(";")) {
+        setting = setting.trim();
+        if (setting.isEmpty()) {
+          continue;
+        }
+        var equals = setting.indexOf('=');
+        if (equals < 0) {
+          throw new IllegalArgumentException("Fault setting without a value: " + setting);
+        }
+        var name = setting.substring(0, equals).trim();
+        var value = setting.substring(equals + 1).trim();
+        switch (name) {
+          case "latency":
+            var colon = value.indexOf(':');
+            distribution = Distribution.valueOf(
+                (colon < 0 ? value : value.substring(0, colon)).trim().toUpperCase());
+            var values = colon < 0 ? new String[0] : value.substring(colon + 1).split(",");
+            if (values.length != distribution.parameterCount) {
+              throw new IllegalArgumentException(String.format(
+                  "Latency %s takes %d parameters", value, distribution.parameterCount));
+            }
+            for (int i = 0; i < values.length; i++) {
+              parameters[i] = nonNegative(Double.parseDouble(values[i].trim()), value);
+            }
+            if (distribution == Distribution.UNIFORM && parameters[1] < parameters[0]
+                || distribution == Distribution.PARETO && parameters[1] == 0) {
+              throw new IllegalArgumentException("Invalid latency: " + value);
+            }
+            break;
+          case "error_rate":
+            errorRate = Double.parseDouble(value);
+            if (!(errorRate >= 0 && errorRate <= 1)) {
+              throw new IllegalArgumentException("Invalid error rate: " + value);
+            }
+            break;
+          case "status":
+            var entries = value.split(",");
+            statuses = new int[entries.length];
+            cumulativeWeights = new int[entries.length];
+            var total = 0;
+            for (int i = 0; i < entries.length; i++) {
+              var entry = entries[i].trim();
+              var weightAt = entry.indexOf(':');
+              statuses[i] = Integer.parseInt(weightAt < 0 ? entry : entry.substring(0, weightAt));
+              var weight = weightAt < 0 ? 1 : Integer.parseInt(entry.substring(weightAt + 1));
+              if (statuses[i] < 400 || statuses[i] > 599 || weight < 1) {
+                throw new IllegalArgumentException("Invalid fault status: " + entry);
+              }
+              total = Math.addExact(total, weight);
+              cumulativeWeights[i] = total;
+            }
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown fault setting: " + name);
+        }
+      }
+    } catch (ArithmeticException e) {
+      throw new IllegalArgumentException("Fault status weights are too large", e);
+    }
+    return new FaultInjection(distribution, parameters[0], parameters[1], errorRate, statuses,
+        cumulativeWeights);
+  }
+
+  private static double nonNegative(double value, String setting) {
+    if (!(value >= 0) || Double.isInfinite(value)) {
+      throw new IllegalArgumentException("Invalid latency: " + setting);
+    }
+    return value;
+  }
+}
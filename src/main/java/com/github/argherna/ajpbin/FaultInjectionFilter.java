@@ -0,0 +1,143 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.DELAY_MAX_MILLIS;
+import static com.github.argherna.ajpbin.Constants.FAULT_ATTR_NAME;
+import static com.github.argherna.ajpbin.Constants.STATUS_CODES_DESCRIPTIONS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Injects latency and errors into requests as asked for by the {@code X-Ajpbin-Fault} request
+ * header or, without it, the {@code fault} query parameter. See {@link FaultInjection} for the
+ * specification.
+ *
+ * <p>
+ * A delay is capped by the {@code delay.max} init parameter in milliseconds, 10 seconds by
+ * default. The request doesn't hold a container thread while it is delayed: it is suspended with
+ * an AsyncContext and dispatched again by a task on the {@link Scheduler}, and then either failed
+ * with the drawn status or passed on down the chain. A malformed specification, or one with a
+ * latency for a request whose filters or servlet don't support asynchronous processing, is
+ * answered with {@value HttpServletResponse#SC_BAD_REQUEST}. Only the first dispatch of a request is subject to
+ * injection.
+ */
+public class FaultInjectionFilter extends HttpFilter {
+
+  /** Name of the request header holding a fault injection specification. */
+  static final String FAULT_HEADER = "X-Ajpbin-Fault";
+
+  private static final Logger LOGGER = Logger.getLogger(FaultInjectionFilter.class.getName());
+
+  // Time allowed beyond the delay for the dispatched request to finish.
+  private static final long TIMEOUT_MARGIN_MILLIS = 30 * 1000L;
+
+  private long maxDelayMillis = DELAY_MAX_MILLIS;
+
+  /**
+   * Reads the maximum delay from the {@code delay.max} init parameter.
+   */
+  @Override
+  public void init() throws ServletException {
+    maxDelayMillis = InitParameters.getLong(getFilterConfig(), "delay.max", DELAY_MAX_MILLIS);
+  }
+
+  @Override
+  protected void doFilter(HttpServletRequest request, HttpServletResponse response,
+      FilterChain chain) throws IOException, ServletException {
+    if (request.getDispatcherType() == DispatcherType.ASYNC) {
+      // Dispatched again when the delay is over; later dispatches pass.
+      var status = (Integer) request.getAttribute(FAULT_ATTR_NAME);
+      if (status != null) {
+        request.removeAttribute(FAULT_ATTR_NAME);
+        if (status > 0) {
+          fail(response, status);
+          return;
+        }
+      }
+      chain.doFilter(request, response);
+      return;
+    }
+
+    var spec = request.getHeader(FAULT_HEADER);
+    if (spec == null) {
+      spec = queryParameter(request.getQueryString(), "fault");
+    }
+    if (spec == null || spec.isEmpty()) {
+      chain.doFilter(request, response);
+      return;
+    }
+    FaultInjection fault;
+    try {
+      fault = FaultInjection.parse(spec);
+    } catch (IllegalArgumentException e) {
+      response.sendError(SC_BAD_REQUEST, e.getMessage());
+      return;
+    }
+
+    if (fault.hasLatency() && !request.isAsyncSupported()) {
+      // Sleeping would hold a container thread for the whole delay.
+      response.sendError(SC_BAD_REQUEST,
+          "Latency needs asynchronous processing, which this request doesn't support");
+      return;
+    }
+
+    var random = ThreadLocalRandom.current();
+    var delayMillis = fault.sampleDelayMillis(random, maxDelayMillis);
+    var status = fault.sampleStatus(random);
+    if (delayMillis > 0) {
+      request.setAttribute(FAULT_ATTR_NAME, status);
+      var asyncContext = request.startAsync();
+      asyncContext.setTimeout(delayMillis + TIMEOUT_MARGIN_MILLIS);
+      try {
+        Scheduler.get().schedule(() -> dispatch(asyncContext), delayMillis, MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        // Shutting down; don't leave the request waiting.
+        asyncContext.dispatch();
+      }
+      return;
+    }
+    if (status > 0) {
+      fail(response, status);
+    } else {
+      chain.doFilter(request, response);
+    }
+  }
+
+  // Not getParameter, which would read a form body before the servlet reads it without blocking.
+  private static String queryParameter(String query, String name) {
+    if (query == null || query.isEmpty()) {
+      return null;
+    }
+    var value = Requests.parameterStringToMap(query).get(name);
+    if (value instanceof List) {
+      value = ((List<?>) value).get(0);
+    }
+    return (String) value;
+  }
+
+  private static void fail(HttpServletResponse response, int status) throws IOException {
+    response.sendError(status, STATUS_CODES_DESCRIPTIONS.get(status));
+  }
+
+  private static void dispatch(AsyncContext asyncContext) {
+    try {
+      asyncContext.dispatch();
+    } catch (IllegalStateException e) {
+      // The request has timed out or failed in the meantime.
+      LOGGER.fine(() -> String.format("Not resuming delayed request: %s", e.getMessage()));
+    }
+  }
+}
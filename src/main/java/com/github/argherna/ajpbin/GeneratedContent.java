@@ -0,0 +1,30 @@
+package com.github.argherna.ajpbin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A response body computed from a deterministic function of the byte position.
+ *
+ * <p>
+ * Any window of the content can be written without producing what comes before it, so serving a
+ * range near the end of a large body costs the same as one at the start. See {@link Ranges}.
+ */
+interface GeneratedContent {
+
+  /**
+   * @return the length in bytes of the content.
+   */
+  long length();
+
+  /**
+   * Writes a window of the content.
+   *
+   * @param out      the OutputStream to write to.
+   * @param position position of the first byte to write.
+   * @param count    number of bytes to write; {@code position + count} is at most
+   *                 {@link #length()}.
+   * @throws IOException if writing fails.
+   */
+  void write(OutputStream out, long position, long count) throws IOException;
+}
@@ -0,0 +1,30 @@
+package com.github.argherna.ajpbin;
+
+/**
+ * Hexadecimal encoding of bytes.
+ */
+final class Hex {
+
+  private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private Hex() {
+  }
+
+  /**
+   * Encodes the given bytes as lower case hexadecimal digits.
+   *
+   * @param bytes the bytes.
+   * @return the hexadecimal String, two digits per byte.
+   */
+  static String encode(byte[] bytes) {
+    var hex = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      hex[i * 2] = DIGITS[(bytes[i] >> 4) & 0xf];
+      hex[i * 2 + 1] = DIGITS[bytes[i] & 0xf];
+    }
+    return new String(hex);
+  }
+}
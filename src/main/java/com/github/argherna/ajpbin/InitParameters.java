@@ -0,0 +1,129 @@
+package com.github.argherna.ajpbin;
+
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+
+/**
+ * Utilities for reading servlet and filter init parameters.
+ *
+ * <p>
+ * Init parameters are optional; defaults are used when a parameter (or the whole configuration)
+ * is missing. Parameters can be set in {@code web.xml} by declaring a {@code servlet} or
+ * {@code filter} element with the same name as the annotated component.
+ */
+final class InitParameters {
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private InitParameters() {
+  }
+
+  /**
+   * Returns the value of a servlet init parameter as a long.
+   *
+   * @param config       the ServletConfig, may be {@code null}.
+   * @param name         parameter name.
+   * @param defaultValue value returned if the parameter is not set.
+   * @return the parameter value or the default.
+   * @throws ServletException if the parameter is not a number.
+   */
+  static long getLong(ServletConfig config, String name, long defaultValue)
+      throws ServletException {
+    return config == null ? defaultValue
+        : parseLong(name, config.getInitParameter(name), defaultValue);
+  }
+
+  /**
+   * Returns the value of a filter init parameter as a long.
+   *
+   * @param config       the FilterConfig, may be {@code null}.
+   * @param name         parameter name.
+   * @param defaultValue value returned if the parameter is not set.
+   * @return the parameter value or the default.
+   * @throws ServletException if the parameter is not a number.
+   */
+  static long getLong(FilterConfig config, String name, long defaultValue)
+      throws ServletException {
+    return config == null ? defaultValue
+        : parseLong(name, config.getInitParameter(name), defaultValue);
+  }
+
+  /**
+   * Returns the value of a servlet init parameter as an int.
+   *
+   * @param config       the ServletConfig, may be {@code null}.
+   * @param name         parameter name.
+   * @param defaultValue value returned if the parameter is not set.
+   * @return the parameter value or the default.
+   * @throws ServletException if the parameter is not a number or out of range.
+   */
+  static int getInt(ServletConfig config, String name, int defaultValue) throws ServletException {
+    return toInt(name, getLong(config, name, defaultValue));
+  }
+
+  /**
+   * Returns the value of a filter init parameter as an int.
+   *
+   * @param config       the FilterConfig, may be {@code null}.
+   * @param name         parameter name.
+   * @param defaultValue value returned if the parameter is not set.
+   * @return the parameter value or the default.
+   * @throws ServletException if the parameter is not a number or out of range.
+   */
+  static int getInt(FilterConfig config, String name, int defaultValue) throws ServletException {
+    return toInt(name, getLong(config, name, defaultValue));
+  }
+
+  /**
+   * Returns the value of a servlet init parameter as a boolean.
+   *
+   * @param config       the ServletConfig, may be {@code null}.
+   * @param name         parameter name.
+   * @param defaultValue value returned if the parameter is not set.
+   * @return {@code true} if the parameter is set to {@code true} (ignoring case), the default if
+   *         it is not set, {@code false} otherwise.
+   */
+  static boolean getBoolean(ServletConfig config, String name, boolean defaultValue) {
+    return config == null ? defaultValue
+        : parseBoolean(config.getInitParameter(name), defaultValue);
+  }
+
+  /**
+   * Returns the value of a filter init parameter as a boolean.
+   *
+   * @param config       the FilterConfig, may be {@code null}.
+   * @param name         parameter name.
+   * @param defaultValue value returned if the parameter is not set.
+   * @return {@code true} if the parameter is set to {@code true} (ignoring case), the default if
+   *         it is not set, {@code false} otherwise.
+   */
+  static boolean getBoolean(FilterConfig config, String name, boolean defaultValue) {
+    return config == null ? defaultValue
+        : parseBoolean(config.getInitParameter(name), defaultValue);
+  }
+
+  private static boolean parseBoolean(String value, boolean defaultValue) {
+    return value == null || value.isBlank() ? defaultValue : Boolean.parseBoolean(value.trim());
+  }
+
+  private static long parseLong(String name, String value, long defaultValue)
+      throws ServletException {
+    if (value == null || value.isBlank()) {
+      return defaultValue;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      throw new ServletException(String.format("Init parameter %s=%s is not a number", name, value), e);
+    }
+  }
+
+  private static int toInt(String name, long value) throws ServletException {
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw new ServletException(String.format("Init parameter %s=%d is out of range", name, value));
+    }
+    return (int) value;
+  }
+}
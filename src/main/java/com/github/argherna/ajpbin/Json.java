@@ -1,18 +1,17 @@
 package com.github.argherna.ajpbin;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.util.Iterator;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Objects;
-import java.util.function.Predicate;
-import java.util.logging.Level;
+import java.util.RandomAccess;
+import java.util.SortedMap;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;
+import javax.servlet.ServletResponse;
 
 /**
  * Json utility methods.
@@ -21,27 +20,26 @@ final class Json {
 
   private static final Logger LOGGER = Logger.getLogger(Json.class.getName());
 
-  private Json() {
-    // Empty constructor prevents instantiation.
-  }
+  // Escape sequences for ASCII chars, indexed by char. A null entry means the char is appended as
+  // is.
+  private static final String[] ESCAPES = new String[128];
 
-  // Values can be rendered if they are non-null, and if String non-empty (length
-  // > 0).
-  private static final Predicate<? super Object> HAS_VALUE = v -> {
-    var hasValue = Objects.nonNull(v);
-    if (hasValue && v instanceof String) {
-      hasValue = v.toString().length() > 0;
+  static {
+    for (char c = 0; c < 0x20; c++) {
+      ESCAPES[c] = unicodeEscape(c);
     }
-    return hasValue;
-  };
+    ESCAPES['\b'] = "\\b";
+    ESCAPES['\f'] = "\\f";
+    ESCAPES['\n'] = "\\n";
+    ESCAPES['\r'] = "\\r";
+    ESCAPES['\t'] = "\\t";
+    ESCAPES['"'] = "\\\"";
+    ESCAPES['\\'] = "\\\\";
+  }
 
-  private static final Predicate<Entry<String, Object>> ENTRY_HAS_VALUE = e -> {
-    var hasValue = Objects.nonNull(e.getValue());
-    if (hasValue && e.getValue() instanceof String) {
-      hasValue = e.getValue().toString().length() > 0;
-    }
-    return hasValue;
-  };
+  private Json() {
+    // Empty constructor prevents instantiation.
+  }
 
   /**
    * Renders the given Map as a json object and returns it as a String.
@@ -138,57 +136,137 @@ final class Json {
    */
   public static String renderList(Iterable<? extends Object> values) throws IOException {
     var buffer = new StringBuilder();
-    renderList(values, buffer);
+    renderList(values, buffer, false);
     return buffer.toString();
   }
 
-  private static void renderObject(Map<String, Object> data, Appendable buffer) throws IOException {
-    var filteredData = data.entrySet().stream().filter(ENTRY_HAS_VALUE)
-        .collect(Collectors.toMap(k -> k.getKey(), v -> v.getValue()));
-    if (!filteredData.isEmpty()) {
-      buffer.append("{");
-      for (Iterator<String> keys = filteredData.keySet().iterator(); keys.hasNext();) {
-        var key = keys.next();
-        buffer.append("\"").append(key).append("\":");
-        renderValue(filteredData.get(key), buffer);
-        if (keys.hasNext()) {
-          buffer.append(",");
-        }
+  /**
+   * Renders the given Map as a json object to the given Appendable.
+   *
+   * <p>
+   * Use this method with a {@link Utf8Sink} to stream json to a response without building an
+   * intermediate String.
+   *
+   * @param data   a Map as described in {@link #renderObject(Map)}.
+   * @param buffer the Appendable to render to.
+   * @throws IOException if an IOException occurs during render.
+   */
+  static void renderObject(Map<String, Object> data, Appendable buffer) throws IOException {
+    renderObject(data, buffer, false);
+  }
+
+  /**
+   * Renders the given Map as a json object to the given Appendable, optionally with the keys of
+   * every object in sorted order.
+   *
+   * <p>
+   * Entries and list elements without a value (null or an empty String) are skipped while
+   * rendering; no copies of the Maps or Lists are made. With {@code sortKeys} set, the output for
+   * equal Maps is identical byte for byte regardless of the Maps' iteration order; this costs one
+   * key array per object that is not already a naturally ordered SortedMap.
+   *
+   * @param data     a Map as described in {@link #renderObject(Map)}.
+   * @param buffer   the Appendable to render to.
+   * @param sortKeys {@code true} to render keys in natural String order.
+   * @throws IOException if an IOException occurs during render.
+   */
+  static void renderObject(Map<String, ?> data, Appendable buffer, boolean sortKeys)
+      throws IOException {
+    buffer.append('{');
+    var first = true;
+    if (sortKeys && !isNaturallySorted(data)) {
+      var keys = data.keySet().toArray(new String[data.size()]);
+      Arrays.sort(keys);
+      for (var key : keys) {
+        first = renderMember(key, data.get(key), buffer, first, sortKeys);
       }
-      buffer.append("}");
     } else {
-      buffer.append("{}");
+      for (var entry : data.entrySet()) {
+        first = renderMember(entry.getKey(), entry.getValue(), buffer, first, sortKeys);
+      }
     }
+    buffer.append('}');
   }
 
-  private static void renderList(Iterable<? extends Object> data, Appendable buffer)
-      throws IOException {
-    List<? extends Object> filteredData = StreamSupport.stream(data.spliterator(), false)
-        .filter(HAS_VALUE).collect(Collectors.toList());
-    buffer.append("[");
-    if (!filteredData.isEmpty()) {
-      for (Iterator<? extends Object> values = data.iterator(); values.hasNext();) {
-        Object value = values.next();
-        renderValue(value, buffer);
-        if (values.hasNext()) {
-          buffer.append(",");
-        }
+  private static boolean renderMember(String key, Object value, Appendable buffer, boolean first,
+      boolean sortKeys) throws IOException {
+    if (!hasValue(value)) {
+      return first;
+    }
+    if (!first) {
+      buffer.append(',');
+    }
+    buffer.append('"');
+    escape(key, buffer);
+    buffer.append("\":");
+    renderValue(value, buffer, sortKeys);
+    return false;
+  }
+
+  private static void renderList(Iterable<? extends Object> data, Appendable buffer,
+      boolean sortKeys) throws IOException {
+    buffer.append('[');
+    var first = true;
+    if (data instanceof List && data instanceof RandomAccess) {
+      var list = (List<? extends Object>) data;
+      for (int i = 0, size = list.size(); i < size; i++) {
+        first = renderElement(list.get(i), buffer, first, sortKeys);
+      }
+    } else {
+      for (var value : data) {
+        first = renderElement(value, buffer, first, sortKeys);
       }
     }
-    buffer.append("]");
+    buffer.append(']');
   }
 
+  private static boolean renderElement(Object value, Appendable buffer, boolean first,
+      boolean sortKeys) throws IOException {
+    if (!hasValue(value)) {
+      return first;
+    }
+    if (!first) {
+      buffer.append(',');
+    }
+    renderValue(value, buffer, sortKeys);
+    return false;
+  }
+
+  /**
+   * Renders a Map, List or scalar value as json to the given Appendable.
+   *
+   * @param value    the value.
+   * @param buffer   the Appendable to render to.
+   * @param sortKeys {@code true} to render keys in natural String order.
+   * @throws IOException if an IOException occurs during render.
+   */
   @SuppressWarnings("unchecked")
-  private static void renderValue(Object value, Appendable buffer) throws IOException {
+  static void renderValue(Object value, Appendable buffer, boolean sortKeys)
+      throws IOException {
     if (value instanceof List) {
-      renderList((List<Object>) value, buffer);
+      renderList((List<Object>) value, buffer, sortKeys);
     } else if (value instanceof Map) {
-      renderObject((Map<String, Object>) value, buffer);
+      renderObject((Map<String, Object>) value, buffer, sortKeys);
     } else {
       renderScalar(value, buffer);
     }
   }
 
+  /**
+   * Values can be rendered if they are non-null, and if String non-empty (length > 0). Renderers of
+   * other formats apply the same rule so all formats carry the same content.
+   *
+   * @param value the value.
+   * @return {@code true} if the value is rendered.
+   */
+  static boolean hasValue(Object value) {
+    return value != null && !(value instanceof String && ((String) value).isEmpty());
+  }
+
+  private static boolean isNaturallySorted(Map<String, ?> data) {
+    return data instanceof SortedMap && ((SortedMap<String, ?>) data).comparator() == null;
+  }
+
   private static void renderScalar(Object value, Appendable buffer) throws IOException {
     if (value == null) {
       buffer.append("null");
@@ -196,145 +274,61 @@ final class Json {
       buffer.append(value.toString());
     } else {
       // Has to be a String (no other option)
-      buffer.append("\"");
-      char[] valueChars = value.toString().toCharArray();
-      for (int i = 0; i < valueChars.length; i++) {
-        char valueChar = valueChars[i];
-        // Handle escape characters that MUST be handled according to
-        // https://www.json.org/.
-        if (valueChar == '\b') {
-          buffer.append('\\').append('b');
-        } else if (valueChar == '\f') {
-          buffer.append('\\').append('f');
-        } else if (valueChar == '\n') {
-          buffer.append('\\').append('n');
-        } else if (valueChar == '\r') {
-          buffer.append('\\').append('r');
-        } else if (valueChar == '\t') {
-          buffer.append('\\').append('t');
-        } else if (valueChar == '\"') {
-          buffer.append('\\').append('\"');
-        } else if (valueChar == '\\') {
-          buffer.append('\\').append('\\');
-        } else {
-          logCharType(valueChar);
-          buffer.append(toPrintable(valueChar));
-        }
-      }
-      buffer.append("\"");
+      buffer.append('"');
+      escape(value.toString(), buffer);
+      buffer.append('"');
     }
   }
 
-  private static void logCharType(char value) {
-    // Character values aren't always JSON-friendly. When things go wrong,
-    // set the LOGGER to FINEST and run again looking at the output
-    // from this method. Update #toPrintable(char) as appropriate.
-    if (LOGGER.isLoggable(Level.FINEST)) {
-      var charTypeName = "UNKNOWN";
-      switch (Character.getType(value)) {
-        case 0:
-          charTypeName = "Character.UNASSIGNED";
-          break;
-        case 1:
-          charTypeName = "Character.UPPERCASE_LETTER";
-          break;
-        case 2:
-          charTypeName = "Character.LOWERCASE_LETTER";
-          break;
-        case 3:
-          charTypeName = "Character.TITLECASE_LETTER";
-          break;
-        case 4:
-          charTypeName = "Character.MODIFIER_LETTER";
-          break;
-        case 5:
-          charTypeName = "Character.OTHER_LETTER";
-          break;
-        case 6:
-          charTypeName = "Character.NON_SPACING_MARK";
-          break;
-        case 7:
-          charTypeName = "Character.ENCLOSING_MARK";
-          break;
-        case 8:
-          charTypeName = "Character.COMBINING_SPACING_MARK";
-          break;
-        case 9:
-          charTypeName = "Character.DECIMAL_DIGIT_NUMBER";
-          break;
-        case 10:
-          charTypeName = "Character.LETTER_NUMBER";
-          break;
-        case 11:
-          charTypeName = "Character.OTHER_NUMBER";
-          break;
-        case 12:
-          charTypeName = "Character.SPACE_SEPARATOR";
-          break;
-        case 13:
-          charTypeName = "Character.LINE_SEPARATOR";
-          break;
-        case 14:
-          charTypeName = "Character.PARAGRAPH_SEPARATOR";
-          break;
-        case 15:
-          charTypeName = "Character.CONTROL";
-          break;
-        case 16:
-          charTypeName = "Character.FORMAT";
-          break;
-        case 18:
-          charTypeName = "Character.PRIVATE_USE";
-          break;
-        case 19:
-          charTypeName = "Character.SURROGATE";
-          break;
-        case 20:
-          charTypeName = "Character.DASH_PUNCTUATION";
-          break;
-        case 21:
-          charTypeName = "Character.START_PUNCTUATION";
-          break;
-        case 22:
-          charTypeName = "Character.END_PUNCTUATION";
-          break;
-        case 23:
-          charTypeName = "Character.CONNECTOR_PUNCTUATION";
-          break;
-        case 24:
-          charTypeName = "Character.OTHER_PUNCTUATION";
-          break;
-        case 25:
-          charTypeName = "Character.MATH_SYMBOL";
-          break;
-        case 26:
-          charTypeName = "Character.CURRENCY_SYMBOL";
-          break;
-        case 27:
-          charTypeName = "Character.MODIFIER_SYMBOL";
-          break;
-        case 28:
-          charTypeName = "Character.OTHER_SYMBOL";
-          break;
-        case 29:
-          charTypeName = "Character.INITIAL_QUOTE_PUNCTUATION";
-          break;
-        case 30:
-          charTypeName = "Character.FINAL_QUOTE_PUNCTUATION";
-          break;
+  /**
+   * Appends the given chars to the Appendable, escaped for use inside a json string.
+   *
+   * <p>
+   * Quotes, backslashes and control characters are escaped as required by
+   * <a href="https://www.json.org/">json.org</a>, as are U+2028 and U+2029 (so the output is also
+   * valid JavaScript) and unpaired surrogates. Everything else, including surrogate pairs, is
+   * appended unchanged in runs that are as long as possible.
+   *
+   * @param value  chars to escape.
+   * @param buffer the Appendable to append to.
+   * @throws IOException if the Appendable throws one.
+   */
+  static void escape(CharSequence value, Appendable buffer) throws IOException {
+    var length = value.length();
+    var start = 0;
+    for (int i = 0; i < length; i++) {
+      var c = value.charAt(i);
+      String escaped;
+      if (c < ESCAPES.length) {
+        escaped = ESCAPES[c];
+        if (escaped == null) {
+          continue;
+        }
+      } else if (c == 0x2028 || c == 0x2029) {
+        escaped = unicodeEscape(c);
+      } else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c) && i + 1 < length
+            && Character.isLowSurrogate(value.charAt(i + 1))) {
+          i++;
+          continue;
+        }
+        escaped = unicodeEscape(c);
+      } else {
+        continue;
       }
-      LOGGER.finest(new StringBuilder().append(value).append(": ").append(charTypeName).toString());
+      if (start < i) {
+        buffer.append(value, start, i);
+      }
+      buffer.append(escaped);
+      start = i + 1;
+    }
+    if (start < length) {
+      buffer.append(value, start, length);
     }
   }
 
-  private static char toPrintable(char c) {
-    switch (Character.getType(c)) {
-      case Character.CONTROL:
-      case Character.OTHER_SYMBOL:
-        return '?';
-      default:
-        return c;
-    }
+  private static String unicodeEscape(char c) {
+    return String.format("\\u%04x", (int) c);
   }
 
   /**
@@ -344,18 +338,297 @@ final class Json {
    * 
    * @param json String to convert to a Map
    * @return Map value of json string.
+   * @throws IOException if the String is not a json object or exceeds the default limits.
    */
   @SuppressWarnings("unchecked")
-  public static Map<String, Object> marshal(String json) {
-    // With great thanks to
-    // http://www.adam-bien.com/roller/abien/entry/converting_json_to_map_with
-    var se = new ScriptEngineManager().getEngineByName("javascript");
+  public static Map<String, Object> marshal(String json) throws IOException {
     LOGGER.finer(() -> String.format("Marshalling %s", json));
+    var value = parse(new ByteArrayInputStream(json.getBytes(UTF_8)), JsonParser.Limits.DEFAULT);
+    if (!(value instanceof Map)) {
+      throw new JsonParser.ParseException("Expected a json object", 0);
+    }
+    return (Map<String, Object>) value;
+  }
 
-    try {
-      return (Map<String, Object>) se.eval(String.format("Java.asJSONCompatible(%s)", json));
-    } catch (ScriptException e) {
-      throw new RuntimeException(e);
+  /**
+   * Parses a single UTF-8 encoded json value from the given InputStream.
+   *
+   * <p>
+   * Objects are returned as Maps, arrays as Lists, and scalars as String, Number, Boolean or
+   * {@code null}. Only whitespace may follow the value.
+   *
+   * @param in     InputStream to read; not closed by this method.
+   * @param limits limits to apply while parsing.
+   * @return the parsed value.
+   * @throws IOException if reading fails, or the input is not valid json or exceeds the limits (a
+   *                     {@link JsonParser.ParseException}).
+   */
+  static Object parse(InputStream in, JsonParser.Limits limits) throws IOException {
+    try (var parser = new JsonParser(in, limits)) {
+      var value = parser.readValue();
+      parser.next();
+      return value;
+    }
+  }
+
+  /**
+   * Renders request headers as a json object with one member per header name.
+   *
+   * <p>
+   * Values are given one at a time by {@link #header(String, String)}, the values of a repeated
+   * header next to each other, in the order a container enumerates them. A header with one value is
+   * rendered as a String and a repeated header as a list. Values without a value (see
+   * {@link Json#hasValue(Object)}) are skipped, so a header whose only value is empty is left out.
+   * Each header's first value is held back until the next call shows whether the header repeats,
+   * so the headers are never collected first.
+   */
+  static final class HeadersWriter {
+
+    private final Appendable buffer;
+
+    // The header being rendered and its first value, which is held back.
+    private String name;
+
+    private String value;
+
+    private boolean repeated;
+
+    private boolean firstMember = true;
+
+    private boolean firstElement;
+
+    /**
+     * Constructs a new HeadersWriter and starts the object.
+     *
+     * @param buffer the Appendable to render to.
+     * @throws IOException if the Appendable throws one.
+     */
+    HeadersWriter(Appendable buffer) throws IOException {
+      this.buffer = buffer;
+      buffer.append('{');
+    }
+
+    /**
+     * Renders a header value.
+     *
+     * @param name  the header name.
+     * @param value the header value.
+     * @throws IOException if the Appendable throws one.
+     */
+    void header(String name, String value) throws IOException {
+      if (name.equals(this.name)) {
+        if (!repeated) {
+          repeated = true;
+          renderName();
+          buffer.append('[');
+          firstElement = true;
+          renderElement(this.value);
+        }
+        renderElement(value);
+        return;
+      }
+      endHeader();
+      this.name = name;
+      this.value = value;
+    }
+
+    /**
+     * Ends the object.
+     *
+     * @throws IOException if the Appendable throws one.
+     */
+    void close() throws IOException {
+      endHeader();
+      buffer.append('}');
+    }
+
+    private void endHeader() throws IOException {
+      if (repeated) {
+        buffer.append(']');
+        repeated = false;
+      } else if (name != null && hasValue(value)) {
+        renderName();
+        renderScalar(value, buffer);
+      }
+      name = null;
+      value = null;
+    }
+
+    private void renderName() throws IOException {
+      if (!firstMember) {
+        buffer.append(',');
+      }
+      firstMember = false;
+      buffer.append('"');
+      escape(name, buffer);
+      buffer.append("\":");
+    }
+
+    private void renderElement(String element) throws IOException {
+      if (!hasValue(element)) {
+        return;
+      }
+      if (!firstElement) {
+        buffer.append(',');
+      }
+      firstElement = false;
+      renderScalar(element, buffer);
+    }
+  }
+
+  /**
+   * Appendable that encodes characters as UTF-8 straight into a {@link ResponseOutput}.
+   *
+   * <p>
+   * Small bodies are sent with an exact byte Content-Length; bodies larger than the pooled buffer
+   * are streamed. Unpaired surrogates are written as {@code ?}. Call {@link #close()} when done
+   * rendering to send the body.
+   */
+  static final class Utf8Sink extends ResponseOutput implements Appendable {
+
+    // High surrogate waiting for its low surrogate, 0 if none.
+    private char highSurrogate;
+
+    /**
+     * Constructs a new Utf8Sink using the shared buffer pool.
+     *
+     * @param response the response to write to.
+     */
+    Utf8Sink(ServletResponse response) {
+      super(response);
+    }
+
+    /**
+     * Constructs a new Utf8Sink.
+     *
+     * @param response the response to write to.
+     * @param pool     pool to take the buffer from.
+     */
+    Utf8Sink(ServletResponse response, BufferPool pool) {
+      super(response, pool);
+    }
+
+    @Override
+    public Utf8Sink append(CharSequence csq) throws IOException {
+      return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Utf8Sink append(CharSequence csq, int start, int end) throws IOException {
+      var i = start;
+      while (i < end) {
+        if (highSurrogate == 0) {
+          // Copy a run of ASCII chars, as many as fit in the buffer.
+          if (count == buf.length) {
+            require(1);
+          }
+          var limit = Math.min(end, i + buf.length - count);
+          char c;
+          while (i < limit && (c = csq.charAt(i)) < 0x80) {
+            buf[count++] = (byte) c;
+            i++;
+          }
+          if (i == limit) {
+            continue;
+          }
+        }
+        encode(csq.charAt(i++));
+      }
+      return this;
+    }
+
+    @Override
+    public Utf8Sink append(char c) throws IOException {
+      if (c < 0x80 && highSurrogate == 0) {
+        require(1);
+        buf[count++] = (byte) c;
+      } else {
+        encode(c);
+      }
+      return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+      flushPendingSurrogate();
+      super.close();
+    }
+
+    /**
+     * Writes a high surrogate held back for the low surrogate that would follow it as {@code ?}.
+     * Call this where a string ends before anything else is written, so the held back char isn't
+     * written after, or joined with, what comes next.
+     *
+     * @throws IOException if the body outgrows the buffer and writing it fails.
+     */
+    void flushPendingSurrogate() throws IOException {
+      if (highSurrogate != 0) {
+        highSurrogate = 0;
+        write('?');
+      }
+    }
+
+    /**
+     * Returns the number of bytes the given chars take when appended to a Utf8Sink.
+     *
+     * @param csq the chars.
+     * @return number of bytes.
+     */
+    static int utf8Length(CharSequence csq) {
+      var length = csq.length();
+      var bytes = length;
+      for (int i = 0; i < length; i++) {
+        var c = csq.charAt(i);
+        if (c >= 0x80) {
+          if (c < 0x800) {
+            bytes += 1;
+          } else if (Character.isHighSurrogate(c) && i + 1 < length
+              && Character.isLowSurrogate(csq.charAt(i + 1))) {
+            // 4 bytes for 2 chars.
+            bytes += 2;
+            i++;
+          } else if (!Character.isSurrogate(c)) {
+            bytes += 2;
+          }
+        }
+      }
+      return bytes;
+    }
+
+    private void encode(char c) throws IOException {
+      if (highSurrogate != 0) {
+        var high = highSurrogate;
+        highSurrogate = 0;
+        if (Character.isLowSurrogate(c)) {
+          var cp = Character.toCodePoint(high, c);
+          require(4);
+          buf[count++] = (byte) (0xf0 | (cp >> 18));
+          buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+          buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+          buf[count++] = (byte) (0x80 | (cp & 0x3f));
+          return;
+        }
+        require(1);
+        buf[count++] = '?';
+      }
+      if (c < 0x80) {
+        require(1);
+        buf[count++] = (byte) c;
+      } else if (c < 0x800) {
+        require(2);
+        buf[count++] = (byte) (0xc0 | (c >> 6));
+        buf[count++] = (byte) (0x80 | (c & 0x3f));
+      } else if (Character.isHighSurrogate(c)) {
+        highSurrogate = c;
+      } else if (Character.isLowSurrogate(c)) {
+        require(1);
+        buf[count++] = '?';
+      } else {
+        require(3);
+        buf[count++] = (byte) (0xe0 | (c >> 12));
+        buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        buf[count++] = (byte) (0x80 | (c & 0x3f));
+      }
     }
   }
 }
@@ -0,0 +1,545 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.JSON_MAX_DEPTH;
+import static com.github.argherna.ajpbin.Constants.JSON_MAX_SIZE;
+import static com.github.argherna.ajpbin.Constants.JSON_MAX_STRING_LENGTH;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * Pull parser for UTF-8 encoded json read from an InputStream.
+ *
+ * <p>
+ * Call {@link #next()} to advance to the next {@link Event} and use {@link #getString()} or
+ * {@link #getNumber()} to get the value of the current event. Use {@link #readValue()} to read a
+ * whole value into the same shape the renderer in {@link Json} accepts: objects become Maps (in
+ * document order), arrays become Lists, strings become Strings, numbers become Integer, Long or
+ * Double, and {@code true}, {@code false} and {@code null} become Boolean and {@code null}.
+ *
+ * <p>
+ * Input is read in blocks into a pooled buffer and decoded without intermediate copies. The
+ * {@link Limits} given at construction bound the nesting depth, the number of bytes read and
+ * the length of strings. Violations and malformed input throw a {@link ParseException}.
+ *
+ * <p>
+ * Instances are not thread safe. Call {@link #close()} to return the buffer to the pool; it does
+ * not close the InputStream.
+ */
+final class JsonParser implements AutoCloseable {
+
+  /**
+   * Events returned by {@link JsonParser#next()}.
+   */
+  enum Event {
+    START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, KEY, STRING, NUMBER, TRUE, FALSE, NULL, END
+  }
+
+  /**
+   * Limits applied while parsing.
+   */
+  static final class Limits {
+
+    /** Limits using the defaults from {@link Constants}. */
+    static final Limits DEFAULT = new Limits(JSON_MAX_DEPTH, JSON_MAX_SIZE, JSON_MAX_STRING_LENGTH);
+
+    private final int maxDepth;
+
+    private final long maxSize;
+
+    private final int maxStringLength;
+
+    private Limits(int maxDepth, long maxSize, int maxStringLength) {
+      this.maxDepth = maxDepth;
+      this.maxSize = maxSize;
+      this.maxStringLength = maxStringLength;
+    }
+
+    /**
+     * Returns new Limits.
+     *
+     * @param maxDepth        maximum nesting depth of objects and arrays.
+     * @param maxSize         maximum number of bytes read.
+     * @param maxStringLength maximum number of chars in a string or key.
+     * @return new Limits.
+     */
+    static Limits of(int maxDepth, long maxSize, int maxStringLength) {
+      return new Limits(maxDepth, maxSize, maxStringLength);
+    }
+
+    int maxDepth() {
+      return maxDepth;
+    }
+
+    long maxSize() {
+      return maxSize;
+    }
+
+    int maxStringLength() {
+      return maxStringLength;
+    }
+  }
+
+  /**
+   * Thrown when the input is not valid json or exceeds the parser's limits.
+   */
+  static final class ParseException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    ParseException(String message, long offset) {
+      super(String.format("%s at byte %d", message, offset));
+    }
+  }
+
+  // Parser states, kept on a stack per nesting level.
+  private static final byte IN_OBJECT_START = 0;
+  private static final byte IN_OBJECT_KEY = 1;
+  private static final byte IN_OBJECT_VALUE = 2;
+  private static final byte IN_ARRAY_START = 3;
+  private static final byte IN_ARRAY_VALUE = 4;
+
+  private final InputStream in;
+
+  private final Limits limits;
+
+  private byte[] buf;
+
+  private int pos;
+
+  private int limit;
+
+  private long consumed;
+
+  private byte[] stack = new byte[8];
+
+  private int depth;
+
+  private boolean started;
+
+  private final StringBuilder text = new StringBuilder();
+
+  private Number number;
+
+  /**
+   * Constructs a new JsonParser.
+   *
+   * @param in     the InputStream to read from.
+   * @param limits limits to apply.
+   */
+  JsonParser(InputStream in, Limits limits) {
+    this.in = in;
+    this.limits = limits;
+    this.buf = BufferPool.SHARED.acquire();
+  }
+
+  /**
+   * Advances to the next event.
+   *
+   * @return the next event; {@link Event#END} once the top level value has been read and only
+   *         whitespace follows it.
+   * @throws IOException if reading fails or the input is invalid.
+   */
+  Event next() throws IOException {
+    if (depth == 0) {
+      if (started) {
+        if (skipWhitespace() != -1) {
+          throw error("Unexpected data after value");
+        }
+        return Event.END;
+      }
+      started = true;
+      return startValue(skipWhitespace());
+    }
+
+    var c = skipWhitespace();
+    switch (stack[depth - 1]) {
+      case IN_OBJECT_START:
+        if (c == '}') {
+          depth--;
+          return Event.END_OBJECT;
+        }
+        return key(c);
+
+      case IN_OBJECT_KEY:
+        if (c != ':') {
+          throw error("Expected ':'");
+        }
+        stack[depth - 1] = IN_OBJECT_VALUE;
+        return startValue(skipWhitespace());
+
+      case IN_OBJECT_VALUE:
+        if (c == '}') {
+          depth--;
+          return Event.END_OBJECT;
+        }
+        if (c != ',') {
+          throw error("Expected ',' or '}'");
+        }
+        return key(skipWhitespace());
+
+      case IN_ARRAY_START:
+        if (c == ']') {
+          depth--;
+          return Event.END_ARRAY;
+        }
+        stack[depth - 1] = IN_ARRAY_VALUE;
+        return startValue(c);
+
+      default:
+        if (c == ']') {
+          depth--;
+          return Event.END_ARRAY;
+        }
+        if (c != ',') {
+          throw error("Expected ',' or ']'");
+        }
+        return startValue(skipWhitespace());
+    }
+  }
+
+  /**
+   * @return the text of the current {@link Event#KEY} or {@link Event#STRING} event.
+   */
+  String getString() {
+    return text.toString();
+  }
+
+  /**
+   * @return the value of the current {@link Event#NUMBER} event.
+   */
+  Number getNumber() {
+    return number;
+  }
+
+  /**
+   * Reads the next complete value.
+   *
+   * @return the value as a Map, List, String, Number, Boolean or {@code null}.
+   * @throws IOException if reading fails or the input is invalid.
+   */
+  Object readValue() throws IOException {
+    return value(next());
+  }
+
+  @Override
+  public void close() {
+    BufferPool.SHARED.release(buf);
+    buf = null;
+  }
+
+  private Object value(Event event) throws IOException {
+    Event e;
+    switch (event) {
+      case START_OBJECT:
+        var object = new LinkedHashMap<String, Object>();
+        while (next() == Event.KEY) {
+          var key = getString();
+          object.put(key, value(next()));
+        }
+        return object;
+
+      case START_ARRAY:
+        var array = new ArrayList<Object>();
+        while ((e = next()) != Event.END_ARRAY) {
+          array.add(value(e));
+        }
+        return array;
+
+      case STRING:
+        return getString();
+
+      case NUMBER:
+        return number;
+
+      case TRUE:
+        return Boolean.TRUE;
+
+      case FALSE:
+        return Boolean.FALSE;
+
+      case NULL:
+        return null;
+
+      default:
+        throw error("Unexpected " + event);
+    }
+  }
+
+  private Event key(int c) throws IOException {
+    if (c != '"') {
+      throw error("Expected string key");
+    }
+    readString();
+    stack[depth - 1] = IN_OBJECT_KEY;
+    return Event.KEY;
+  }
+
+  private Event startValue(int c) throws IOException {
+    switch (c) {
+      case '{':
+        push(IN_OBJECT_START);
+        return Event.START_OBJECT;
+      case '[':
+        push(IN_ARRAY_START);
+        return Event.START_ARRAY;
+      case '"':
+        readString();
+        return Event.STRING;
+      case 't':
+        expect("rue");
+        return Event.TRUE;
+      case 'f':
+        expect("alse");
+        return Event.FALSE;
+      case 'n':
+        expect("ull");
+        return Event.NULL;
+      case -1:
+        throw error("Unexpected end of input");
+      default:
+        if (c == '-' || (c >= '0' && c <= '9')) {
+          readNumber(c);
+          return Event.NUMBER;
+        }
+        throw error("Unexpected character '" + (char) c + "'");
+    }
+  }
+
+  private void push(byte state) throws ParseException {
+    if (depth == limits.maxDepth()) {
+      throw error("Maximum depth " + limits.maxDepth() + " exceeded");
+    }
+    if (depth == stack.length) {
+      var grown = new byte[stack.length * 2];
+      System.arraycopy(stack, 0, grown, 0, depth);
+      stack = grown;
+    }
+    stack[depth++] = state;
+  }
+
+  private void expect(String rest) throws IOException {
+    for (int i = 0; i < rest.length(); i++) {
+      if (read() != rest.charAt(i)) {
+        throw error("Invalid literal");
+      }
+    }
+  }
+
+  // -?(0|[1-9][0-9]*)(\.[0-9]+)?([eE][+-]?[0-9]+)? as RFC 8259 has it; c is the '-' or first digit.
+  private void readNumber(int c) throws IOException {
+    text.setLength(0);
+    text.append((char) c);
+    if (c == '-') {
+      c = peek();
+      if (!isDigit(c)) {
+        throw error("Invalid number");
+      }
+      text.append((char) c);
+      pos++;
+    }
+    if (c == '0' && isDigit(peek())) {
+      throw error("Invalid number");
+    }
+    readDigits();
+    var integral = true;
+    if (peek() == '.') {
+      integral = false;
+      text.append('.');
+      pos++;
+      if (readDigits() == 0) {
+        throw error("Invalid number");
+      }
+    }
+    c = peek();
+    if (c == 'e' || c == 'E') {
+      integral = false;
+      text.append((char) c);
+      pos++;
+      c = peek();
+      if (c == '+' || c == '-') {
+        text.append((char) c);
+        pos++;
+      }
+      if (readDigits() == 0) {
+        throw error("Invalid number");
+      }
+    }
+    if (integral && text.length() <= 18) {
+      var value = Long.parseLong(text, 0, text.length(), 10);
+      number = value == (int) value ? (Number) Integer.valueOf((int) value)
+          : (Number) Long.valueOf(value);
+    } else {
+      var value = Double.parseDouble(text.toString());
+      // Json would write an infinite value back as a bare Infinity, which isn't json.
+      if (Double.isInfinite(value)) {
+        throw error("Invalid number");
+      }
+      number = value;
+    }
+  }
+
+  private int readDigits() throws IOException {
+    var count = 0;
+    for (var c = peek(); isDigit(c); c = peek()) {
+      text.append((char) c);
+      pos++;
+      count++;
+    }
+    return count;
+  }
+
+  private static boolean isDigit(int c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private void readString() throws IOException {
+    text.setLength(0);
+    var max = limits.maxStringLength();
+    while (true) {
+      // Copy a run of plain ASCII straight out of the buffer, stopping one char past the maximum.
+      if (pos == limit && !fill()) {
+        throw error("Unterminated string");
+      }
+      var end = (int) Math.min(limit, pos + (long) max - text.length() + 1);
+      while (pos < end) {
+        var b = buf[pos];
+        if (b == '"' || b == '\\' || b < 0x20) {
+          break;
+        }
+        text.append((char) b);
+        pos++;
+      }
+      if (text.length() > max) {
+        throw error("Maximum string length " + max + " exceeded");
+      }
+      if (pos == limit) {
+        continue;
+      }
+
+      var c = read();
+      if (c == '"') {
+        return;
+      } else if (c == '\\') {
+        readEscape();
+      } else if (c >= 0x80) {
+        readMultiByte(c);
+      } else {
+        throw error("Unescaped control character in string");
+      }
+      if (text.length() > max) {
+        throw error("Maximum string length " + max + " exceeded");
+      }
+    }
+  }
+
+  private void readEscape() throws IOException {
+    var c = read();
+    switch (c) {
+      case '"':
+      case '\\':
+      case '/':
+        text.append((char) c);
+        break;
+      case 'b':
+        text.append('\b');
+        break;
+      case 'f':
+        text.append('\f');
+        break;
+      case 'n':
+        text.append('\n');
+        break;
+      case 'r':
+        text.append('\r');
+        break;
+      case 't':
+        text.append('\t');
+        break;
+      case 'u':
+        var cp = 0;
+        for (int i = 0; i < 4; i++) {
+          var digit = Character.digit(read(), 16);
+          if (digit < 0) {
+            throw error("Invalid unicode escape");
+          }
+          cp = (cp << 4) | digit;
+        }
+        text.append((char) cp);
+        break;
+      default:
+        throw error("Invalid escape");
+    }
+  }
+
+  private void readMultiByte(int b) throws IOException {
+    int cp;
+    int n;
+    if ((b & 0xe0) == 0xc0) {
+      cp = b & 0x1f;
+      n = 1;
+    } else if ((b & 0xf0) == 0xe0) {
+      cp = b & 0x0f;
+      n = 2;
+    } else if ((b & 0xf8) == 0xf0) {
+      cp = b & 0x07;
+      n = 3;
+    } else {
+      throw error("Invalid UTF-8");
+    }
+    for (int i = 0; i < n; i++) {
+      var cont = read();
+      if ((cont & 0xc0) != 0x80) {
+        throw error("Invalid UTF-8");
+      }
+      cp = (cp << 6) | (cont & 0x3f);
+    }
+    if (!Character.isValidCodePoint(cp) || cp < (n == 1 ? 0x80 : n == 2 ? 0x800 : 0x10000)) {
+      throw error("Invalid UTF-8");
+    }
+    text.appendCodePoint(cp);
+  }
+
+  private int skipWhitespace() throws IOException {
+    int c;
+    do {
+      c = read();
+    } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+    return c;
+  }
+
+  private int read() throws IOException {
+    if (pos == limit && !fill()) {
+      return -1;
+    }
+    return buf[pos++] & 0xff;
+  }
+
+  private int peek() throws IOException {
+    if (pos == limit && !fill()) {
+      return -1;
+    }
+    return buf[pos] & 0xff;
+  }
+
+  private boolean fill() throws IOException {
+    consumed += limit;
+    pos = 0;
+    limit = 0;
+    var n = in.read(buf, 0, buf.length);
+    if (n <= 0) {
+      return false;
+    }
+    if (consumed + n > limits.maxSize()) {
+      throw error("Maximum size " + limits.maxSize() + " exceeded");
+    }
+    limit = n;
+    return true;
+  }
+
+  private ParseException error(String message) {
+    return new ParseException(message, consumed + pos);
+  }
+}
@@ -0,0 +1,182 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.MEDIA_TYPE_CACHE_SIZE;
+
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A parsed media type such as the value of a Content-Type header.
+ *
+ * <p>
+ * The type, subtype and parameter names are case insensitive and kept in lower case; parameter
+ * values are kept as sent, unquoted. Clients send few distinct Content-Type values, so parsed
+ * media types are kept in a bounded cache keyed by the header value and each is parsed only once.
+ * Values with a {@code boundary} parameter are the exception: multipart requests each send their
+ * own boundary, so caching them would only evict the stable entries. Instances are immutable.
+ */
+final class MediaType {
+
+  private static final BoundedCache<String, MediaType> CACHE =
+      new BoundedCache<>(MEDIA_TYPE_CACHE_SIZE);
+
+  private final String type;
+
+  private final String subtype;
+
+  private final String essence;
+
+  private final Map<String, String> parameters;
+
+  private final Charset charset;
+
+  private MediaType(String type, String subtype, Map<String, String> parameters) {
+    this.type = type;
+    this.subtype = subtype;
+    this.essence = type + '/' + subtype;
+    this.parameters = Collections.unmodifiableMap(parameters);
+    this.charset = forName(parameters.get("charset"));
+  }
+
+  /**
+   * Returns the media type of the given header value.
+   *
+   * @param value the header value, not {@code null}.
+   * @return the media type; a value without a {@code /} has an empty subtype.
+   */
+  static MediaType parse(String value) {
+    return hasBoundary(value) ? parseUncached(value) : CACHE.get(value, MediaType::parseUncached);
+  }
+
+  /**
+   * @return the type, such as {@code application}.
+   */
+  String getType() {
+    return type;
+  }
+
+  /**
+   * @return the subtype, such as {@code json}.
+   */
+  String getSubtype() {
+    return subtype;
+  }
+
+  /**
+   * @return the type and subtype without parameters, such as {@code application/json}.
+   */
+  String getEssence() {
+    return essence;
+  }
+
+  /**
+   * @param name the parameter name, in lower case.
+   * @return the parameter value, or {@code null} if there is no such parameter.
+   */
+  String getParameter(String name) {
+    return parameters.get(name);
+  }
+
+  /**
+   * @return unmodifiable Map of the parameters keyed by their lower case names.
+   */
+  Map<String, String> getParameters() {
+    return parameters;
+  }
+
+  /**
+   * Returns the charset named by the {@code charset} parameter.
+   *
+   * @param defaultCharset the charset to use when there is no parameter or it isn't supported.
+   * @return the charset.
+   */
+  Charset getCharset(Charset defaultCharset) {
+    return charset != null ? charset : defaultCharset;
+  }
+
+  @Override
+  public String toString() {
+    return parameters.isEmpty() ? essence : essence + parameters;
+  }
+
+  private static MediaType parseUncached(String value) {
+    var length = value.length();
+    var semicolon = value.indexOf(';');
+    var end = semicolon < 0 ? length : semicolon;
+    var slash = value.indexOf('/');
+    String type;
+    String subtype;
+    if (slash < 0 || slash > end) {
+      type = value.substring(0, end).trim().toLowerCase();
+      subtype = "";
+    } else {
+      type = value.substring(0, slash).trim().toLowerCase();
+      subtype = value.substring(slash + 1, end).trim().toLowerCase();
+    }
+
+    var parameters = new LinkedHashMap<String, String>();
+    var i = semicolon;
+    while (i >= 0 && i < length) {
+      i++;
+      var equals = value.indexOf('=', i);
+      var next = value.indexOf(';', i);
+      if (equals < 0 || (next >= 0 && next < equals)) {
+        // A parameter without a value, which is ignored.
+        i = next;
+        continue;
+      }
+      var name = value.substring(i, equals).trim().toLowerCase();
+      i = equals + 1;
+      while (i < length && (value.charAt(i) == ' ' || value.charAt(i) == '\t')) {
+        i++;
+      }
+      String parameter;
+      if (i < length && value.charAt(i) == '"') {
+        var quoted = new StringBuilder();
+        for (i++; i < length && value.charAt(i) != '"'; i++) {
+          var c = value.charAt(i);
+          if (c == '\\' && i + 1 < length) {
+            c = value.charAt(++i);
+          }
+          quoted.append(c);
+        }
+        parameter = quoted.toString();
+        i = value.indexOf(';', i);
+      } else {
+        next = value.indexOf(';', i);
+        parameter = value.substring(i, next < 0 ? length : next).trim();
+        i = next;
+      }
+      // The first occurrence of a parameter wins.
+      if (!name.isEmpty()) {
+        parameters.putIfAbsent(name, parameter);
+      }
+    }
+    return new MediaType(type, subtype, parameters);
+  }
+
+  private static boolean hasBoundary(String value) {
+    var name = "boundary";
+    for (int i = value.indexOf(';'); i >= 0 && i <= value.length() - name.length(); i++) {
+      if (value.regionMatches(true, i, name, 0, name.length())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Charset forName(String name) {
+    if (name == null || name.isEmpty()) {
+      return null;
+    }
+    try {
+      return Charset.forName(name);
+    } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+      return null;
+    }
+  }
+}
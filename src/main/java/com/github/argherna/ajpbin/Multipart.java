@@ -0,0 +1,382 @@
+package com.github.argherna.ajpbin;
+
+import static java.nio.charset.CodingErrorAction.REPORT;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Streaming parser for {@code multipart/form-data} bodies.
+ *
+ * <p>
+ * The body is read once through a pooled buffer and scanned for the boundary delimiter, never
+ * holding more than one buffer of it. Parts with a {@code filename} go to {@link #getFiles()},
+ * the others to {@link #getForm()}, the way httpbin reports them. A part of up to
+ * {@code partThreshold} bytes is kept in memory and reported by its content: as text if it is
+ * valid UTF-8, otherwise as a base64 {@code data:} URL. Larger parts are not kept at all; they are
+ * reported by their size and SHA-256 digest, computed as they stream past. (A large request body is
+ * itself kept in a temporary file by {@link RequestBody}, so the content is never on the heap.)
+ */
+final class Multipart {
+
+  /**
+   * Thrown when a multipart body is malformed or exceeds the parser's limits.
+   */
+  static final class FormatException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    FormatException(String message) {
+      super(message);
+    }
+  }
+
+  // Maximum size in bytes of the headers of one part.
+  private static final int MAX_HEADERS_SIZE = 8 * 1024;
+
+  private static final byte[] CRLF = {'\r', '\n'};
+
+  private final Map<String, Object> form = new HashMap<>();
+
+  private final Map<String, Object> files = new HashMap<>();
+
+  private final InputStream in;
+
+  // CRLF, "--" and the boundary.
+  private final byte[] delimiter;
+
+  private final int maxParts;
+
+  private final int partThreshold;
+
+  private byte[] buf;
+
+  private int pos;
+
+  private int limit;
+
+  private boolean eof;
+
+  private Multipart(InputStream in, String boundary, int maxParts, int partThreshold) {
+    this.in = in;
+    this.delimiter = ("\r\n--" + boundary).getBytes(ISO_8859_1);
+    this.maxParts = maxParts;
+    this.partThreshold = partThreshold;
+  }
+
+  /**
+   * Parses a multipart body from the given InputStream.
+   *
+   * @param in            the InputStream to read; not closed by this method.
+   * @param boundary      the boundary from the Content-Type.
+   * @param maxParts      maximum number of parts.
+   * @param partThreshold maximum size in bytes of a part that is reported by its content.
+   * @return the parsed body.
+   * @throws FormatException if the body is malformed or has more than {@code maxParts} parts.
+   * @throws IOException     if reading fails.
+   */
+  static Multipart parse(InputStream in, String boundary, int maxParts, int partThreshold)
+      throws IOException {
+    var multipart = new Multipart(in, boundary, maxParts, partThreshold);
+    multipart.buf = BufferPool.SHARED.acquire();
+    try {
+      multipart.parse();
+      return multipart;
+    } finally {
+      BufferPool.SHARED.release(multipart.buf);
+      multipart.buf = null;
+    }
+  }
+
+  /**
+   * Returns the {@code boundary} parameter of a multipart media type.
+   *
+   * @param mediaType the media type of the Content-Type header.
+   * @return the boundary, or {@code null} if there is none or it is not valid.
+   */
+  static String boundary(MediaType mediaType) {
+    var boundary = mediaType.getParameter("boundary");
+    return boundary == null || boundary.isEmpty() || boundary.length() > 70 ? null : boundary;
+  }
+
+  /**
+   * @return the form fields, parts without a filename.
+   */
+  Map<String, Object> getForm() {
+    return form;
+  }
+
+  /**
+   * @return the files, parts with a filename.
+   */
+  Map<String, Object> getFiles() {
+    return files;
+  }
+
+  private void parse() throws IOException {
+    // The first delimiter doesn't have to follow a CRLF.
+    fill(delimiter.length - 2);
+    if (!startsWith(delimiter, 2)) {
+      scanToDelimiter(null);
+    } else {
+      pos += delimiter.length - 2;
+    }
+    var parts = 0;
+    while (!isCloseDelimiter()) {
+      if (++parts > maxParts) {
+        throw new FormatException(
+            String.format("Multipart body has more than %d parts", maxParts));
+      }
+      String disposition = null;
+      String contentType = null;
+      var headersSize = 0;
+      String line;
+      while (!(line = readLine()).isEmpty()) {
+        headersSize += line.length();
+        if (headersSize > MAX_HEADERS_SIZE) {
+          throw new FormatException("Multipart headers are too large");
+        }
+        var colon = line.indexOf(':');
+        if (colon > 0) {
+          var name = line.substring(0, colon).trim();
+          if (name.equalsIgnoreCase("Content-Disposition")) {
+            disposition = line.substring(colon + 1);
+          } else if (name.equalsIgnoreCase("Content-Type")) {
+            contentType = line.substring(colon + 1).trim();
+          }
+        }
+      }
+      var part = new Part();
+      scanToDelimiter(part);
+      var name = disposition == null ? null : parameter(disposition, "name");
+      if (name != null) {
+        var filename = parameter(disposition, "filename");
+        if (filename != null) {
+          UrlEncoded.add(files, name, part.value(contentType, filename));
+        } else {
+          UrlEncoded.add(form, name, part.value(contentType, null));
+        }
+      }
+    }
+  }
+
+  // Consumes what follows a delimiter; true if it is the close delimiter.
+  private boolean isCloseDelimiter() throws IOException {
+    if (!fill(2)) {
+      throw new FormatException("Multipart body ends after a boundary");
+    }
+    if (buf[pos] == '-' && buf[pos + 1] == '-') {
+      return true;
+    }
+    // Skip transport padding before the CRLF.
+    while (fill(1) && (buf[pos] == ' ' || buf[pos] == '\t')) {
+      pos++;
+    }
+    if (!fill(2) || !startsWith(CRLF, 0)) {
+      throw new FormatException("Malformed multipart boundary line");
+    }
+    pos += 2;
+    return false;
+  }
+
+  // Passes the bytes up to the next delimiter to the part, consuming the delimiter.
+  private void scanToDelimiter(Part part) throws IOException {
+    while (true) {
+      fill(delimiter.length);
+      var found = indexOfDelimiter();
+      if (found >= 0) {
+        if (part != null) {
+          part.write(buf, pos, found - pos);
+        }
+        pos = found + delimiter.length;
+        return;
+      }
+      if (eof) {
+        throw new FormatException("Multipart body has no closing boundary");
+      }
+      // Everything but a possible start of the delimiter at the end can go.
+      var safe = limit - delimiter.length + 1;
+      if (safe > pos) {
+        if (part != null) {
+          part.write(buf, pos, safe - pos);
+        }
+        pos = safe;
+      }
+      fill(limit - pos + 1);
+    }
+  }
+
+  private int indexOfDelimiter() {
+    var last = limit - delimiter.length;
+    var first = delimiter[0];
+    for (int i = pos; i <= last; i++) {
+      if (buf[i] == first && Arrays.equals(buf, i, i + delimiter.length, delimiter, 0,
+          delimiter.length)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private String readLine() throws IOException {
+    // Number of bytes after pos known not to start the CRLF; stays valid when fill() compacts.
+    var scanned = 0;
+    while (true) {
+      for (int i = pos + scanned; i < limit - 1; i++) {
+        if (buf[i] == '\r' && buf[i + 1] == '\n') {
+          var line = new String(buf, pos, i - pos, UTF_8);
+          pos = i + 2;
+          return line;
+        }
+      }
+      scanned = Math.max(0, limit - pos - 1);
+      if (limit - pos >= MAX_HEADERS_SIZE) {
+        throw new FormatException("Multipart headers are too large");
+      }
+      if (!fill(limit - pos + 1)) {
+        throw new FormatException("Multipart body ends in the part headers");
+      }
+    }
+  }
+
+  private boolean startsWith(byte[] bytes, int offset) {
+    var length = bytes.length - offset;
+    return limit - pos >= length
+        && Arrays.equals(buf, pos, pos + length, bytes, offset, bytes.length);
+  }
+
+  // Makes at least n bytes available from pos, unless the stream ends first.
+  private boolean fill(int n) throws IOException {
+    if (limit - pos >= n) {
+      return true;
+    }
+    if (pos > 0) {
+      System.arraycopy(buf, pos, buf, 0, limit - pos);
+      limit -= pos;
+      pos = 0;
+    }
+    while (limit < n && !eof) {
+      var read = in.read(buf, limit, buf.length - limit);
+      if (read == -1) {
+        eof = true;
+      } else {
+        limit += read;
+      }
+    }
+    return limit - pos >= n;
+  }
+
+  /**
+   * Returns the value of a parameter of a header such as Content-Type or Content-Disposition.
+   *
+   * @param header the header value.
+   * @param name   the parameter name.
+   * @return the value, unquoted, or {@code null} if the parameter is not there.
+   */
+  static String parameter(String header, String name) {
+    var length = header.length();
+    var i = header.indexOf(';');
+    while (i >= 0 && i < length) {
+      i++;
+      while (i < length && (header.charAt(i) == ' ' || header.charAt(i) == '\t')) {
+        i++;
+      }
+      var equals = header.indexOf('=', i);
+      var next = header.indexOf(';', i);
+      if (equals < 0 || (next >= 0 && next < equals)) {
+        // A parameter without a value, which is ignored.
+        i = next;
+        continue;
+      }
+      var matches = header.substring(i, equals).trim().equalsIgnoreCase(name);
+      i = equals + 1;
+      var value = new StringBuilder();
+      if (i < length && header.charAt(i) == '"') {
+        for (i++; i < length && header.charAt(i) != '"'; i++) {
+          var c = header.charAt(i);
+          if (c == '\\' && i + 1 < length) {
+            c = header.charAt(++i);
+          }
+          value.append(c);
+        }
+        i = header.indexOf(';', i);
+      } else {
+        var end = header.indexOf(';', i);
+        value.append(header, i, end < 0 ? length : end);
+        i = end;
+      }
+      if (matches) {
+        return value.toString().trim();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The content of one part, kept up to the threshold and digested beyond it.
+   */
+  private final class Part {
+
+    private byte[] content = new byte[256];
+
+    private int length;
+
+    private long size;
+
+    private MessageDigest digest;
+
+    private void write(byte[] b, int off, int len) throws IOException {
+      size += len;
+      if (digest == null && length + len <= partThreshold) {
+        if (length + len > content.length) {
+          content = Arrays.copyOf(content,
+              (int) Math.min(Math.max(content.length * 2L, length + len), partThreshold));
+        }
+        System.arraycopy(b, off, content, length, len);
+        length += len;
+        return;
+      }
+      if (digest == null) {
+        try {
+          digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+          throw new IOException(e);
+        }
+        digest.update(content, 0, length);
+        content = null;
+      }
+      digest.update(b, off, len);
+    }
+
+    private Object value(String contentType, String filename) {
+      if (digest != null) {
+        var summary = new LinkedHashMap<String, Object>();
+        if (filename != null) {
+          summary.put("filename", filename);
+        }
+        summary.put("size", size);
+        summary.put("sha256", Hex.encode(digest.digest()));
+        return summary;
+      }
+      try {
+        return UTF_8.newDecoder().onMalformedInput(REPORT).onUnmappableCharacter(REPORT)
+            .decode(ByteBuffer.wrap(content, 0, length)).toString();
+      } catch (CharacterCodingException e) {
+        var type = contentType == null ? "application/octet-stream" : contentType;
+        var encoded = Base64.getEncoder().encode(ByteBuffer.wrap(content, 0, length));
+        return "data:" + type + ";base64," + ISO_8859_1.decode(encoded);
+      }
+    }
+  }
+}
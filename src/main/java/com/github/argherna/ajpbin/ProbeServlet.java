@@ -0,0 +1,84 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.CT_APPLICATION_JSON;
+import static com.github.argherna.ajpbin.Constants.CT_APPLICATION_JSON_UTF_8;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Cheap single-field endpoints for load balancer health checks and synthetic monitors.
+ *
+ * <ul>
+ * <li>{@code /health} returns {@code {"status":"ok"}}.
+ * <li>{@code /ip} returns the client address as {@code {"origin":"..."}}.
+ * <li>{@code /user-agent} returns {@code {"user-agent":"..."}}, {@code null} if there is none.
+ * <li>{@code /headers} returns {@code {"headers":{...}}} rendered by {@link Json.HeadersWriter}.
+ * </ul>
+ *
+ * <p>
+ * Unlike the echo endpoints no {@link RequestSnapshot} is captured: each endpoint reads only the
+ * one field it returns and renders it straight into a pooled buffer, and {@code /health} writes a
+ * constant array. The servlet isn't mapped to any filter, so a probe allocates next to nothing.
+ */
+@WebServlet(name = "ProbeServlet", urlPatterns = {"/health", "/ip", "/user-agent", "/headers"})
+public class ProbeServlet extends HttpServlet {
+
+  private static final byte[] HEALTH = "{\"status\":\"ok\"}".getBytes(UTF_8);
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response)
+      throws ServletException, IOException {
+    AjpbinHeaders.setHeaders(response);
+    var servletPath = request.getServletPath();
+    if (servletPath.equals("/health")) {
+      response.setContentType(CT_APPLICATION_JSON);
+      response.setContentLength(HEALTH.length);
+      response.getOutputStream().write(HEALTH);
+      return;
+    }
+
+    response.setContentType(CT_APPLICATION_JSON_UTF_8);
+    var sink = new Json.Utf8Sink(response);
+    try {
+      switch (servletPath) {
+        case "/ip":
+          sink.append("{\"origin\":");
+          Json.renderValue(request.getRemoteAddr(), sink, false);
+          break;
+        case "/user-agent":
+          sink.append("{\"user-agent\":");
+          Json.renderValue(request.getHeader("User-Agent"), sink, false);
+          break;
+        default:
+          sink.append("{\"headers\":");
+          renderHeaders(request, sink);
+          break;
+      }
+      sink.append('}');
+      sink.close();
+    } finally {
+      sink.release();
+    }
+  }
+
+  private static void renderHeaders(HttpServletRequest request, Json.Utf8Sink sink)
+      throws IOException {
+    var writer = new Json.HeadersWriter(sink);
+    var names = request.getHeaderNames();
+    while (names != null && names.hasMoreElements()) {
+      var name = names.nextElement();
+      var values = request.getHeaders(name);
+      while (values != null && values.hasMoreElements()) {
+        writer.header(name, values.nextElement());
+      }
+    }
+    writer.close();
+  }
+}
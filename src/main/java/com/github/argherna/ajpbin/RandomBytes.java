@@ -0,0 +1,109 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.RANDOM_BLOCK_SIZE;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes pseudo-random bytes sliced from a block generated once.
+ *
+ * <p>
+ * The block of {@value Constants#RANDOM_BLOCK_SIZE} bytes is filled from a fixed seed when this
+ * class is loaded. Output starts at an offset into the block and wraps around its end, and is
+ * written straight from the block, so no random number is generated and nothing is allocated
+ * while writing. The same seed always gives the same offset and therefore the same bytes, which
+ * makes seeded bytes {@link GeneratedContent}.
+ */
+final class RandomBytes {
+
+  private static final byte[] BLOCK = new byte[RANDOM_BLOCK_SIZE];
+
+  static {
+    var random = new SplittableRandom(0x616a7062696eL);
+    for (int i = 0; i < BLOCK.length; i += 8) {
+      var value = random.nextLong();
+      for (int j = 0; j < 8; j++) {
+        BLOCK[i + j] = (byte) (value >>> (j * 8));
+      }
+    }
+  }
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private RandomBytes() {
+  }
+
+  /**
+   * Returns the offset into the block the output for a seed starts at.
+   *
+   * @param seed the seed.
+   * @return the offset.
+   */
+  static int offset(long seed) {
+    return (int) Math.floorMod(new SplittableRandom(seed).nextLong(), (long) BLOCK.length);
+  }
+
+  /**
+   * @return an offset into the block chosen at random.
+   */
+  static int randomOffset() {
+    return ThreadLocalRandom.current().nextInt(BLOCK.length);
+  }
+
+  /**
+   * Returns the bytes for a seed as content that ranges can be served from.
+   *
+   * @param length the length of the content.
+   * @param offset the offset into the block of the first byte.
+   * @return the content.
+   */
+  static GeneratedContent content(long length, int offset) {
+    return new GeneratedContent() {
+
+      @Override
+      public long length() {
+        return length;
+      }
+
+      @Override
+      public void write(OutputStream out, long position, long count) throws IOException {
+        RandomBytes.write(out, count, (int) ((offset + position) % BLOCK.length), 0);
+      }
+    };
+  }
+
+  /**
+   * Writes bytes from the block.
+   *
+   * @param out       the OutputStream to write to.
+   * @param length    the number of bytes to write.
+   * @param offset    the offset into the block of the first byte.
+   * @param chunkSize the number of bytes written between flushes, or {@code 0} to not flush.
+   * @throws IOException if writing fails.
+   */
+  static void write(OutputStream out, long length, int offset, int chunkSize)
+      throws IOException {
+    var position = offset;
+    var remaining = length;
+    while (remaining > 0) {
+      var chunk = chunkSize > 0 ? Math.min(remaining, chunkSize) : remaining;
+      remaining -= chunk;
+      while (chunk > 0) {
+        var slice = (int) Math.min(chunk, BLOCK.length - position);
+        out.write(BLOCK, position, slice);
+        chunk -= slice;
+        position += slice;
+        if (position == BLOCK.length) {
+          position = 0;
+        }
+      }
+      if (chunkSize > 0) {
+        out.flush();
+      }
+    }
+  }
+}
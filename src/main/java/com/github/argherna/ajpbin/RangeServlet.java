@@ -0,0 +1,90 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.RANGE_MAX;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Returns {@code n} bytes of the repeated lower case alphabet from {@code /range/{n}}, honoring
+ * Range requests the way httpbin's {@code /range} does.
+ *
+ * <p>
+ * Byte {@code i} is {@code 'a' + i % 26}, so any range can be computed on its own. {@code n} is
+ * capped by the {@code range.max} init parameter, 100 KiB by default. The entity tag is
+ * {@code "range{n}"} for the capped {@code n}. See {@link Ranges}.
+ */
+@WebServlet(name = "RangeServlet", urlPatterns = {"/range/*"})
+public class RangeServlet extends HttpServlet {
+
+  private long maxBytes = RANGE_MAX;
+
+  /**
+   * Reads the maximum number of bytes from the {@code range.max} init parameter.
+   */
+  @Override
+  public void init() throws ServletException {
+    maxBytes = InitParameters.getLong(getServletConfig(), "range.max", RANGE_MAX);
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response)
+      throws ServletException, IOException {
+    var pathInfo = request.getPathInfo();
+    long length;
+    try {
+      length = pathInfo == null || pathInfo.length() < 2 ? -1
+          : Long.parseLong(pathInfo.substring(1));
+    } catch (NumberFormatException e) {
+      length = -1;
+    }
+    if (length < 0) {
+      response.sendError(SC_BAD_REQUEST, "Invalid number of bytes");
+      return;
+    }
+    length = Math.min(length, maxBytes);
+
+    AjpbinHeaders.setHeaders(response);
+    Ranges.serve(request, response, new Alphabet(length), "application/octet-stream",
+        "\"range" + length + "\"");
+  }
+
+  /**
+   * The repeated lower case alphabet, written from a block of whole alphabets.
+   */
+  static final class Alphabet implements GeneratedContent {
+
+    private static final byte[] BLOCK = "abcdefghijklmnopqrstuvwxyz".repeat(630).getBytes(US_ASCII);
+
+    private final long length;
+
+    Alphabet(long length) {
+      this.length = length;
+    }
+
+    @Override
+    public long length() {
+      return length;
+    }
+
+    @Override
+    public void write(OutputStream out, long position, long count) throws IOException {
+      var offset = (int) (position % 26);
+      while (count > 0) {
+        var slice = (int) Math.min(count, BLOCK.length - offset);
+        out.write(BLOCK, offset, slice);
+        count -= slice;
+        // The block holds whole alphabets, so the next slice starts at the same letter.
+        offset = (offset + slice) % 26;
+      }
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.MAX_RANGES;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static javax.servlet.http.HttpServletResponse.SC_OK;
+import static javax.servlet.http.HttpServletResponse.SC_PARTIAL_CONTENT;
+import static javax.servlet.http.HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves {@link GeneratedContent} with support for byte range requests.
+ *
+ * <p>
+ * A GET request with a {@code Range} header is answered with
+ * {@value HttpServletResponse#SC_PARTIAL_CONTENT} and only the requested bytes: a single range as
+ * is, several as a {@code multipart/byteranges} body. A Range none of whose ranges overlap the
+ * content is answered with {@value HttpServletResponse#SC_REQUESTED_RANGE_NOT_SATISFIABLE}. The
+ * whole content is sent when there is no Range header, when it is malformed or has more than
+ * {@value Constants#MAX_RANGES} ranges, or when an {@code If-Range} header doesn't match the
+ * entity tag.
+ */
+final class Ranges {
+
+  /**
+   * An inclusive range of byte positions.
+   */
+  static final class Range {
+
+    private final long first;
+
+    private final long last;
+
+    Range(long first, long last) {
+      this.first = first;
+      this.last = last;
+    }
+
+    /**
+     * @return position of the first byte.
+     */
+    long first() {
+      return first;
+    }
+
+    /**
+     * @return position of the last byte.
+     */
+    long last() {
+      return last;
+    }
+
+    /**
+     * @return the number of bytes in this range.
+     */
+    long length() {
+      return last - first + 1;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Range)) {
+        return false;
+      }
+      var other = (Range) obj;
+      return first == other.first && last == other.last;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(first) * 31 + Long.hashCode(last);
+    }
+
+    @Override
+    public String toString() {
+      return first + "-" + last;
+    }
+  }
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private Ranges() {
+  }
+
+  /**
+   * Parses a Range header against content of the given length.
+   *
+   * @param header the Range header value.
+   * @param length the length of the content.
+   * @return the satisfiable ranges in the order given, an empty List if there are none, or
+   *         {@code null} if the header is malformed or has too many ranges and is to be ignored.
+   */
+  static List<Range> parse(String header, long length) {
+    if (!header.regionMatches(true, 0, "bytes=", 0, 6)) {
+      return null;
+    }
+    var specs = header.substring(6).split(",");
+    if (specs.length > MAX_RANGES) {
+      return null;
+    }
+    var ranges = new ArrayList<Range>(specs.length);
+    try {
+      for (var spec : specs) {
+        spec = spec.trim();
+        var dash = spec.indexOf('-');
+        if (dash < 0) {
+          return null;
+        }
+        if (dash == 0) {
+          // A suffix: the last n bytes.
+          var suffix = Long.parseLong(spec.substring(1));
+          if (suffix < 0) {
+            return null;
+          }
+          if (suffix > 0 && length > 0) {
+            ranges.add(new Range(Math.max(0, length - suffix), length - 1));
+          }
+          continue;
+        }
+        var first = Long.parseLong(spec.substring(0, dash));
+        var last = dash == spec.length() - 1 ? Long.MAX_VALUE
+            : Long.parseLong(spec.substring(dash + 1));
+        if (first < 0 || last < first) {
+          return null;
+        }
+        if (first < length) {
+          ranges.add(new Range(first, Math.min(last, length - 1)));
+        }
+      }
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    return ranges;
+  }
+
+  /**
+   * Writes a response with the given content, or the ranges of it requested.
+   *
+   * @param request     the servlet request.
+   * @param response    the servlet response.
+   * @param content     the content.
+   * @param contentType the media type of the content.
+   * @param etag        the strong entity tag of the content, quoted, or {@code null}.
+   * @throws IOException if writing fails.
+   */
+  static void serve(HttpServletRequest request, HttpServletResponse response,
+      GeneratedContent content, String contentType, String etag) throws IOException {
+    var length = content.length();
+    response.setHeader("Accept-Ranges", "bytes");
+    if (etag != null) {
+      response.setHeader("ETag", etag);
+    }
+
+    var header = request.getHeader("Range");
+    var ranges = header == null || !request.getMethod().equals("GET")
+        || !ifRangeMatches(request.getHeader("If-Range"), etag) ? null : parse(header, length);
+
+    if (ranges == null) {
+      response.setStatus(SC_OK);
+      response.setContentType(contentType);
+      response.setContentLengthLong(length);
+      var out = response.getOutputStream();
+      content.write(out, 0, length);
+      out.flush();
+    } else if (ranges.isEmpty()) {
+      response.setHeader("Content-Range", "bytes */" + length);
+      response.sendError(SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+    } else if (ranges.size() == 1) {
+      var range = ranges.get(0);
+      response.setStatus(SC_PARTIAL_CONTENT);
+      response.setContentType(contentType);
+      response.setHeader("Content-Range", contentRange(range, length));
+      response.setContentLengthLong(range.length());
+      var out = response.getOutputStream();
+      content.write(out, range.first(), range.length());
+      out.flush();
+    } else {
+      writeByteRanges(response, content, contentType, ranges);
+    }
+  }
+
+  private static void writeByteRanges(HttpServletResponse response, GeneratedContent content,
+      String contentType, List<Range> ranges) throws IOException {
+    var random = new byte[12];
+    ThreadLocalRandom.current().nextBytes(random);
+    var boundary = Hex.encode(random);
+    var length = content.length();
+
+    // The part headers are known up front, and with them the length of the whole body.
+    var partHeaders = new byte[ranges.size()][];
+    var bodyLength = 0L;
+    for (int i = 0; i < partHeaders.length; i++) {
+      var range = ranges.get(i);
+      partHeaders[i] = ("\r\n--" + boundary + "\r\nContent-Type: " + contentType
+          + "\r\nContent-Range: " + contentRange(range, length) + "\r\n\r\n").getBytes(ISO_8859_1);
+      bodyLength += partHeaders[i].length + range.length();
+    }
+    var close = ("\r\n--" + boundary + "--\r\n").getBytes(ISO_8859_1);
+    bodyLength += close.length;
+
+    response.setStatus(SC_PARTIAL_CONTENT);
+    response.setContentType("multipart/byteranges; boundary=" + boundary);
+    response.setContentLengthLong(bodyLength);
+    var out = response.getOutputStream();
+    for (int i = 0; i < partHeaders.length; i++) {
+      var range = ranges.get(i);
+      out.write(partHeaders[i]);
+      content.write(out, range.first(), range.length());
+    }
+    out.write(close);
+    out.flush();
+  }
+
+  // If-Range with a date is never taken to match; generated content has no modification time.
+  private static boolean ifRangeMatches(String ifRange, String etag) {
+    return ifRange == null
+        || (etag != null && !ifRange.startsWith("W/") && ifRange.trim().equals(etag));
+  }
+
+  private static String contentRange(Range range, long length) {
+    return "bytes " + range.first() + "-" + range.last() + "/" + length;
+  }
+}
@@ -0,0 +1,379 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.REQUEST_BODY_MAX_SIZE;
+import static com.github.argherna.ajpbin.Constants.REQUEST_BODY_MEMORY_THRESHOLD;
+import static java.nio.charset.CodingErrorAction.REPORT;
+import static java.util.logging.Level.WARNING;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.logging.Logger;
+
+/**
+ * A request body, held in a list of pooled buffers or, once it grows past a threshold, in a
+ * temporary file.
+ *
+ * <p>
+ * Bytes are read straight into the buffers with {@link #readFrom(InputStream)} in blocks of up to
+ * a buffer's size, so capturing a body in memory costs no copies beyond the read itself. A body
+ * that is expected (from its Content-Length) or found to be larger than the memory threshold is
+ * written to a temporary file instead, keeping at most one buffer on the heap. The bytes are kept
+ * exactly as sent, so binary bodies can be echoed with {@link #toDataUrl(String)}.
+ *
+ * <p>
+ * Call {@link #release()} once the body is no longer needed to return the buffers to the pool and
+ * delete the temporary file. Instances are not thread safe.
+ */
+final class RequestBody {
+
+  private static final Logger LOGGER = Logger.getLogger(RequestBody.class.getName());
+
+  /**
+   * Limits for capturing request bodies.
+   */
+  static final class Limits {
+
+    /** Limits using the defaults from {@link Constants}. */
+    static final Limits DEFAULT = new Limits(REQUEST_BODY_MAX_SIZE, REQUEST_BODY_MEMORY_THRESHOLD);
+
+    private final long maxSize;
+
+    private final long memoryThreshold;
+
+    private Limits(long maxSize, long memoryThreshold) {
+      this.maxSize = maxSize;
+      this.memoryThreshold = memoryThreshold;
+    }
+
+    /**
+     * Returns new Limits.
+     *
+     * @param maxSize         maximum number of bytes in a body.
+     * @param memoryThreshold number of bytes above which a body is kept in a temporary file.
+     * @return new Limits.
+     */
+    static Limits of(long maxSize, long memoryThreshold) {
+      return new Limits(maxSize, memoryThreshold);
+    }
+
+    long maxSize() {
+      return maxSize;
+    }
+
+    long memoryThreshold() {
+      return memoryThreshold;
+    }
+  }
+
+  /**
+   * Thrown when a body is larger than allowed.
+   */
+  static final class TooLargeException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    TooLargeException(long maxSize) {
+      super(String.format("Request body exceeds %d bytes", maxSize));
+    }
+  }
+
+  private final BufferPool pool;
+
+  private final long memoryThreshold;
+
+  private final ArrayList<byte[]> chunks;
+
+  // Number of bytes used in the last chunk.
+  private int lastCount;
+
+  private long size;
+
+  // Set when the body is kept in a file; the first chunk is then used to read blocks.
+  private boolean spill;
+
+  private Path file;
+
+  private OutputStream fileOut;
+
+  /**
+   * Constructs a new, empty RequestBody using the shared buffer pool.
+   *
+   * @param expectedSize    the expected size of the body (its Content-Length) or -1 if unknown.
+   * @param memoryThreshold number of bytes above which the body is kept in a temporary file.
+   */
+  RequestBody(long expectedSize, long memoryThreshold) {
+    this(BufferPool.SHARED, expectedSize, memoryThreshold);
+  }
+
+  /**
+   * Constructs a new, empty RequestBody.
+   *
+   * @param pool            pool to take buffers from.
+   * @param expectedSize    the expected size of the body (its Content-Length) or -1 if unknown.
+   * @param memoryThreshold number of bytes above which the body is kept in a temporary file.
+   */
+  RequestBody(BufferPool pool, long expectedSize, long memoryThreshold) {
+    this.pool = pool;
+    this.memoryThreshold = memoryThreshold;
+    this.spill = expectedSize > memoryThreshold;
+    var expectedChunks = spill || expectedSize <= 0 ? 1 : expectedSize / pool.bufferSize() + 1;
+    this.chunks = new ArrayList<>((int) expectedChunks);
+  }
+
+  /**
+   * Reads an entire body from the given InputStream.
+   *
+   * @param in           the InputStream to read; not closed by this method.
+   * @param expectedSize the expected size of the body (its Content-Length) or -1 if unknown.
+   * @param limits       the limits for the body.
+   * @return the body.
+   * @throws TooLargeException if the body has more than {@link Limits#maxSize()} bytes.
+   * @throws IOException       if reading fails.
+   */
+  static RequestBody read(InputStream in, long expectedSize, Limits limits) throws IOException {
+    var body = new RequestBody(expectedSize, limits.memoryThreshold());
+    try {
+      while (body.readFrom(in) != -1) {
+        if (body.size() > limits.maxSize()) {
+          throw new TooLargeException(limits.maxSize());
+        }
+      }
+      return body;
+    } catch (IOException e) {
+      body.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Reads up to one buffer's worth of bytes from the given InputStream into this body.
+   *
+   * @param in the InputStream to read.
+   * @return the number of bytes read, or -1 at the end of the stream.
+   * @throws IOException if reading or writing the temporary file fails.
+   */
+  int readFrom(InputStream in) throws IOException {
+    if (spill) {
+      if (chunks.isEmpty()) {
+        chunks.add(pool.acquire());
+      }
+      var block = chunks.get(0);
+      var n = in.read(block, 0, block.length);
+      if (n > 0) {
+        fileOut().write(block, 0, n);
+        size += n;
+      }
+      return n;
+    }
+    var chunk = chunkWithRoom();
+    var n = in.read(chunk, lastCount, chunk.length - lastCount);
+    if (n > 0) {
+      lastCount += n;
+      size += n;
+      if (size > memoryThreshold) {
+        spillToFile();
+      }
+    }
+    return n;
+  }
+
+  /**
+   * @return the number of bytes in this body.
+   */
+  long size() {
+    return size;
+  }
+
+  /**
+   * @return {@code true} if this body is kept in a temporary file.
+   */
+  boolean isSpilled() {
+    return file != null;
+  }
+
+  /**
+   * Returns a new InputStream over the bytes of this body. The stream is only valid until
+   * {@link #release()} is called and has to be closed if the body is kept in a file.
+   *
+   * @return an InputStream.
+   * @throws IOException if the temporary file can't be opened.
+   */
+  InputStream openStream() throws IOException {
+    if (file != null) {
+      if (fileOut != null) {
+        fileOut.close();
+        fileOut = null;
+      }
+      return Files.newInputStream(file);
+    }
+    return new ChunksInputStream();
+  }
+
+  /**
+   * Decodes this body with the given charset if it is valid text in that charset.
+   *
+   * <p>
+   * The body is first checked a block at a time and then decoded straight into the String, so
+   * nothing but the String (and, for a body in more than one buffer, one array of its bytes) is
+   * sized to the body.
+   *
+   * @param charset the charset.
+   * @return the body as a String or {@code null} if it is malformed in the given charset.
+   * @throws IOException if the temporary file can't be read.
+   */
+  String toText(Charset charset) throws IOException {
+    var decoder = charset.newDecoder().onMalformedInput(REPORT).onUnmappableCharacter(REPORT);
+    var chars = new char[4096];
+    try (var reader = new InputStreamReader(openStream(), decoder)) {
+      while (reader.read(chars) != -1) {
+      }
+    } catch (CharacterCodingException e) {
+      return null;
+    }
+    if (size == 0) {
+      return "";
+    }
+    if (file != null) {
+      return new String(Files.readAllBytes(file), charset);
+    }
+    if (chunks.size() == 1) {
+      return new String(chunks.get(0), 0, lastCount, charset);
+    }
+    var bytes = new byte[(int) size];
+    try (var in = openStream()) {
+      in.readNBytes(bytes, 0, bytes.length);
+    }
+    return new String(bytes, charset);
+  }
+
+  /**
+   * Returns this body as a base64 encoded {@code data:} URL.
+   *
+   * @param mediaType the media type to put in the URL.
+   * @return the URL.
+   * @throws IOException if the temporary file can't be read.
+   */
+  String toDataUrl(String mediaType) throws IOException {
+    var prefix = "data:" + mediaType + ";base64,";
+    var url = new ByteArrayOutputStream(prefix.length() + (int) Math.min((size + 2) / 3 * 4,
+        Integer.MAX_VALUE - 8 - prefix.length()));
+    url.writeBytes(prefix.getBytes(StandardCharsets.US_ASCII));
+    try (var in = openStream(); var out = Base64.getEncoder().wrap(url)) {
+      in.transferTo(out);
+    }
+    return url.toString(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Returns the buffers of this body to the pool, deletes its temporary file and empties it.
+   */
+  void release() {
+    for (var chunk : chunks) {
+      pool.release(chunk);
+    }
+    chunks.clear();
+    lastCount = 0;
+    size = 0;
+    if (file != null) {
+      try {
+        if (fileOut != null) {
+          fileOut.close();
+        }
+        Files.deleteIfExists(file);
+      } catch (IOException e) {
+        LOGGER.log(WARNING, e, () -> String.format("Failed to delete %s", file));
+      }
+      fileOut = null;
+      file = null;
+    }
+  }
+
+  private OutputStream fileOut() throws IOException {
+    if (fileOut == null) {
+      file = Files.createTempFile("ajpbin-body-", ".tmp");
+      fileOut = Files.newOutputStream(file);
+    }
+    return fileOut;
+  }
+
+  // Moves the chunks read so far to a file, keeping the first one for reading blocks.
+  private void spillToFile() throws IOException {
+    var out = fileOut();
+    for (int i = 0; i < chunks.size(); i++) {
+      out.write(chunks.get(i), 0, chunkLength(i));
+    }
+    for (int i = chunks.size() - 1; i > 0; i--) {
+      pool.release(chunks.remove(i));
+    }
+    lastCount = 0;
+    spill = true;
+  }
+
+  private byte[] chunkWithRoom() {
+    if (chunks.isEmpty() || lastCount == chunks.get(chunks.size() - 1).length) {
+      chunks.add(pool.acquire());
+      lastCount = 0;
+    }
+    return chunks.get(chunks.size() - 1);
+  }
+
+  private int chunkLength(int index) {
+    return index == chunks.size() - 1 ? lastCount : chunks.get(index).length;
+  }
+
+  /**
+   * Reads the chunks of this body in order.
+   */
+  private final class ChunksInputStream extends InputStream {
+
+    private int chunk;
+
+    private int pos;
+
+    @Override
+    public int read() throws IOException {
+      if (!advance()) {
+        return -1;
+      }
+      return chunks.get(chunk)[pos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (!advance()) {
+        return -1;
+      }
+      var n = Math.min(len, chunkLength(chunk) - pos);
+      System.arraycopy(chunks.get(chunk), pos, b, off, n);
+      pos += n;
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return chunk < chunks.size() ? chunkLength(chunk) - pos : 0;
+    }
+
+    // Moves to the next chunk if the current one is used up; false at the end of the body.
+    private boolean advance() {
+      while (chunk < chunks.size() && pos == chunkLength(chunk)) {
+        chunk++;
+        pos = 0;
+      }
+      return chunk < chunks.size();
+    }
+  }
+}
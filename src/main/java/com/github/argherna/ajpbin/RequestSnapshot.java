@@ -0,0 +1,267 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Requests.parameterStringToMap;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * The parts of a request that are echoed back, captured once.
+ *
+ * <p>
+ * Headers and attributes are copied into parallel arrays of names and values, with one entry per
+ * header value; the values of a repeated header are adjacent. Well-known header names are replaced
+ * by shared constants so that captured names don't each hold their own String. The Maps returned by
+ * {@link #headers()}, {@link #args()} and {@link #attributes()} and the url are only built when
+ * first asked for, so a renderer that writes straight from the arrays never builds them.
+ *
+ * <p>
+ * The {@code javax.servlet.async.*} attributes a container sets on an asynchronous dispatch and
+ * ajpbin's own attributes are left out, so the echo of a request doesn't depend on how its body
+ * was read or which endpoint handled it.
+ */
+final class RequestSnapshot {
+
+  private static final String[] WELL_KNOWN_HEADER_NAMES = {"Accept", "Accept-Charset",
+      "Accept-Encoding", "Accept-Language", "Authorization", "Cache-Control", "Connection",
+      "Content-Length", "Content-Type", "Cookie", "Host", "If-Match", "If-Modified-Since",
+      "If-None-Match", "If-Range", "If-Unmodified-Since", "Origin", "Pragma", "Range", "Referer",
+      "TE", "Upgrade", "User-Agent", "Via", "X-Forwarded-For", "X-Forwarded-Host",
+      "X-Forwarded-Proto", "X-Request-Id"};
+
+  // Maps each well-known header name, as is and in lower case (as AJP sends coded headers), to a
+  // shared instance.
+  private static final Map<String, String> HEADER_NAMES = new HashMap<>();
+
+  static {
+    for (var name : WELL_KNOWN_HEADER_NAMES) {
+      HEADER_NAMES.put(name, name);
+      var lowerCase = name.toLowerCase();
+      HEADER_NAMES.put(lowerCase, lowerCase);
+    }
+  }
+
+  private static final String ASYNC_ATTRIBUTE_PREFIX = "javax.servlet.async.";
+
+  private static final String AJPBIN_ATTRIBUTE_PREFIX = Constants.class.getPackageName() + ".";
+
+  private final int maxParameters;
+
+  private String[] headerNames = new String[16];
+
+  private String[] headerValues = new String[16];
+
+  private int headerCount;
+
+  private String[] attributeNames;
+
+  private Object[] attributeValues;
+
+  private int attributeCount;
+
+  private final String queryString;
+
+  private final String scheme;
+
+  private final String serverName;
+
+  private final int serverPort;
+
+  private final String requestUri;
+
+  private Map<String, Object> headers;
+
+  private Map<String, Object> args;
+
+  private Map<String, Object> attributes;
+
+  private String url;
+
+  private RequestSnapshot(HttpServletRequest request, int maxParameters) {
+    this.maxParameters = maxParameters;
+    var names = request.getHeaderNames();
+    if (names != null) {
+      while (names.hasMoreElements()) {
+        var name = headerName(names.nextElement());
+        var values = request.getHeaders(name);
+        while (values.hasMoreElements()) {
+          addHeader(name, values.nextElement());
+        }
+      }
+    }
+    var attributeNameList = Collections.list(request.getAttributeNames());
+    attributeNames = new String[attributeNameList.size()];
+    attributeValues = new Object[attributeNames.length];
+    for (var name : attributeNameList) {
+      if (name.startsWith(ASYNC_ATTRIBUTE_PREFIX) || name.startsWith(AJPBIN_ATTRIBUTE_PREFIX)) {
+        continue;
+      }
+      var value = request.getAttribute(name);
+      if (value != null) {
+        attributeNames[attributeCount] = name;
+        attributeValues[attributeCount++] = value;
+      }
+    }
+    queryString = request.getQueryString();
+    scheme = request.getScheme();
+    serverName = request.getServerName();
+    serverPort = request.getServerPort();
+    requestUri = request.getRequestURI();
+  }
+
+  /**
+   * Captures the given request.
+   *
+   * @param request       the request.
+   * @param maxParameters maximum number of query string parameters to parse.
+   * @return the snapshot.
+   */
+  static RequestSnapshot capture(HttpServletRequest request, int maxParameters) {
+    return new RequestSnapshot(request, maxParameters);
+  }
+
+  /**
+   * @return the number of captured header values.
+   */
+  int headerCount() {
+    return headerCount;
+  }
+
+  /**
+   * @param index index of a header value, less than {@link #headerCount()}.
+   * @return the name of the header; equal names are the same instance.
+   */
+  String headerName(int index) {
+    return headerNames[index];
+  }
+
+  /**
+   * @param index index of a header value, less than {@link #headerCount()}.
+   * @return the header value.
+   */
+  String headerValue(int index) {
+    return headerValues[index];
+  }
+
+  /**
+   * @return the number of captured attributes.
+   */
+  int attributeCount() {
+    return attributeCount;
+  }
+
+  /**
+   * @param index index of an attribute, less than {@link #attributeCount()}.
+   * @return the attribute name.
+   */
+  String attributeName(int index) {
+    return attributeNames[index];
+  }
+
+  /**
+   * @param index index of an attribute, less than {@link #attributeCount()}.
+   * @return the attribute value as echoed, see {@link #attributes()}.
+   */
+  Object attributeValue(int index) {
+    return AjpAttributes.decode(attributeNames[index], attributeValues[index]);
+  }
+
+  /**
+   * @return the query string, or {@code null}.
+   */
+  String queryString() {
+    return queryString;
+  }
+
+  /**
+   * Returns a Map containing headers whose key is the header name and whose value(s) is/are the
+   * header value(s).
+   *
+   * @return Map of the headers.
+   */
+  Map<String, Object> headers() {
+    if (headers == null) {
+      var map = new LinkedHashMap<String, Object>();
+      for (int i = 0; i < headerCount; i++) {
+        UrlEncoded.add(map, headerNames[i], headerValues[i]);
+      }
+      headers = Collections.unmodifiableMap(map);
+    }
+    return headers;
+  }
+
+  /**
+   * Returns a Map of the query string arguments.
+   *
+   * @return Map of the arguments, see {@link Requests#parameterStringToMap(String, int)}.
+   */
+  Map<String, Object> args() {
+    if (args == null) {
+      args = queryString == null || queryString.isEmpty() ? Map.of()
+          : Collections.unmodifiableMap(parameterStringToMap(queryString, maxParameters));
+    }
+    return args;
+  }
+
+  /**
+   * Returns a Map containing request attributes whose keys are the attribute names and whose values
+   * are the attribute values, decoded by {@link AjpAttributes#decode(String, Object)}.
+   *
+   * @return a Map of the request attributes.
+   */
+  Map<String, Object> attributes() {
+    if (attributes == null) {
+      var map = new LinkedHashMap<String, Object>();
+      for (int i = 0; i < attributeCount; i++) {
+        map.put(attributeNames[i], attributeValue(i));
+      }
+      attributes = Collections.unmodifiableMap(map);
+    }
+    return attributes;
+  }
+
+  /**
+   * Returns the url of the request.
+   *
+   * <p>
+   * If a query string is part of the request, it is appended to the url in the normal way.
+   *
+   * @return url String.
+   */
+  String url() {
+    if (url == null) {
+      var buffer = new StringBuilder(scheme.length() + serverName.length() + requestUri.length()
+          + (queryString == null ? 0 : queryString.length() + 1) + 9);
+      buffer.append(scheme).append("://").append(serverName);
+      if (serverPort > 0 && !(scheme.equals("http") && serverPort == 80)
+          && !(scheme.equals("https") && serverPort == 443)) {
+        buffer.append(':').append(serverPort);
+      }
+      buffer.append(requestUri);
+      if (queryString != null && !queryString.isEmpty()) {
+        buffer.append('?').append(queryString);
+      }
+      url = buffer.toString();
+    }
+    return url;
+  }
+
+  private void addHeader(String name, String value) {
+    if (headerCount == headerNames.length) {
+      headerNames = Arrays.copyOf(headerNames, headerCount * 2);
+      headerValues = Arrays.copyOf(headerValues, headerCount * 2);
+    }
+    headerNames[headerCount] = name;
+    headerValues[headerCount++] = value;
+  }
+
+  private static String headerName(String name) {
+    var shared = HEADER_NAMES.get(name);
+    return shared != null ? shared : name;
+  }
+}
@@ -1,10 +1,13 @@
 package com.github.argherna.ajpbin;
 
+import static com.github.argherna.ajpbin.Constants.CT_APPLICATION_JSON_UTF_8;
 import static com.github.argherna.ajpbin.Constants.OUTPUT_DOCUMENT_ATTR_NAME;
+import static com.github.argherna.ajpbin.Constants.OUTPUT_ECHO_ATTR_NAME;
 import static com.github.argherna.ajpbin.Constants.OUTPUT_MAP_ATTR_NAME;
 import static com.github.argherna.ajpbin.Responses.isError;
 import static com.github.argherna.ajpbin.Xml.render;
 import static javax.servlet.http.HttpServletResponse.SC_CREATED;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
 import static javax.servlet.http.HttpServletResponse.SC_NO_CONTENT;
 
 import java.io.IOException;
@@ -13,6 +16,7 @@ import java.util.Date;
 import java.util.Map;
 import java.util.function.Consumer;
 
+import javax.servlet.DispatcherType;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebFilter;
@@ -25,9 +29,22 @@ import javax.xml.transform.TransformerException;
 
 import org.w3c.dom.Document;
 
-@WebFilter(servletNames = { "AjpMethodsServlet" })
+@WebFilter(servletNames = { "AjpMethodsServlet", "CompressedServlet", "ConditionalServlet",
+    "DelayServlet", "DripServlet", "SinkServlet" }, asyncSupported = true,
+    dispatcherTypes = { DispatcherType.REQUEST, DispatcherType.ASYNC })
 public class ResponseHeadersFilter extends HttpFilter {
 
+  private boolean sortKeys;
+
+  /**
+   * Reads the {@code json.sortKeys} init parameter. When {@code true}, json output is rendered with
+   * object keys in sorted order so identical requests produce identical bytes.
+   */
+  @Override
+  public void init() throws ServletException {
+    sortKeys = InitParameters.getBoolean(getFilterConfig(), "json.sortKeys", false);
+  }
+
   @Override
   protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
       throws IOException, ServletException {
@@ -36,12 +53,35 @@ public class ResponseHeadersFilter extends HttpFilter {
 
     AjpbinHeaders.setHeaders(response);
 
-    if ((response.getStatus() != SC_NO_CONTENT && response.getStatus() != SC_CREATED)
-        && !isError(response.getStatus())) {
+    // The response is finished by the dispatch that ends the asynchronous processing, or written
+    // by the servlet without one.
+    if (request.isAsyncStarted()) {
+      return;
+    }
+
+    if (hasBody(response.getStatus())) {
+      var echo = (EchoResponse) request.getAttribute(OUTPUT_ECHO_ATTR_NAME);
+      if (echo != null) {
+        response.addHeader("Vary", "Accept");
+        var binaryFormat = BinaryFormat.negotiate(request.getHeader("Accept"));
+        if (binaryFormat != null) {
+          writeBinary(response, echo.asMap(), binaryFormat);
+        } else {
+          writeJson(response, echo);
+        }
+        return;
+      }
+
       @SuppressWarnings("unchecked")
       var outputMap = (Map<String, Object>) request.getAttribute(OUTPUT_MAP_ATTR_NAME);
       if (outputMap != null) {
-        writeJson(response, outputMap);
+        response.addHeader("Vary", "Accept");
+        var binaryFormat = BinaryFormat.negotiate(request.getHeader("Accept"));
+        if (binaryFormat != null) {
+          writeBinary(response, outputMap, binaryFormat);
+        } else {
+          writeJson(response, outputMap);
+        }
         return;
       }
 
@@ -60,14 +100,44 @@ public class ResponseHeadersFilter extends HttpFilter {
     }
   }
 
+  // No output is rendered for 204 and 304, which have no body, nor for 201 and errors.
+  private static boolean hasBody(int status) {
+    return status != SC_NO_CONTENT && status != SC_CREATED && status != SC_NOT_MODIFIED
+        && !isError(status);
+  }
+
   private void writeJson(HttpServletResponse response, Map<String, Object> outputMap) throws IOException {
-    var json = Json.renderObject(outputMap);
-    response.setContentType("application/json");
-    response.setContentLength(json.length());
+    response.setContentType(CT_APPLICATION_JSON_UTF_8);
+    var sink = new Json.Utf8Sink(response);
+    try {
+      Json.renderObject(outputMap, sink, sortKeys);
+      sink.close();
+    } finally {
+      sink.release();
+    }
+  }
 
-    var writer = response.getWriter();
-    writer.print(json);
-    writer.flush();
+  private void writeJson(HttpServletResponse response, EchoResponse echo) throws IOException {
+    response.setContentType(CT_APPLICATION_JSON_UTF_8);
+    var sink = new Json.Utf8Sink(response);
+    try {
+      echo.renderJson(sink, sortKeys);
+      sink.close();
+    } finally {
+      sink.release();
+    }
+  }
+
+  private void writeBinary(HttpServletResponse response, Map<String, Object> outputMap,
+      BinaryFormat format) throws IOException {
+    response.setContentType(format.getContentType());
+    var sink = new Json.Utf8Sink(response);
+    try {
+      format.renderObject(outputMap, sink, sortKeys);
+      sink.close();
+    } finally {
+      sink.release();
+    }
   }
 
   private void writeXml(HttpServletResponse response, Document outputDoc) throws IOException, TransformerException {
@@ -0,0 +1,150 @@
+package com.github.argherna.ajpbin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.servlet.ServletResponse;
+
+/**
+ * OutputStream that collects a response body in a pooled buffer before sending it.
+ *
+ * <p>
+ * If the whole body fits in the buffer, {@link #close()} sets the exact Content-Length and writes
+ * the body in a single write. Once the body outgrows the buffer the stream switches to streaming:
+ * the buffer is written to the response whenever it fills up and the container sends the body
+ * chunked. Calling {@link #flush()} also switches to streaming.
+ *
+ * <p>
+ * {@link #close()} must be called to send the body; it does not close the response's
+ * OutputStream. If rendering fails part way, {@link #release()} returns the buffer without
+ * touching the response. Calling it in a {@code finally} after {@code close()} covers both.
+ */
+class ResponseOutput extends OutputStream {
+
+  private final ServletResponse response;
+
+  private final BufferPool pool;
+
+  private OutputStream out;
+
+  /** Buffer bytes are written to. Subclasses may write to it directly after {@link #require(int)}. */
+  byte[] buf;
+
+  /** Number of valid bytes in {@link #buf}. */
+  int count;
+
+  /**
+   * Constructs a new ResponseOutput using the shared buffer pool.
+   *
+   * @param response the response to write to.
+   */
+  ResponseOutput(ServletResponse response) {
+    this(response, BufferPool.SHARED);
+  }
+
+  /**
+   * Constructs a new ResponseOutput.
+   *
+   * @param response the response to write to.
+   * @param pool     pool to take the buffer from; its buffer size is the Content-Length threshold.
+   */
+  ResponseOutput(ServletResponse response, BufferPool pool) {
+    this.response = response;
+    this.pool = pool;
+    this.buf = pool.acquire();
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    if (count == buf.length) {
+      drain();
+    }
+    buf[count++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      if (count == buf.length) {
+        drain();
+      }
+      var n = Math.min(len, buf.length - count);
+      System.arraycopy(b, off, buf, count, n);
+      count += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  /**
+   * Writes out the buffered bytes and flushes the response, switching to streaming.
+   */
+  @Override
+  public void flush() throws IOException {
+    drain();
+    out.flush();
+  }
+
+  /**
+   * Sends the body and returns the buffer to the pool.
+   */
+  @Override
+  public void close() throws IOException {
+    if (buf == null) {
+      return;
+    }
+    try {
+      if (out == null) {
+        response.setContentLength(count);
+        out = response.getOutputStream();
+      }
+      if (count > 0) {
+        out.write(buf, 0, count);
+      }
+      out.flush();
+    } finally {
+      pool.release(buf);
+      buf = null;
+    }
+  }
+
+  /**
+   * Returns the buffer to the pool without sending what it holds. Does nothing once the body has
+   * been sent by {@link #close()}.
+   */
+  void release() {
+    if (buf != null) {
+      pool.release(buf);
+      buf = null;
+    }
+  }
+
+  /**
+   * Makes sure at least {@code n} bytes can be written to {@link #buf} at {@link #count}.
+   *
+   * @param n number of bytes; must not exceed the buffer size.
+   * @throws IOException if writing out the buffer fails.
+   */
+  final void require(int n) throws IOException {
+    if (buf.length - count < n) {
+      drain();
+    }
+  }
+
+  /**
+   * @return {@code true} if the body is being streamed and no Content-Length will be set.
+   */
+  final boolean isStreaming() {
+    return out != null;
+  }
+
+  private void drain() throws IOException {
+    if (out == null) {
+      out = response.getOutputStream();
+    }
+    if (count > 0) {
+      out.write(buf, 0, count);
+      count = 0;
+    }
+  }
+}
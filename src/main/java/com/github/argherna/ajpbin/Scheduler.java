@@ -0,0 +1,58 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.SCHEDULER_THREADS;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Owns the scheduler shared by the endpoints that resume requests after a delay.
+ *
+ * <p>
+ * A delayed request is suspended with an AsyncContext and resumed by a task on this scheduler, so
+ * any number of delayed requests need only {@value Constants#SCHEDULER_THREADS} threads instead of
+ * a container thread each. Tasks must only hand work back to the container (dispatch, write a
+ * little, complete) and never block. The scheduler is created when first used and shut down when
+ * the web application stops.
+ */
+@WebListener
+public class Scheduler implements ServletContextListener {
+
+  private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+  private static ScheduledThreadPoolExecutor executor;
+
+  /**
+   * @return the shared scheduler.
+   */
+  static synchronized ScheduledExecutorService get() {
+    if (executor == null) {
+      executor = new ScheduledThreadPoolExecutor(SCHEDULER_THREADS, runnable -> {
+        var thread = new Thread(runnable, "ajpbin-scheduler-" + THREAD_NUMBER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+      // Cancelled tasks of requests that went away shouldn't linger in the queue until their time.
+      executor.setRemoveOnCancelPolicy(true);
+    }
+    return executor;
+  }
+
+  /**
+   * Shuts the scheduler down, abandoning pending tasks; their requests are ended by the container.
+   */
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {
+    synchronized (Scheduler.class) {
+      if (executor != null) {
+        executor.shutdownNow();
+        executor = null;
+      }
+    }
+  }
+}
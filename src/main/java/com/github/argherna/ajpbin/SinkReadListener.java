@@ -0,0 +1,163 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.MAX_POOLED_SINK_BUFFERS;
+import static com.github.argherna.ajpbin.Constants.OUTPUT_MAP_ATTR_NAME;
+import static com.github.argherna.ajpbin.Constants.SINK_BUFFER_SIZE;
+import static java.util.logging.Level.WARNING;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Reads and discards a request body without blocking a container thread, measuring how fast it
+ * arrives.
+ *
+ * <p>
+ * The body is read into a large pooled buffer whenever the container reports bytes are available,
+ * optionally digested, and dropped. Once it has all been read, the number of bytes, the elapsed
+ * time and the rate are stored as a Map in the {@value Constants#OUTPUT_MAP_ATTR_NAME} request
+ * attribute and the request is dispatched again so the filters render them.
+ */
+final class SinkReadListener implements ReadListener {
+
+  /** Name of the CRC-32C digest. */
+  static final String CRC32C_DIGEST = "crc32c";
+
+  /** Name of the SHA-256 digest. */
+  static final String SHA256_DIGEST = "sha256";
+
+  private static final Logger LOGGER = Logger.getLogger(SinkReadListener.class.getName());
+
+  private static final BufferPool BUFFERS = new BufferPool(SINK_BUFFER_SIZE,
+      MAX_POOLED_SINK_BUFFERS);
+
+  private final AsyncContext asyncContext;
+
+  private final ServletInputStream in;
+
+  private final String digestName;
+
+  private final CRC32C crc32c;
+
+  private final MessageDigest sha256;
+
+  private final long startNanos;
+
+  private byte[] buffer;
+
+  private long size;
+
+  private boolean done;
+
+  /**
+   * Starts sinking the body of the given asynchronous request.
+   *
+   * @param asyncContext the started AsyncContext of the request.
+   * @param digestName   {@value #CRC32C_DIGEST}, {@value #SHA256_DIGEST} or {@code null} for no
+   *                     digest.
+   * @throws IOException if the request's InputStream can't be obtained.
+   */
+  static void start(AsyncContext asyncContext, String digestName) throws IOException {
+    var in = asyncContext.getRequest().getInputStream();
+    in.setReadListener(new SinkReadListener(asyncContext, in, digestName));
+  }
+
+  private SinkReadListener(AsyncContext asyncContext, ServletInputStream in, String digestName) {
+    this.asyncContext = asyncContext;
+    this.in = in;
+    this.digestName = digestName;
+    this.crc32c = CRC32C_DIGEST.equals(digestName) ? new CRC32C() : null;
+    this.sha256 = SHA256_DIGEST.equals(digestName) ? sha256() : null;
+    this.startNanos = System.nanoTime();
+    this.buffer = BUFFERS.acquire();
+  }
+
+  /**
+   * @param digestName a digest name from the request.
+   * @return {@code true} if it names a supported digest.
+   */
+  static boolean isSupported(String digestName) {
+    return CRC32C_DIGEST.equals(digestName) || SHA256_DIGEST.equals(digestName);
+  }
+
+  @Override
+  public void onDataAvailable() throws IOException {
+    while (!done && in.isReady()) {
+      var read = in.read(buffer);
+      if (read == -1) {
+        return;
+      }
+      size += read;
+      if (crc32c != null) {
+        crc32c.update(buffer, 0, read);
+      } else if (sha256 != null) {
+        sha256.update(buffer, 0, read);
+      }
+    }
+  }
+
+  @Override
+  public void onAllDataRead() throws IOException {
+    if (done) {
+      return;
+    }
+    done = true;
+    var elapsedNanos = System.nanoTime() - startNanos;
+    releaseBuffer();
+
+    var result = new LinkedHashMap<String, Object>();
+    result.put("bytes", size);
+    result.put("elapsed_nanos", elapsedNanos);
+    // Megabytes of 10^6 bytes, rounded to thousandths.
+    result.put("mb_per_second", elapsedNanos == 0 ? 0d
+        : Math.round(size * 1e6 / elapsedNanos) / 1000d);
+    if (crc32c != null) {
+      result.put(digestName, String.format("%08x", crc32c.getValue()));
+    } else if (sha256 != null) {
+      result.put(digestName, Hex.encode(sha256.digest()));
+    }
+    asyncContext.getRequest().setAttribute(OUTPUT_MAP_ATTR_NAME, result);
+    asyncContext.dispatch();
+  }
+
+  @Override
+  public void onError(Throwable t) {
+    LOGGER.log(WARNING, "Failed to read request body", t);
+    if (done) {
+      return;
+    }
+    done = true;
+    releaseBuffer();
+    try {
+      ((HttpServletResponse) asyncContext.getResponse()).sendError(SC_BAD_REQUEST,
+          t.getMessage());
+    } catch (IOException e) {
+      LOGGER.log(WARNING, "Failed to send error response", e);
+    } finally {
+      asyncContext.complete();
+    }
+  }
+
+  private void releaseBuffer() {
+    BUFFERS.release(buffer);
+    buffer = null;
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.SINK_TIMEOUT_MILLIS;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+
+import java.io.IOException;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Discards the body of a POST or PUT to {@code /sink} and returns how many bytes were received, in
+ * how many nanoseconds, at how many megabytes per second.
+ *
+ * <p>
+ * The {@code digest} query parameter, {@code crc32c} or {@code sha256}, adds a digest of the body
+ * computed as it streams past. The body is read by a {@link SinkReadListener}, so uploads don't
+ * hold container threads while waiting for bytes. The time allowed for an upload is set by the
+ * {@code sink.timeout} init parameter in milliseconds, 10 minutes by default.
+ */
+@WebServlet(name = "SinkServlet", urlPatterns = {"/sink"}, asyncSupported = true)
+public class SinkServlet extends HttpServlet {
+
+  private long timeoutMillis = SINK_TIMEOUT_MILLIS;
+
+  /**
+   * Reads the upload timeout from the {@code sink.timeout} init parameter.
+   */
+  @Override
+  public void init() throws ServletException {
+    timeoutMillis = InitParameters.getLong(getServletConfig(), "sink.timeout", SINK_TIMEOUT_MILLIS);
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest request, HttpServletResponse response)
+      throws ServletException, IOException {
+    sink(request, response);
+  }
+
+  @Override
+  protected void doPut(HttpServletRequest request, HttpServletResponse response)
+      throws ServletException, IOException {
+    sink(request, response);
+  }
+
+  private void sink(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    // Dispatched again with the result once the body has been read.
+    if (request.getDispatcherType() == DispatcherType.ASYNC) {
+      return;
+    }
+    // Not getParameter, which would read a form body.
+    var query = request.getQueryString();
+    var digest = query == null ? null : Requests.parameterStringToMap(query).get("digest");
+    if (digest != null && !(digest instanceof String
+        && SinkReadListener.isSupported((String) digest))) {
+      response.sendError(SC_BAD_REQUEST, "Unsupported digest: " + digest);
+      return;
+    }
+    var asyncContext = request.startAsync();
+    asyncContext.setTimeout(timeoutMillis);
+    SinkReadListener.start(asyncContext, (String) digest);
+  }
+}
@@ -0,0 +1,102 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.CT_APPLICATION_NDJSON;
+import static com.github.argherna.ajpbin.Constants.MAX_PARAMETERS;
+import static com.github.argherna.ajpbin.Constants.STREAM_MAX_LINES;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Streams {@code n} lines of newline delimited json from {@code /stream/{n}}, the way httpbin's
+ * {@code /stream} does.
+ *
+ * <p>
+ * Each line is the echo output of the request with an {@code id} field counting from 0, and the
+ * response is flushed after every line. The output around the id is the same on every line, so it
+ * is rendered once and the lines are written from it; the memory used doesn't depend on
+ * {@code n}. {@code n} is capped by the {@code stream.max} init parameter.
+ */
+@WebServlet(name = "StreamServlet", urlPatterns = {"/stream/*"})
+public class StreamServlet extends HttpServlet {
+
+  private long maxLines = STREAM_MAX_LINES;
+
+  /**
+   * Reads the maximum number of lines from the {@code stream.max} init parameter.
+   */
+  @Override
+  public void init() throws ServletException {
+    maxLines = InitParameters.getLong(getServletConfig(), "stream.max", STREAM_MAX_LINES);
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response)
+      throws ServletException, IOException {
+    var pathInfo = request.getPathInfo();
+    long lines;
+    try {
+      lines = pathInfo == null || pathInfo.length() < 2 ? -1
+          : Long.parseLong(pathInfo.substring(1));
+    } catch (NumberFormatException e) {
+      lines = -1;
+    }
+    if (lines < 0) {
+      response.sendError(SC_BAD_REQUEST, "Invalid number of lines");
+      return;
+    }
+
+    AjpbinHeaders.setHeaders(response);
+    response.setContentType(CT_APPLICATION_NDJSON);
+    write(response.getOutputStream(), RequestSnapshot.capture(request, MAX_PARAMETERS),
+        Math.min(lines, maxLines));
+  }
+
+  /**
+   * Writes the lines of a stream, flushing after each one.
+   *
+   * @param out      the OutputStream to write to.
+   * @param snapshot the request echoed on each line.
+   * @param lines    the number of lines.
+   * @throws IOException if writing fails.
+   */
+  static void write(OutputStream out, RequestSnapshot snapshot, long lines) throws IOException {
+    // Fields in the same order as the echo output: args, attributes, headers, id, url.
+    var text = new StringBuilder("{\"args\":");
+    Json.renderValue(snapshot.args(), text, false);
+    text.append(",\"attributes\":");
+    Json.renderValue(snapshot.attributes(), text, false);
+    text.append(",\"headers\":");
+    Json.renderValue(snapshot.headers(), text, false);
+    text.append(",\"id\":");
+    var prefix = text.toString().getBytes(UTF_8);
+    text.setLength(0);
+    text.append(",\"url\":");
+    Json.renderValue(snapshot.url(), text, false);
+    text.append("}\n");
+    var suffix = text.toString().getBytes(UTF_8);
+
+    var id = new byte[20];
+    for (long i = 0; i < lines; i++) {
+      out.write(prefix);
+      // The digits of i, right aligned in id.
+      var start = id.length;
+      var value = i;
+      do {
+        id[--start] = (byte) ('0' + value % 10);
+        value /= 10;
+      } while (value > 0);
+      out.write(id, start, id.length - start);
+      out.write(suffix);
+      out.flush();
+    }
+  }
+}
@@ -0,0 +1,309 @@
+package com.github.argherna.ajpbin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parsers for {@code application/x-www-form-urlencoded} data: query strings and form bodies.
+ */
+final class UrlEncoded {
+
+  /**
+   * Thrown when a form body exceeds the limits given to
+   * {@link UrlEncoded#parse(InputStream, Charset, int, int)}.
+   */
+  static final class LimitExceededException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    LimitExceededException(String message) {
+      super(message);
+    }
+  }
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private UrlEncoded() {
+  }
+
+  /**
+   * Parses the given url encoded String into a Map.
+   *
+   * <p>
+   * The String is walked once without splitting it. Names and values are only decoded if they
+   * contain {@code %} or {@code +}; percent-encoded bytes are decoded as UTF-8 and malformed escapes
+   * are kept as they are. A name without {@code =} gets an empty value and empty pairs are skipped.
+   * Pairs after the first {@code maxParameters} are ignored, as servlet containers do.
+   *
+   * @param params        url encoded String.
+   * @param maxParameters maximum number of name value pairs to parse.
+   * @return Map whose keys are the parameter names and whose values are the parameter value, or a
+   *         List of the values if the parameter occurs more than once.
+   */
+  static Map<String, Object> parse(String params, int maxParameters) {
+    var parameters = new HashMap<String, Object>();
+    var length = params.length();
+    var count = 0;
+    var start = 0;
+    while (start < length && count < maxParameters) {
+      var end = start;
+      var equals = -1;
+      var encoded = false;
+      for (; end < length; end++) {
+        var c = params.charAt(end);
+        if (c == '&') {
+          break;
+        } else if (c == '=' && equals < 0) {
+          equals = end;
+        } else if (c == '%' || c == '+') {
+          encoded = true;
+        }
+      }
+      var nameEnd = equals < 0 ? end : equals;
+      if (nameEnd > start) {
+        var name = encoded ? decode(params, start, nameEnd) : params.substring(start, nameEnd);
+        var value = equals < 0 ? ""
+            : encoded ? decode(params, equals + 1, end) : params.substring(equals + 1, end);
+        add(parameters, name, value);
+        count++;
+      }
+      start = end + 1;
+    }
+    return parameters;
+  }
+
+  /**
+   * Parses a url encoded form body from the given InputStream into a Map.
+   *
+   * <p>
+   * The stream is read once in blocks and decoded as it is read, so memory use is bounded by the
+   * size of the largest name or value rather than by the size of the body. Names and values are
+   * decoded the same way as by {@link #parse(String, int)}, with escaped bytes decoded in the given
+   * charset.
+   *
+   * @param in           the InputStream to read; not closed by this method.
+   * @param charset      the charset of the form data.
+   * @param maxFields    maximum number of name value pairs.
+   * @param maxFieldSize maximum number of bytes in a decoded name or value.
+   * @return Map as returned by {@link #parse(String, int)}.
+   * @throws LimitExceededException if the body has too many fields or a field is too large.
+   * @throws IOException            if reading fails.
+   */
+  static Map<String, Object> parse(InputStream in, Charset charset, int maxFields,
+      int maxFieldSize) throws IOException {
+    var parser = new FormParser(charset, maxFields, maxFieldSize);
+    var block = BufferPool.SHARED.acquire();
+    try {
+      int n;
+      while ((n = in.read(block, 0, block.length)) != -1) {
+        for (int i = 0; i < n; i++) {
+          parser.accept(block[i] & 0xff);
+        }
+      }
+      return parser.end();
+    } finally {
+      BufferPool.SHARED.release(block);
+    }
+  }
+
+  /**
+   * Adds a value to the given parameters, turning the value into a List when the name occurs again.
+   *
+   * @param parameters the parameters.
+   * @param name       the parameter name.
+   * @param value      the parameter value.
+   */
+  static void add(Map<String, Object> parameters, String name, Object value) {
+    var previous = parameters.putIfAbsent(name, value);
+    if (previous instanceof List) {
+      @SuppressWarnings("unchecked")
+      var values = (List<Object>) previous;
+      values.add(value);
+    } else if (previous != null) {
+      var values = new ArrayList<Object>(4);
+      values.add(previous);
+      values.add(value);
+      parameters.put(name, values);
+    }
+  }
+
+  /**
+   * Decodes the given range of a url encoded String.
+   *
+   * @param s     the String.
+   * @param start start of the range, inclusive.
+   * @param end   end of the range, exclusive.
+   * @return the decoded chars.
+   */
+  static String decode(CharSequence s, int start, int end) {
+    var decoded = new StringBuilder(end - start);
+    byte[] bytes = null;
+    var i = start;
+    while (i < end) {
+      var c = s.charAt(i);
+      if (c == '+') {
+        decoded.append(' ');
+        i++;
+      } else if (c == '%' && isEscape(s, i, end)) {
+        // Collect the run of escaped bytes so multi-byte UTF-8 sequences decode together.
+        if (bytes == null) {
+          bytes = new byte[(end - i) / 3];
+        }
+        var count = 0;
+        while (i < end && s.charAt(i) == '%' && isEscape(s, i, end)) {
+          bytes[count++] = (byte) (hex(s.charAt(i + 1)) << 4 | hex(s.charAt(i + 2)));
+          i += 3;
+        }
+        decoded.append(new String(bytes, 0, count, UTF_8));
+      } else {
+        decoded.append(c);
+        i++;
+      }
+    }
+    return decoded.toString();
+  }
+
+  private static boolean isEscape(CharSequence s, int i, int end) {
+    return i + 2 < end && hex(s.charAt(i + 1)) >= 0 && hex(s.charAt(i + 2)) >= 0;
+  }
+
+  private static int hex(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    } else if (c >= 'a' && c <= 'f') {
+      return c - 'a' + 10;
+    } else if (c >= 'A' && c <= 'F') {
+      return c - 'A' + 10;
+    }
+    return -1;
+  }
+
+  /**
+   * Decodes a form body one byte at a time.
+   */
+  private static final class FormParser {
+
+    private final Map<String, Object> parameters = new HashMap<>();
+
+    private final Charset charset;
+
+    private final int maxFields;
+
+    private final int maxFieldSize;
+
+    // Decoded bytes of the current name or value.
+    private byte[] field = new byte[64];
+
+    private int length;
+
+    private String name;
+
+    // Number of chars of a percent escape seen so far (0, 1 or 2) and its first hex digit.
+    private int escape;
+
+    private int escapeHigh;
+
+    private int fields;
+
+    private FormParser(Charset charset, int maxFields, int maxFieldSize) {
+      this.charset = charset;
+      this.maxFields = maxFields;
+      this.maxFieldSize = maxFieldSize;
+    }
+
+    private void accept(int b) throws LimitExceededException {
+      if (escape > 0) {
+        var digit = hex((char) b);
+        if (digit >= 0 && escape == 1) {
+          escapeHigh = b;
+          escape = 2;
+          return;
+        }
+        if (digit >= 0) {
+          escape = 0;
+          append(hex((char) escapeHigh) << 4 | digit);
+          return;
+        }
+        // Not an escape after all; keep the chars and handle this byte normally.
+        flushEscape();
+      }
+      switch (b) {
+        case '&':
+          endField();
+          break;
+        case '=':
+          if (name == null) {
+            name = new String(field, 0, length, charset);
+            length = 0;
+          } else {
+            append(b);
+          }
+          break;
+        case '+':
+          append(' ');
+          break;
+        case '%':
+          escape = 1;
+          break;
+        default:
+          append(b);
+          break;
+      }
+    }
+
+    private Map<String, Object> end() throws LimitExceededException {
+      endField();
+      return parameters;
+    }
+
+    private void endField() throws LimitExceededException {
+      flushEscape();
+      String value;
+      if (name == null) {
+        name = new String(field, 0, length, charset);
+        value = "";
+      } else {
+        value = new String(field, 0, length, charset);
+      }
+      if (!name.isEmpty()) {
+        if (++fields > maxFields) {
+          throw new LimitExceededException(
+              String.format("Form has more than %d fields", maxFields));
+        }
+        add(parameters, name, value);
+      }
+      name = null;
+      length = 0;
+    }
+
+    private void flushEscape() throws LimitExceededException {
+      if (escape > 0) {
+        append('%');
+        if (escape == 2) {
+          append(escapeHigh);
+        }
+        escape = 0;
+      }
+    }
+
+    private void append(int b) throws LimitExceededException {
+      if (length == maxFieldSize) {
+        throw new LimitExceededException(
+            String.format("Form field exceeds %d bytes", maxFieldSize));
+      }
+      if (length == field.length) {
+        field = Arrays.copyOf(field, (int) Math.min(field.length * 2L, maxFieldSize));
+      }
+      field[length++] = (byte) b;
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.VIRTUAL_FILE_BACKING_SIZE;
+import static com.github.argherna.ajpbin.Constants.VIRTUAL_FILE_MAX_SIZE;
+import static com.github.argherna.ajpbin.Constants.VIRTUAL_FILE_MIN_SIZE;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * The virtual files of the WebDAV tree, as described by the {@code files.properties} catalog.
+ *
+ * <p>
+ * A path names a file when its last segment is one of the catalog's file names followed by one of
+ * its extensions, in any directory. Nothing is stored per file: its size, entity tag and
+ * modification time are derived from a hash of the path, so the same path always gives the same
+ * file. Sizes are spread logarithmically between {@value Constants#VIRTUAL_FILE_MIN_SIZE} and
+ * {@value Constants#VIRTUAL_FILE_MAX_SIZE} bytes.
+ *
+ * <p>
+ * File content is a window into a single file of {@value Constants#VIRTUAL_FILE_BACKING_SIZE}
+ * pseudo-random bytes that is written to a temporary file and memory-mapped the first time any
+ * content is read. The mapping is shared by all files and requests and lives outside the heap.
+ */
+final class VirtualFiles {
+
+  // 2020-01-01T00:00:00Z; modification times fall in the three years after it.
+  private static final long MODIFIED_EPOCH = 1577836800000L;
+
+  private static final long MODIFIED_SPAN_SECONDS = 3 * 365 * 24 * 60 * 60L;
+
+  private final Set<String> names;
+
+  private final Map<String, String> contentTypes;
+
+  /**
+   * Constructs a new VirtualFiles.
+   *
+   * @param names        the file names.
+   * @param extensions   the file extensions.
+   * @param contentTypes the content type of each extension, in the same order.
+   * @throws IllegalArgumentException if there isn't a content type for each extension.
+   */
+  VirtualFiles(List<String> names, List<String> extensions, List<String> contentTypes) {
+    if (extensions.size() != contentTypes.size()) {
+      throw new IllegalArgumentException(String.format("%d extensions but %d content types",
+          extensions.size(), contentTypes.size()));
+    }
+    this.names = new HashSet<>();
+    for (var name : names) {
+      this.names.add(name.trim());
+    }
+    this.contentTypes = new HashMap<>();
+    for (int i = 0; i < extensions.size(); i++) {
+      this.contentTypes.put(extensions.get(i).trim().toLowerCase(Locale.ROOT),
+          contentTypes.get(i).trim());
+    }
+  }
+
+  /**
+   * Returns the file at a path.
+   *
+   * @param path the path of the file below the WebDAV root, starting with {@code /}; may be
+   *             {@code null}.
+   * @return the file, or {@code null} if the catalog has no file at the path.
+   */
+  VirtualFile find(String path) {
+    if (path == null || !path.startsWith("/")) {
+      return null;
+    }
+    var resourceName = path.substring(path.lastIndexOf('/') + 1);
+    var dot = resourceName.lastIndexOf('.');
+    if (dot < 0 || !names.contains(resourceName.substring(0, dot))) {
+      return null;
+    }
+    var contentType =
+        contentTypes.get(resourceName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    return contentType == null ? null : new VirtualFile(path, contentType);
+  }
+
+  /**
+   * A file of the catalog.
+   */
+  static final class VirtualFile implements GeneratedContent {
+
+    private final String contentType;
+
+    private final long length;
+
+    private final int offset;
+
+    private final String etag;
+
+    private final long lastModified;
+
+    private VirtualFile(String path, String contentType) {
+      this.contentType = contentType;
+      var hash = hash(path);
+      var random = new SplittableRandom(hash);
+      var min = Math.log(VIRTUAL_FILE_MIN_SIZE);
+      var max = Math.log(VIRTUAL_FILE_MAX_SIZE);
+      length = Math.round(Math.exp(min + random.nextDouble() * (max - min)));
+      offset = random.nextInt(VIRTUAL_FILE_BACKING_SIZE);
+      lastModified = MODIFIED_EPOCH + random.nextLong(MODIFIED_SPAN_SECONDS) * 1000L;
+      etag = "\"" + Long.toHexString(hash) + "\"";
+    }
+
+    /**
+     * @return the content type of the file.
+     */
+    String contentType() {
+      return contentType;
+    }
+
+    /**
+     * @return the quoted strong entity tag of the file.
+     */
+    String etag() {
+      return etag;
+    }
+
+    /**
+     * @return the modification time of the file in whole seconds.
+     */
+    long lastModified() {
+      return lastModified;
+    }
+
+    @Override
+    public long length() {
+      return length;
+    }
+
+    @Override
+    public void write(OutputStream out, long position, long count) throws IOException {
+      // The view keeps the position of this write from racing other requests' writes.
+      var view = Backing.BUFFER.duplicate();
+      var buffer = BufferPool.SHARED.acquire();
+      try {
+        var index = (int) ((offset + position) % VIRTUAL_FILE_BACKING_SIZE);
+        var remaining = count;
+        while (remaining > 0) {
+          var slice = (int) Math.min(remaining,
+              Math.min(buffer.length, VIRTUAL_FILE_BACKING_SIZE - index));
+          view.position(index);
+          view.get(buffer, 0, slice);
+          out.write(buffer, 0, slice);
+          remaining -= slice;
+          index = (index + slice) % VIRTUAL_FILE_BACKING_SIZE;
+        }
+      } finally {
+        BufferPool.SHARED.release(buffer);
+      }
+    }
+  }
+
+  // FNV-1a, which unlike String.hashCode spreads similar paths over all 64 bits.
+  private static long hash(String path) {
+    var hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < path.length(); i++) {
+      hash ^= path.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /**
+   * Holds the mapping so that it is only made when content is first read.
+   */
+  private static final class Backing {
+
+    private static final ByteBuffer BUFFER = map();
+
+    private static ByteBuffer map() {
+      try {
+        var file = Files.createTempFile("ajpbin-webdav", ".bin");
+        try {
+          try (var out = Files.newOutputStream(file)) {
+            // Not RandomBytes, whose block is smaller and would just repeat.
+            var random = new SplittableRandom(0x7765626461764cL);
+            var block = new byte[64 * 1024];
+            for (int written = 0; written < VIRTUAL_FILE_BACKING_SIZE; written += block.length) {
+              for (int i = 0; i < block.length; i += 8) {
+                var value = random.nextLong();
+                for (int j = 0; j < 8; j++) {
+                  block[i + j] = (byte) (value >>> (j * 8));
+                }
+              }
+              out.write(block);
+            }
+          }
+          try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed and the file deleted.
+            return channel.map(READ_ONLY, 0, VIRTUAL_FILE_BACKING_SIZE);
+          }
+        } finally {
+          try {
+            Files.delete(file);
+          } catch (IOException e) {
+            // Some platforms can't delete a mapped file.
+            file.toFile().deleteOnExit();
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
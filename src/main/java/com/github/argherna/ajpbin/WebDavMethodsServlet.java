@@ -22,6 +22,8 @@ import static javax.servlet.http.HttpServletResponse.SC_CONFLICT;
 import static javax.servlet.http.HttpServletResponse.SC_CREATED;
 import static javax.servlet.http.HttpServletResponse.SC_FORBIDDEN;
 import static javax.servlet.http.HttpServletResponse.SC_METHOD_NOT_ALLOWED;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_FOUND;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
 import static javax.servlet.http.HttpServletResponse.SC_NO_CONTENT;
 import static javax.servlet.http.HttpServletResponse.SC_OK;
 import static javax.servlet.http.HttpServletResponse.SC_PRECONDITION_FAILED;
@@ -51,7 +53,7 @@ import javax.xml.stream.XMLStreamException;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
-@WebServlet(name = "WebDavMethodsServlet", urlPatterns = { "/webdav/*" })
+@WebServlet(name = "WebDavMethodsServlet", urlPatterns = { "/webdav/*" }, asyncSupported = true)
 public class WebDavMethodsServlet extends HttpServlet {
 
   private static final Logger LOGGER = Logger.getLogger(WebDavMethodsServlet.class.getName());
@@ -72,7 +74,6 @@ public class WebDavMethodsServlet extends HttpServlet {
   private static final String METHOD_PROPPATCH = "PROPPATCH";
   private static final String METHOD_UNLOCK = "UNLOCK";
 
-  private static final String HEADER_IFMODSINCE = "If-Modified-Since";
   private static final String HEADER_LASTMOD = "Last-Modified";
 
   private static final String LSTRING_FILE = "com.github.argherna.ajpbin.LocalStrings";
@@ -95,6 +96,8 @@ public class WebDavMethodsServlet extends HttpServlet {
 
   private final List<String> contentTypes = new ArrayList<>();
 
+  private VirtualFiles virtualFiles;
+
   @Override
   public void init() throws ServletException {
     try (var is = WebDavMethodsServlet.class.getResourceAsStream(FILES)) {
@@ -103,7 +106,8 @@ public class WebDavMethodsServlet extends HttpServlet {
       fileNames.addAll(Arrays.asList(propsIn.getProperty("filenames").split(",")));
       fileExtensions.addAll(Arrays.asList(propsIn.getProperty("extensions").split(",")));
       contentTypes.addAll(Arrays.asList(propsIn.getProperty("contentTypes").split(",")));
-    } catch (IOException e) {
+      virtualFiles = new VirtualFiles(fileNames, fileExtensions, contentTypes);
+    } catch (IOException | IllegalArgumentException e) {
       throw new ServletException(e);
     }
   }
@@ -113,23 +117,11 @@ public class WebDavMethodsServlet extends HttpServlet {
     String method = req.getMethod();
 
     if (method.equals(METHOD_GET)) {
+      // Conditional requests are evaluated by doGet, which also knows the entity tag that
+      // If-None-Match takes precedence with and that a 304 response has to carry.
       long lastModified = getLastModified(req);
-      if (lastModified == -1) {
-        // servlet doesn't support if-modified-since, no reason
-        // to go through further expensive logic
-        doGet(req, resp);
-      } else {
-        long ifModifiedSince = req.getDateHeader(HEADER_IFMODSINCE);
-        if (ifModifiedSince < lastModified) {
-          // If the servlet mod time is later, call doGet()
-          // Round down to the nearest second for a proper compare
-          // A ifModifiedSince of -1 will always be less
-          maybeSetLastModified(resp, lastModified);
-          doGet(req, resp);
-        } else {
-          resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
-        }
-      }
+      maybeSetLastModified(resp, lastModified);
+      doGet(req, resp);
 
     } else if (method.equals(METHOD_HEAD)) {
       long lastModified = getLastModified(req);
@@ -187,6 +179,89 @@ public class WebDavMethodsServlet extends HttpServlet {
     }
   }
 
+  /**
+   * Return a response to the {@code GET} method.
+   * 
+   * <p>
+   * The resource must be a file of the {@code files.properties} catalog, which is
+   * any path whose last segment is one of its file names with one of its
+   * extensions, or a {@value HttpServletResponse#SC_NOT_FOUND} status is
+   * returned. The content of a file, its size, {@code ETag} and
+   * {@code Last-Modified} are the same on every request for its path. Byte
+   * ranges of the content can be requested with the {@code Range} header.
+   * 
+   * <p>
+   * The HTTP statuses that this method can return are:
+   * <ul>
+   * <li>{@value HttpServletResponse#SC_OK} OK
+   * <li>{@value HttpServletResponse#SC_PARTIAL_CONTENT} Partial Content
+   * <li>{@value HttpServletResponse#SC_NOT_MODIFIED} Not Modified
+   * <li>{@value HttpServletResponse#SC_NOT_FOUND} Not Found
+   * <li>{@value HttpServletResponse#SC_REQUESTED_RANGE_NOT_SATISFIABLE} Requested
+   * Range Not Satisfiable
+   * </ul>
+   * 
+   * @param request  the HttpServletRequest.
+   * @param response the HttpServletResponse.
+   * @throws IOException if an IOException occurs.
+   * @see VirtualFiles
+   */
+  @Override
+  protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    var file = virtualFiles.find(request.getPathInfo());
+    if (file == null) {
+      response.sendError(SC_NOT_FOUND, STATUS_CODES_DESCRIPTIONS.get(SC_NOT_FOUND));
+      return;
+    }
+    AjpbinHeaders.setHeaders(response);
+    if (notModified(request, response, file)) {
+      return;
+    }
+    Ranges.serve(request, response, file, file.contentType(), file.etag());
+  }
+
+  /**
+   * Return a response to the {@code HEAD} method.
+   * 
+   * <p>
+   * The headers are the ones {@link #doGet(HttpServletRequest, HttpServletResponse)}
+   * returns for the whole file, without reading any of its content.
+   * 
+   * @param request  the HttpServletRequest.
+   * @param response the HttpServletResponse.
+   * @throws IOException if an IOException occurs.
+   */
+  @Override
+  protected void doHead(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    var file = virtualFiles.find(request.getPathInfo());
+    if (file == null) {
+      response.sendError(SC_NOT_FOUND, STATUS_CODES_DESCRIPTIONS.get(SC_NOT_FOUND));
+      return;
+    }
+    AjpbinHeaders.setHeaders(response);
+    if (notModified(request, response, file)) {
+      return;
+    }
+    response.setStatus(SC_OK);
+    response.setHeader("Accept-Ranges", "bytes");
+    response.setContentType(file.contentType());
+    response.setContentLengthLong(file.length());
+  }
+
+  /**
+   * Return the modification time of a file of the {@code files.properties}
+   * catalog.
+   * 
+   * @param request the HttpServletRequest.
+   * @return the modification time in whole seconds, or {@code -1} if the resource
+   *         isn't a file of the catalog.
+   */
+  @Override
+  protected long getLastModified(HttpServletRequest request) {
+    var file = virtualFiles.find(request.getPathInfo());
+    return file == null ? -1 : file.lastModified();
+  }
+
   /**
    * Return a response to the {@code COPY} method.
    * 
@@ -711,6 +786,16 @@ public class WebDavMethodsServlet extends HttpServlet {
     return request.getRequestURI().substring(0, request.getContextPath().length() + "/webdav".length());
   }
 
+  private static boolean notModified(HttpServletRequest request, HttpServletResponse response,
+      VirtualFiles.VirtualFile file) {
+    response.setHeader("ETag", file.etag());
+    if (ConditionalServlet.notModified(request, file.etag(), file.lastModified())) {
+      response.setStatus(SC_NOT_MODIFIED);
+      return true;
+    }
+    return false;
+  }
+
   private static boolean validIfHeader(String ifH) {
     return ifH.startsWith(H_WEBDAV_BEGIN_IF_HEADER) && ifH.contains(WEBDAV_OPAQUE_LOCK_TOKEN)
         && ifH.endsWith(H_WEBDAV_END_IF_HEADER);
@@ -0,0 +1,60 @@
+package com.github.argherna.ajpbin;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class AjpAttributesTest {
+
+  private static final String CERTIFICATE = "-----BEGIN CERTIFICATE-----\n"
+      + "MIIBtDCCAVmgAwIBAgIUdd1gc1TmzAoyVV3rYcRWysZ7wXEwCgYIKoZIzj0EAwIw\n"
+      + "LjEbMBkGA1UEAwwSYWpwYmluIHRlc3QgY2xpZW50MQ8wDQYDVQQKDAZhanBiaW4w\n"
+      + "IBcNMjYxMDE3MDIzMjE3WhgPMjEyNjA5MjMwMjMyMTdaMC4xGzAZBgNVBAMMEmFq\n"
+      + "cGJpbiB0ZXN0IGNsaWVudDEPMA0GA1UECgwGYWpwYmluMFkwEwYHKoZIzj0CAQYI\n"
+      + "KoZIzj0DAQcDQgAETYLXTHYGlwdZL9jJICDt0qY5Lr5bAWr4AIg7wwWJm4oFSzOq\n"
+      + "U54kGVmFX2ggzO0mvOq18qwwd1ltmDwUaL4EzqNTMFEwHQYDVR0OBBYEFHvKqUwB\n"
+      + "oF+ATzY/THy8fChJlpjdMB8GA1UdIwQYMBaAFHvKqUwBoF+ATzY/THy8fChJlpjd\n"
+      + "MA8GA1UdEwEB/wQFMAMBAf8wCgYIKoZIzj0EAwIDSQAwRgIhAPJMl/HGfDbRzjO1\n"
+      + "Pjo43kotI99r+KPPvt8PKhZx+nzoAiEAvbDA7AVe7gUn9q6anaXtU/G8Zb2KSuPu\n"
+      + "qN/TkGvipy0=\n"
+      + "-----END CERTIFICATE-----\n";
+
+  @Test
+  void testCertificateSummariesAreCached() throws Exception {
+    var certificate = (X509Certificate) CertificateFactory.getInstance("X.509")
+        .generateCertificate(new ByteArrayInputStream(CERTIFICATE.getBytes(US_ASCII)));
+    var chain = new X509Certificate[] {certificate};
+
+    var decoded = (List<?>) AjpAttributes.decode(AjpAttributes.CERTIFICATE_ATTR_NAME, chain);
+
+    assertEquals(List.of(Map.of("subject", "O=ajpbin,CN=ajpbin test client",
+        "issuer", "O=ajpbin,CN=ajpbin test client",
+        "serialNumber", "75dd607354e6cc0a32555deb61c456cac67bc171",
+        "notBefore", "2026-10-17T02:32:17Z", "notAfter", "2126-09-23T02:32:17Z",
+        "sha256", "319f94df98931007634ab67ab8223777acbdb6ddeb9190ab61fa35a823432498")), decoded);
+    var cached = AjpAttributes.cachedCertificates();
+    assertSame(decoded.get(0),
+        ((List<?>) AjpAttributes.decode(AjpAttributes.CERTIFICATE_ATTR_NAME, chain)).get(0));
+    assertEquals(cached, AjpAttributes.cachedCertificates());
+  }
+
+  @Test
+  void testDecodeTlsAndPortAttributes() {
+    assertEquals(256, AjpAttributes.decode(AjpAttributes.KEY_SIZE_ATTR_NAME, "256"));
+    assertEquals(54321, AjpAttributes.decode(AjpAttributes.REMOTE_PORT_ATTR_NAME, "54321"));
+    assertEquals("TLS_AES_128_GCM_SHA256",
+        AjpAttributes.decode(AjpAttributes.CIPHER_SUITE_ATTR_NAME, "TLS_AES_128_GCM_SHA256"));
+    assertEquals(List.of("a", "b"), AjpAttributes.decode("other", new String[] {"a", "b"}));
+    assertEquals(Arrays.asList("a", null), AjpAttributes.decode("other", new String[] {"a", null}));
+    assertEquals(true, AjpAttributes.decode("other", true));
+  }
+}
@@ -0,0 +1,86 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.ServletApiProxies.createHttpServletResponseProxy;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class BinaryFormatTest {
+
+  private static final Map<String, Object> DATA = new LinkedHashMap<>();
+
+  static {
+    DATA.put("a", 1);
+    DATA.put("b", List.of(true, "x", "", -300, 1.5));
+    DATA.put("e", "");
+    DATA.put("é", 70000L);
+  }
+
+  @Test
+  void testCbor() throws IOException {
+    assertArrayEquals(bytes(0xa3, 0x61, 'a', 0x01, 0x61, 'b', 0x84, 0xf5, 0x61, 'x', 0x39, 0x01,
+        0x2b, 0xfb, 0x3f, 0xf8, 0, 0, 0, 0, 0, 0, 0x62, 0xc3, 0xa9, 0x1a, 0x00, 0x01, 0x11, 0x70),
+        render(BinaryFormat.CBOR));
+  }
+
+  @Test
+  void testMessagePack() throws IOException {
+    assertArrayEquals(bytes(0x83, 0xa1, 'a', 0x01, 0xa1, 'b', 0x94, 0xc3, 0xa1, 'x', 0xd1, 0xfe,
+        0xd4, 0xcb, 0x3f, 0xf8, 0, 0, 0, 0, 0, 0, 0xa2, 0xc3, 0xa9, 0xce, 0x00, 0x01, 0x11, 0x70),
+        render(BinaryFormat.MESSAGE_PACK));
+  }
+
+  @Test
+  void testStringEndingInLoneHighSurrogate() throws IOException {
+    // The held back high surrogate must end with its string, not join the next one's low surrogate.
+    var data = new LinkedHashMap<String, Object>();
+    data.put("a", "x\ud800");
+    data.put("\udc00", 1);
+
+    assertArrayEquals(bytes(0xa2, 0x61, 'a', 0x62, 'x', '?', 0x61, '?', 0x01),
+        render(BinaryFormat.CBOR, data));
+    assertArrayEquals(bytes(0x82, 0xa1, 'a', 0xa2, 'x', '?', 0xa1, '?', 0x01),
+        render(BinaryFormat.MESSAGE_PACK, data));
+  }
+
+  @Test
+  void testNegotiate() {
+    assertNull(BinaryFormat.negotiate(null));
+    assertNull(BinaryFormat.negotiate("*/*"));
+    assertNull(BinaryFormat.negotiate("application/json, application/cbor;q=0.5"));
+    assertNull(BinaryFormat.negotiate("application/cbor;q=0"));
+    assertEquals(BinaryFormat.CBOR, BinaryFormat.negotiate("application/cbor"));
+    assertEquals(BinaryFormat.CBOR,
+        BinaryFormat.negotiate("application/json;q=0.9, application/cbor"));
+    assertEquals(BinaryFormat.MESSAGE_PACK,
+        BinaryFormat.negotiate("application/cbor;q=0.5, application/x-msgpack, */*;q=0.1"));
+  }
+
+  private static byte[] render(BinaryFormat format) throws IOException {
+    return render(format, DATA);
+  }
+
+  private static byte[] render(BinaryFormat format, Map<String, Object> data)
+      throws IOException {
+    var respIh = SerlvetApiInvocationHandler.builder().build();
+    var sink = new Json.Utf8Sink(createHttpServletResponseProxy(respIh));
+    format.renderObject(data, sink, false);
+    sink.close();
+    return respIh.getResponseBody();
+  }
+
+  private static byte[] bytes(int... values) {
+    var bytes = new byte[values.length];
+    for (int i = 0; i < values.length; i++) {
+      bytes[i] = (byte) values[i];
+    }
+    return bytes;
+  }
+}
@@ -0,0 +1,153 @@
+package com.github.argherna.ajpbin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.servlet.http.HttpServletResponse.SC_REQUEST_TIMEOUT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+
+class BodyReadListenerTest {
+
+  private final BodyInputStream in = new BodyInputStream("name=value".getBytes(UTF_8));
+
+  private final SerlvetApiInvocationHandler handler = SerlvetApiInvocationHandler.builder().build();
+
+  private AsyncListener asyncListener;
+
+  private int dispatches;
+
+  private int completions;
+
+  @Test
+  void testBodyReadThenDispatched() throws Exception {
+    BodyReadListener.start(asyncContext(), RequestBody.Limits.DEFAULT);
+
+    in.listener.onDataAvailable();
+    in.listener.onAllDataRead();
+
+    var body = (RequestBody) handler.getRequestAttributes().get(Constants.REQUEST_BODY_ATTR_NAME);
+    assertNotNull(body);
+    assertEquals("name=value", body.toText(UTF_8));
+    assertEquals(1, dispatches);
+    assertEquals(0, completions);
+    body.release();
+  }
+
+  @Test
+  void testTimeoutAnswersAndCompletes() throws Exception {
+    var asyncContext = asyncContext();
+    BodyReadListener.start(asyncContext, RequestBody.Limits.DEFAULT);
+    in.ready = false;
+
+    asyncListener.onTimeout(new AsyncEvent(asyncContext));
+    // The body is gone, so data arriving late is ignored.
+    in.ready = true;
+    in.listener.onDataAvailable();
+    in.listener.onAllDataRead();
+
+    assertEquals(SC_REQUEST_TIMEOUT, handler.getStatusCode());
+    assertEquals(1, completions);
+    assertEquals(0, dispatches);
+    assertFalse(handler.getRequestAttributes().containsKey(Constants.REQUEST_BODY_ATTR_NAME));
+  }
+
+  @Test
+  void testAsyncErrorCompletes() throws Exception {
+    var asyncContext = asyncContext();
+    BodyReadListener.start(asyncContext, RequestBody.Limits.DEFAULT);
+
+    asyncListener.onError(new AsyncEvent(asyncContext, new IOException("Connection reset")));
+    asyncListener.onError(new AsyncEvent(asyncContext, new IOException("Connection reset")));
+
+    assertEquals(1, completions);
+    assertEquals(0, dispatches);
+  }
+
+  private AsyncContext asyncContext() {
+    var request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {HttpServletRequest.class},
+        (proxy, method, args) -> method.getName().equals("getInputStream") ? in
+            : handler.invoke(proxy, method, args));
+    var response = (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {HttpServletResponse.class}, handler);
+    return (AsyncContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {AsyncContext.class}, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getRequest":
+              return request;
+            case "getResponse":
+              return response;
+            case "addListener":
+              asyncListener = (AsyncListener) args[0];
+              return null;
+            case "dispatch":
+              dispatches++;
+              return null;
+            case "complete":
+              completions++;
+              return null;
+            default:
+              throw new NoSuchMethodException(method.getName() + " not supported!");
+          }
+        });
+  }
+
+  private static final class BodyInputStream extends ServletInputStream {
+
+    private final byte[] bytes;
+
+    private int position;
+
+    private boolean ready = true;
+
+    private ReadListener listener;
+
+    private BodyInputStream(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public boolean isFinished() {
+      return position == bytes.length;
+    }
+
+    @Override
+    public boolean isReady() {
+      return ready && !isFinished();
+    }
+
+    @Override
+    public void setReadListener(ReadListener readListener) {
+      listener = readListener;
+    }
+
+    @Override
+    public int read() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (isFinished()) {
+        return -1;
+      }
+      var n = Math.min(len, bytes.length - position);
+      System.arraycopy(bytes, position, b, off, n);
+      position += n;
+      return n;
+    }
+  }
+}
@@ -0,0 +1,152 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.ServletApiProxies.createHttpServletRequestProxy;
+import static com.github.argherna.ajpbin.ServletApiProxies.createHttpServletResponseProxy;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CompressionFilterTest {
+
+  private static final String LARGE_BODY = "{\"data\":\"" + "compressible ".repeat(5000) + "\"}";
+
+  private CompressionFilter filter;
+
+  @BeforeEach
+  void setup() throws ServletException {
+    filter = new CompressionFilter();
+    filter.init();
+  }
+
+  @AfterEach
+  void teardown() {
+    filter.destroy();
+  }
+
+  @Test
+  void testGzipLargeBody() throws IOException, ServletException {
+    var respIh = filter("gzip, deflate", LARGE_BODY);
+
+    assertEquals("gzip", respIh.getResponseHeaders().get("Content-Encoding"));
+    assertEquals(-1, respIh.getContentLength());
+    try (var in = new GZIPInputStream(new ByteArrayInputStream(respIh.getResponseBody()))) {
+      assertEquals(LARGE_BODY, new String(in.readAllBytes(), UTF_8));
+    }
+  }
+
+  @Test
+  void testDeflateLargeBody() throws IOException, ServletException {
+    var respIh = filter("deflate", LARGE_BODY);
+
+    assertEquals("deflate", respIh.getResponseHeaders().get("Content-Encoding"));
+    try (var in = new InflaterInputStream(new ByteArrayInputStream(respIh.getResponseBody()))) {
+      assertEquals(LARGE_BODY, new String(in.readAllBytes(), UTF_8));
+    }
+  }
+
+  @Test
+  void testSmallBodyNotCompressed() throws IOException, ServletException {
+    var respIh = filter("gzip", "{\"small\":true}");
+
+    assertFalse(respIh.getResponseHeaders().containsKey("Content-Encoding"));
+    assertEquals(14, respIh.getContentLength());
+    assertEquals("{\"small\":true}", new String(respIh.getResponseBody(), UTF_8));
+  }
+
+  @Test
+  void testNoAcceptEncodingNotCompressed() throws IOException, ServletException {
+    var respIh = filter(null, LARGE_BODY);
+
+    assertFalse(respIh.getResponseHeaders().containsKey("Content-Encoding"));
+    assertEquals(LARGE_BODY, new String(respIh.getResponseBody(), UTF_8));
+  }
+
+  @Test
+  void testRangeableBodyNotCompressed() throws IOException, ServletException {
+    var reqIh = SerlvetApiInvocationHandler.builder()
+        .requestHeaders(Map.of("Accept-Encoding", List.of("gzip"))).build();
+    var respIh = SerlvetApiInvocationHandler.builder().build();
+    filter.doFilter(createHttpServletRequestProxy(reqIh), createHttpServletResponseProxy(respIh),
+        (request, response) -> {
+          ((HttpServletResponse) response).setHeader("Accept-Ranges", "bytes");
+          var sink = new Json.Utf8Sink(response);
+          sink.append(LARGE_BODY);
+          sink.close();
+        });
+
+    assertFalse(respIh.getResponseHeaders().containsKey("Content-Encoding"));
+    assertEquals(LARGE_BODY, new String(respIh.getResponseBody(), UTF_8));
+  }
+
+  @Test
+  void testFailedResponseWritesNothingMore() throws IOException, ServletException {
+    var reqIh = SerlvetApiInvocationHandler.builder()
+        .requestHeaders(Map.of("Accept-Encoding", List.of("gzip"))).build();
+    var respIh = SerlvetApiInvocationHandler.builder().build();
+    var response = createHttpServletResponseProxy(respIh);
+    var out = new ServletOutputStream[1];
+
+    assertThrows(IOException.class, () -> filter.doFilter(createHttpServletRequestProxy(reqIh),
+        response, (req, resp) -> {
+          out[0] = resp.getOutputStream();
+          for (var b : LARGE_BODY.getBytes(UTF_8)) {
+            out[0].write(b);
+          }
+          throw new IOException("Client aborted");
+        }));
+
+    var written = respIh.getResponseBody().length;
+    assertThrows(IOException.class, () -> out[0].write(1));
+    out[0].close();
+    assertEquals(written, respIh.getResponseBody().length);
+    // No trailer was written.
+    try (var in = new GZIPInputStream(new ByteArrayInputStream(respIh.getResponseBody()))) {
+      assertThrows(EOFException.class, in::readAllBytes);
+    }
+  }
+
+  @Test
+  void testNegotiate() {
+    assertNull(CompressionFilter.negotiate(null));
+    assertNull(CompressionFilter.negotiate("identity"));
+    assertNull(CompressionFilter.negotiate("gzip;q=0, deflate;q=0"));
+    assertEquals("gzip", CompressionFilter.negotiate("deflate, gzip"));
+    assertEquals("gzip", CompressionFilter.negotiate("*"));
+    assertEquals("deflate", CompressionFilter.negotiate("gzip;q=0.5, deflate"));
+    assertEquals("deflate", CompressionFilter.negotiate("gzip;q=0, *"));
+  }
+
+  private SerlvetApiInvocationHandler filter(String acceptEncoding, String body)
+      throws IOException, ServletException {
+    var reqIh = SerlvetApiInvocationHandler.builder()
+        .requestHeaders(acceptEncoding == null ? Map.of()
+            : Map.of("Accept-Encoding", List.of(acceptEncoding)))
+        .build();
+    var respIh = SerlvetApiInvocationHandler.builder().build();
+    filter.doFilter(createHttpServletRequestProxy(reqIh), createHttpServletResponseProxy(respIh),
+        (request, response) -> {
+          var sink = new Json.Utf8Sink(response);
+          sink.append(body);
+          sink.close();
+        });
+    return respIh;
+  }
+}
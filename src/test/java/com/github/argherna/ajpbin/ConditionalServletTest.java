@@ -0,0 +1,88 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.ServletApiProxies.createHttpServletRequestProxy;
+import static com.github.argherna.ajpbin.ServletApiProxies.createHttpServletResponseProxy;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
+import static javax.servlet.http.HttpServletResponse.SC_OK;
+import static javax.servlet.http.HttpServletResponse.SC_PRECONDITION_FAILED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class ConditionalServletTest {
+
+  private final ConditionalServlet servlet = new ConditionalServlet();
+
+  @Test
+  void testEtagIfNoneMatch() throws Exception {
+    var handler = get("/etag", "/abc", Map.of("If-None-Match", List.of("\"x\", W/\"abc\"")));
+
+    assertEquals(SC_NOT_MODIFIED, handler.getStatusCode());
+    assertEquals("\"abc\"", handler.getResponseHeaders().get("ETag"));
+    assertNull(handler.getRequestAttributes().get(Constants.OUTPUT_ECHO_ATTR_NAME));
+
+    handler = get("/etag", "/abc", Map.of("If-None-Match", List.of("\"x\"")));
+    assertEquals(SC_OK, handler.getStatusCode());
+    assertNotNull(handler.getRequestAttributes().get(Constants.OUTPUT_ECHO_ATTR_NAME));
+  }
+
+  @Test
+  void testEtagIfMatch() throws Exception {
+    assertEquals(SC_PRECONDITION_FAILED,
+        get("/etag", "/abc", Map.of("If-Match", List.of("W/\"abc\""))).getStatusCode());
+    assertEquals(SC_OK, get("/etag", "/abc", Map.of("If-Match", List.of("*"))).getStatusCode());
+  }
+
+  @Test
+  void testCacheRevalidation() throws Exception {
+    var handler = get("/cache", null, Map.of());
+    assertEquals(SC_OK, handler.getStatusCode());
+    var etag = (String) handler.getResponseHeaders().get("ETag");
+    var lastModified = (Long) handler.getResponseHeaders().get("Last-Modified");
+
+    assertEquals(SC_NOT_MODIFIED,
+        get("/cache", null, Map.of("If-None-Match", List.of(etag))).getStatusCode());
+    var date = DateTimeFormatter.RFC_1123_DATE_TIME
+        .format(Instant.ofEpochMilli(lastModified).atOffset(ZoneOffset.UTC));
+    assertEquals(SC_NOT_MODIFIED,
+        get("/cache", null, Map.of("If-Modified-Since", List.of(date))).getStatusCode());
+    // If-None-Match takes precedence over If-Modified-Since.
+    assertEquals(SC_OK, get("/cache", null,
+        Map.of("If-None-Match", List.of("\"other\""), "If-Modified-Since", List.of(date)))
+            .getStatusCode());
+  }
+
+  @Test
+  void testCacheMaxAge() throws Exception {
+    var handler = get("/cache", "/60", Map.of());
+
+    assertEquals("public, max-age=60", handler.getResponseHeaders().get("Cache-Control"));
+    assertNotNull(handler.getRequestAttributes().get(Constants.OUTPUT_ECHO_ATTR_NAME));
+  }
+
+  @Test
+  void testMatches() {
+    assertTrue(ConditionalServlet.matches("W/\"a\"", "\"a\"", true));
+    assertFalse(ConditionalServlet.matches("W/\"a\"", "\"a\"", false));
+    assertTrue(ConditionalServlet.matches(" \"b\" ,\"a\"", "\"a\"", false));
+  }
+
+  private SerlvetApiInvocationHandler get(String servletPath, String pathInfo,
+      Map<String, List<String>> headers) throws Exception {
+    var handler = SerlvetApiInvocationHandler.builder().method("GET").servletPath(servletPath)
+        .pathInfo(pathInfo).requestURI(servletPath + (pathInfo == null ? "" : pathInfo))
+        .requestHeaders(headers).build();
+    servlet.doGet(createHttpServletRequestProxy(handler), createHttpServletResponseProxy(handler));
+    return handler;
+  }
+}
@@ -0,0 +1,115 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.Constants.OUTPUT_ECHO_ATTR_NAME;
+import static com.github.argherna.ajpbin.Constants.REQUEST_BODY_ATTR_NAME;
+import static com.github.argherna.ajpbin.ServletApiProxies.createHttpServletRequestProxy;
+import static com.github.argherna.ajpbin.ServletApiProxies.createHttpServletResponseProxy;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.servlet.http.HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DelayServletTest {
+
+  private final DelayServlet servlet = new DelayServlet();
+
+  @BeforeEach
+  void setup() throws Exception {
+    servlet.init();
+  }
+
+  @Test
+  void testGetDispatchedAfterDelay() throws Exception {
+    var handler = SerlvetApiInvocationHandler.builder().method("GET").servletPath("/delay-ms")
+        .pathInfo("/20").requestURI("/delay-ms/20").asyncSupported(true).build();
+    var request = createHttpServletRequestProxy(handler);
+    var response = createHttpServletResponseProxy(handler);
+
+    servlet.service(request, response);
+    assertNull(handler.getRequestAttributes().get(OUTPUT_ECHO_ATTR_NAME));
+
+    assertTrue(handler.awaitDispatch(5, TimeUnit.SECONDS));
+    servlet.service(request, response);
+    assertNotNull(handler.getRequestAttributes().get(OUTPUT_ECHO_ATTR_NAME));
+  }
+
+  @Test
+  void testPostEchoesBody() throws Exception {
+    var handler = SerlvetApiInvocationHandler.builder().method("POST").servletPath("/delay-ms")
+        .pathInfo("/10").requestURI("/delay-ms/10").asyncSupported(true)
+        .requestHeaders(Map.of("Content-Type", List.of("application/x-www-form-urlencoded")))
+        .build();
+    var request = createHttpServletRequestProxy(handler);
+    var response = createHttpServletResponseProxy(handler);
+
+    servlet.service(request, response);
+    assertTrue(handler.awaitDispatch(5, TimeUnit.SECONDS));
+    // As a BodyReadListener leaves it once the body has been read.
+    request.setAttribute(REQUEST_BODY_ATTR_NAME, RequestBody.read(
+        new ByteArrayInputStream("name=value".getBytes(UTF_8)), -1, RequestBody.Limits.DEFAULT));
+    servlet.service(request, response);
+
+    var echo = (EchoResponse) handler.getRequestAttributes().get(OUTPUT_ECHO_ATTR_NAME);
+    assertEquals(Map.of("name", "value"), echo.getForm());
+  }
+
+  @Test
+  void testDelayWithoutAsyncSupportFails() throws Exception {
+    var handler = SerlvetApiInvocationHandler.builder().method("GET").servletPath("/delay-ms")
+        .pathInfo("/10000").requestURI("/delay-ms/10000").build();
+
+    var start = System.nanoTime();
+    servlet.service(createHttpServletRequestProxy(handler),
+        createHttpServletResponseProxy(handler));
+
+    assertEquals(SC_INTERNAL_SERVER_ERROR, handler.getStatusCode());
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    assertNull(handler.getRequestAttributes().get(OUTPUT_ECHO_ATTR_NAME));
+  }
+
+  @Test
+  void testZeroDelayWithoutAsyncSupport() throws Exception {
+    var handler = SerlvetApiInvocationHandler.builder().method("POST").servletPath("/delay")
+        .pathInfo("/0").requestURI("/delay/0")
+        .requestHeaders(Map.of("Content-Type", List.of("application/x-www-form-urlencoded")))
+        .requestBodyText("name=value").build();
+
+    servlet.service(createHttpServletRequestProxy(handler),
+        createHttpServletResponseProxy(handler));
+
+    var echo = (EchoResponse) handler.getRequestAttributes().get(OUTPUT_ECHO_ATTR_NAME);
+    assertEquals(Map.of("name", "value"), echo.getForm());
+  }
+
+  @Test
+  void testDelayInSeconds() {
+    assertEquals(3000, DelayServlet.delayMillis("/delay", "/3"));
+    assertEquals(1500, DelayServlet.delayMillis("/delay", "/1.5"));
+    assertEquals(0, DelayServlet.delayMillis("/delay", "/0"));
+  }
+
+  @Test
+  void testDelayInMilliseconds() {
+    assertEquals(250, DelayServlet.delayMillis("/delay-ms", "/250"));
+    assertEquals(-1, DelayServlet.delayMillis("/delay-ms", "/2.5"));
+  }
+
+  @Test
+  void testInvalidDelays() {
+    assertEquals(-1, DelayServlet.delayMillis("/delay", null));
+    assertEquals(-1, DelayServlet.delayMillis("/delay", "/"));
+    assertEquals(-1, DelayServlet.delayMillis("/delay", "/-1"));
+    assertEquals(-1, DelayServlet.delayMillis("/delay", "/NaN"));
+    assertEquals(-1, DelayServlet.delayMillis("/delay", "/1/2"));
+  }
+}
@@ -0,0 +1,158 @@
+package com.github.argherna.ajpbin;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+
+import org.junit.jupiter.api.Test;
+
+class DripWriteListenerTest {
+
+  private final DripOutputStream out = new DripOutputStream();
+
+  private final CountDownLatch completed = new CountDownLatch(1);
+
+  private AsyncListener asyncListener;
+
+  @Test
+  void testWrites() {
+    assertEquals(1, DripWriteListener.writes(10, 0));
+    assertEquals(10, DripWriteListener.writes(10, 2000));
+    assertEquals(200, DripWriteListener.writes(100000, 2000));
+  }
+
+  @Test
+  void testDripWritesAllBytesAndCompletes() throws Exception {
+    DripWriteListener.start(asyncContext(), 100, 0, 50);
+    out.listener.onWritePossible();
+
+    assertTrue(completed.await(5, SECONDS));
+    assertArrayEquals(stars(100), out.toByteArray());
+  }
+
+  @Test
+  void testDripPausesWhileNotReady() throws Exception {
+    out.ready = false;
+    DripWriteListener.start(asyncContext(), 10, 0, 0);
+    out.listener.onWritePossible();
+
+    assertFalse(completed.await(100, MILLISECONDS));
+    assertEquals(0, out.toByteArray().length);
+
+    out.ready = true;
+    out.listener.onWritePossible();
+
+    assertTrue(completed.await(5, SECONDS));
+    assertArrayEquals(stars(10), out.toByteArray());
+  }
+
+  @Test
+  void testTimeoutCancelsPendingWrite() throws Exception {
+    var asyncContext = asyncContext();
+    DripWriteListener.start(asyncContext, 10, 100, 0);
+    out.listener.onWritePossible();
+
+    asyncListener.onTimeout(new AsyncEvent(asyncContext));
+
+    assertFalse(completed.await(300, MILLISECONDS));
+    assertEquals(0, out.toByteArray().length);
+  }
+
+  @Test
+  void testErrorStopsDrip() throws Exception {
+    var asyncContext = asyncContext();
+    out.ready = false;
+    DripWriteListener.start(asyncContext, 10, 0, 0);
+    out.listener.onWritePossible();
+
+    asyncListener.onError(new AsyncEvent(asyncContext, new IOException("Connection reset")));
+    out.ready = true;
+    out.listener.onWritePossible();
+
+    assertFalse(completed.await(100, MILLISECONDS));
+    assertEquals(0, out.toByteArray().length);
+  }
+
+  private AsyncContext asyncContext() {
+    var response = (ServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {ServletResponse.class}, (proxy, method, args) -> {
+          if (method.getName().equals("getOutputStream")) {
+            return out;
+          }
+          throw new NoSuchMethodException(method.getName() + " not supported!");
+        });
+    return (AsyncContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {AsyncContext.class}, (proxy, method, args) -> {
+          if (method.getName().equals("getResponse")) {
+            return response;
+          }
+          if (method.getName().equals("getRequest")) {
+            return null;
+          }
+          if (method.getName().equals("complete")) {
+            completed.countDown();
+            return null;
+          }
+          if (method.getName().equals("addListener")) {
+            asyncListener = (AsyncListener) args[0];
+            return null;
+          }
+          throw new NoSuchMethodException(method.getName() + " not supported!");
+        });
+  }
+
+  private static byte[] stars(int length) {
+    var stars = new byte[length];
+    Arrays.fill(stars, (byte) '*');
+    return stars;
+  }
+
+  private static final class DripOutputStream extends ServletOutputStream {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    private volatile boolean ready = true;
+
+    private volatile WriteListener listener;
+
+    @Override
+    public boolean isReady() {
+      return ready;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+      listener = writeListener;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+      bytes.write(b);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+      bytes.write(b, off, len);
+    }
+
+    private synchronized byte[] toByteArray() {
+      return bytes.toByteArray();
+    }
+  }
+}
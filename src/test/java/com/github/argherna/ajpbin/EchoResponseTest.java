@@ -0,0 +1,88 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.ServletApiProxies.createHttpServletRequestProxy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class EchoResponseTest {
+
+  @Test
+  void testRenderJsonMatchesMapRendering() throws IOException {
+    var headers = new LinkedHashMap<String, List<String>>();
+    headers.put("Host", List.of("localhost"));
+    headers.put("Accept", List.of("text/plain", "", "*/*"));
+    var attributes = new HashMap<String, Object>(Map.of("n", 1));
+    var request = createHttpServletRequestProxy(SerlvetApiInvocationHandler.builder()
+        .requestURI("/http").queryString("a=1").requestHeaders(headers)
+        .requestAttributes(attributes).build());
+    var echo = new EchoResponse(RequestSnapshot.capture(request, 10), Map.of("f", "x\"y"), null,
+        Map.of("k", List.of(true, 2.5)), "{\"k\":[true,2.5]}");
+
+    var rendered = new StringBuilder();
+    echo.renderJson(rendered, false);
+    var expected = new StringBuilder();
+    Json.renderObject(echo.asMap(), expected, false);
+
+    assertEquals(expected.toString(), rendered.toString());
+    assertEquals("{\"args\":{\"a\":\"1\"},\"attributes\":{\"n\":1},"
+        + "\"data\":\"{\\\"k\\\":[true,2.5]}\",\"form\":{\"f\":\"x\\\"y\"},"
+        + "\"headers\":{\"Host\":\"localhost\",\"Accept\":[\"text/plain\",\"*/*\"]},"
+        + "\"json\":{\"k\":[true,2.5]},\"url\":\"http://localhost:8080/http?a=1\"}",
+        rendered.toString());
+  }
+
+  @Test
+  void testBodylessResponseLeavesOutBodyFields() throws IOException {
+    var request = createHttpServletRequestProxy(
+        SerlvetApiInvocationHandler.builder().requestURI("/http").build());
+    var echo = new EchoResponse(RequestSnapshot.capture(request, 10));
+
+    var rendered = new StringBuilder();
+    echo.renderJson(rendered, true);
+
+    assertEquals(
+        "{\"args\":{},\"attributes\":{},\"headers\":{},\"url\":\"http://localhost:8080/http\"}",
+        rendered.toString());
+    assertFalse(echo.asMap().containsKey("form"));
+  }
+
+  @Test
+  void testSnapshotLeavesOutDispatchAndOwnAttributes() {
+    var attributes = new HashMap<String, Object>();
+    attributes.put("javax.servlet.async.request_uri", "/http");
+    attributes.put("javax.servlet.async.mapping", "/http");
+    attributes.put(Constants.CONTENT_ENCODING_ATTR_NAME, "gzip");
+    attributes.put("javax.servlet.request.key_size", 256);
+    var request = createHttpServletRequestProxy(
+        SerlvetApiInvocationHandler.builder().requestAttributes(attributes).build());
+
+    assertEquals(Map.of("javax.servlet.request.key_size", 256),
+        RequestSnapshot.capture(request, 10).attributes());
+  }
+
+  @Test
+  void testSnapshotSharesWellKnownHeaderNames() {
+    var headers = Map.of("accept", List.of("*/*"), "X-Custom", List.of("1", "2"));
+    var request = createHttpServletRequestProxy(
+        SerlvetApiInvocationHandler.builder().requestHeaders(headers).build());
+    var snapshot = RequestSnapshot.capture(request, 10);
+
+    assertEquals(3, snapshot.headerCount());
+    assertEquals(Map.of("accept", "*/*", "X-Custom", List.of("1", "2")), snapshot.headers());
+    assertSame(snapshot.headers(), snapshot.headers());
+    for (int i = 0; i < snapshot.headerCount(); i++) {
+      if (snapshot.headerName(i).equals("accept")) {
+        assertSame(RequestSnapshot.capture(request, 10).headerName(i), snapshot.headerName(i));
+      }
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.ServletApiProxies.createHttpServletRequestProxy;
+import static com.github.argherna.ajpbin.ServletApiProxies.createHttpServletResponseProxy;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
+import static javax.servlet.http.HttpServletResponse.SC_OK;
+import static javax.servlet.http.HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FaultInjectionFilterTest {
+
+  private FaultInjectionFilter filter;
+
+  private final AtomicInteger chainCalls = new AtomicInteger();
+
+  private final FilterChain chain = (request, response) -> chainCalls.incrementAndGet();
+
+  @BeforeEach
+  void setup() throws ServletException {
+    filter = new FaultInjectionFilter();
+    filter.init();
+  }
+
+  @Test
+  void testFormBodyNotReadWithoutHeader() throws IOException, ServletException {
+    var handler = SerlvetApiInvocationHandler.builder().method("POST").queryString("a=1")
+        .requestHeaders(Map.of("Content-Type", List.of("application/x-www-form-urlencoded")))
+        .requestBodyText("fault=error_rate%3D1&name=value").build();
+    var request = new ContainerRequest(createHttpServletRequestProxy(handler));
+    var form = new Object[1];
+
+    filter.doFilter(request, createHttpServletResponseProxy(handler), (req, resp) -> {
+      var body = new String(req.getInputStream().readAllBytes(), UTF_8);
+      form[0] = UrlEncoded.parse(body, Constants.MAX_PARAMETERS);
+    });
+
+    assertEquals(SC_OK, handler.getStatusCode());
+    assertEquals(Map.of("fault", "error_rate=1", "name", "value"), form[0]);
+  }
+
+  @Test
+  void testFaultFromQueryString() throws IOException, ServletException {
+    var handler = SerlvetApiInvocationHandler.builder().method("GET")
+        .queryString("fault=error_rate%3D1%3B%20status%3D503").build();
+
+    filter.doFilter(createHttpServletRequestProxy(handler),
+        createHttpServletResponseProxy(handler), chain);
+
+    assertEquals(SC_SERVICE_UNAVAILABLE, handler.getStatusCode());
+    assertEquals(0, chainCalls.get());
+  }
+
+  @Test
+  void testMalformedSpecification() throws IOException, ServletException {
+    var handler = SerlvetApiInvocationHandler.builder().method("GET")
+        .requestHeaders(Map.of(FaultInjectionFilter.FAULT_HEADER, List.of("latency=never")))
+        .build();
+
+    filter.doFilter(createHttpServletRequestProxy(handler),
+        createHttpServletResponseProxy(handler), chain);
+
+    assertEquals(SC_BAD_REQUEST, handler.getStatusCode());
+    assertEquals(0, chainCalls.get());
+  }
+
+  @Test
+  void testLatencyWithoutAsyncSupport() throws IOException, ServletException {
+    var handler = SerlvetApiInvocationHandler.builder().method("GET")
+        .requestHeaders(Map.of(FaultInjectionFilter.FAULT_HEADER, List.of("latency=fixed:5000")))
+        .build();
+
+    var start = System.nanoTime();
+    filter.doFilter(createHttpServletRequestProxy(handler),
+        createHttpServletResponseProxy(handler), chain);
+
+    assertEquals(SC_BAD_REQUEST, handler.getStatusCode());
+    assertEquals(0, chainCalls.get());
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(4));
+  }
+
+  @Test
+  void testDelayedThenFailed() throws Exception {
+    var handler = delayed("latency=fixed:20; error_rate=1; status=503");
+
+    assertEquals(SC_SERVICE_UNAVAILABLE, handler.getStatusCode());
+    assertEquals(0, chainCalls.get());
+  }
+
+  @Test
+  void testDelayedThenPassedOn() throws Exception {
+    var handler = delayed("latency=fixed:20");
+
+    assertEquals(SC_OK, handler.getStatusCode());
+    assertEquals(1, chainCalls.get());
+    assertFalse(handler.getRequestAttributes().containsKey(Constants.FAULT_ATTR_NAME));
+  }
+
+  // Filters a request that is suspended, then filters its dispatch once the delay is over.
+  private SerlvetApiInvocationHandler delayed(String spec) throws Exception {
+    var handler = SerlvetApiInvocationHandler.builder().method("GET").asyncSupported(true)
+        .requestHeaders(Map.of(FaultInjectionFilter.FAULT_HEADER, List.of(spec))).build();
+    var request = createHttpServletRequestProxy(handler);
+    var response = createHttpServletResponseProxy(handler);
+
+    var start = System.nanoTime();
+    filter.doFilter(request, response, chain);
+    assertEquals(0, chainCalls.get());
+    assertTrue(handler.getAsyncTimeout() > 20);
+
+    assertTrue(handler.awaitDispatch(5, TimeUnit.SECONDS));
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+    filter.doFilter(request, response, chain);
+    return handler;
+  }
+
+  // Reads the form body when parameters are first asked for, as a container does.
+  private static final class ContainerRequest extends HttpServletRequestWrapper {
+
+    private ServletInputStream in;
+
+    private ContainerRequest(HttpServletRequest request) {
+      super(request);
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+      if (in == null) {
+        in = super.getInputStream();
+      }
+      return in;
+    }
+
+    @Override
+    public String getParameter(String name) {
+      try {
+        getInputStream().readAllBytes();
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      return super.getParameter(name);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.github.argherna.ajpbin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class FaultInjectionTest {
+
+  private final Random random = new Random(7);
+
+  @Test
+  void testLatencyDistributions() {
+    assertEquals(25, FaultInjection.parse("latency=fixed:25").sampleDelayMillis(random, 1000));
+    assertEquals(0, FaultInjection.parse("error_rate=0").sampleDelayMillis(random, 1000));
+    var uniform = FaultInjection.parse("latency=uniform:10,20");
+    var normal = FaultInjection.parse("latency=normal:5,50");
+    var pareto = FaultInjection.parse("latency=pareto:10,1.1");
+    var paretoAboveHundred = 0;
+    for (int i = 0; i < 10000; i++) {
+      var delay = uniform.sampleDelayMillis(random, 1000);
+      assertTrue(delay >= 10 && delay <= 20);
+      assertTrue(normal.sampleDelayMillis(random, 1000) >= 0);
+      delay = pareto.sampleDelayMillis(random, 1000);
+      assertTrue(delay >= 10 && delay <= 1000);
+      if (delay > 100) {
+        paretoAboveHundred++;
+      }
+    }
+    // P(X > 10 * xm) = 10^-1.1, about 8%.
+    assertTrue(paretoAboveHundred > 500 && paretoAboveHundred < 1100);
+  }
+
+  @Test
+  void testWeightedStatuses() {
+    var fault = FaultInjection.parse("error_rate=1; status=502:1, 503:3");
+    var counts = new int[600];
+    for (int i = 0; i < 4000; i++) {
+      counts[fault.sampleStatus(random)]++;
+    }
+    assertEquals(4000, counts[502] + counts[503]);
+    assertTrue(counts[503] > 2 * counts[502]);
+
+    assertEquals(500, FaultInjection.parse("error_rate=1").sampleStatus(random));
+    assertEquals(0, FaultInjection.parse("error_rate=0;status=503").sampleStatus(random));
+  }
+
+  @Test
+  void testMalformedSpecifications() {
+    assertThrows(IllegalArgumentException.class, () -> FaultInjection.parse("latency=gamma:1"));
+    assertThrows(IllegalArgumentException.class, () -> FaultInjection.parse("latency=uniform:5"));
+    assertThrows(IllegalArgumentException.class,
+        () -> FaultInjection.parse("latency=uniform:5,1"));
+    assertThrows(IllegalArgumentException.class, () -> FaultInjection.parse("error_rate=2"));
+    assertThrows(IllegalArgumentException.class, () -> FaultInjection.parse("status=200"));
+    assertThrows(IllegalArgumentException.class, () -> FaultInjection.parse("colour=red"));
+  }
+
+  @Test
+  void testParsedSpecificationsAreCached() {
+    var spec = "latency=fixed:1;error_rate=0.5";
+    assertSame(FaultInjection.parse(spec), FaultInjection.parse(new String(spec)));
+  }
+}
@@ -0,0 +1,184 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.ServletApiProxies.createHttpServletResponseProxy;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class JsonTest {
+
+  @Test
+  void testUtf8SinkSetsByteContentLength() throws IOException {
+    var respIh = SerlvetApiInvocationHandler.builder().build();
+    var sink = new Json.Utf8Sink(createHttpServletResponseProxy(respIh));
+    Json.renderObject(Map.of("k", "café € 😀"), sink);
+    sink.close();
+
+    var body = respIh.getResponseBody();
+    assertEquals(body.length, respIh.getContentLength());
+    assertEquals("{\"k\":\"café € 😀\"}", new String(body, UTF_8));
+  }
+
+  @Test
+  void testUtf8SinkStreamsLargeBody() throws IOException {
+    var respIh = SerlvetApiInvocationHandler.builder().build();
+    var pool = new BufferPool(64, 1);
+    var value = "éabcdefghij".repeat(100);
+    var sink = new Json.Utf8Sink(createHttpServletResponseProxy(respIh), pool);
+    Json.renderObject(Map.of("k", value), sink);
+    sink.close();
+
+    assertEquals(-1, respIh.getContentLength());
+    assertEquals("{\"k\":\"" + value + "\"}", new String(respIh.getResponseBody(), UTF_8));
+  }
+
+  @Test
+  void testUtf8SinkReleaseReturnsBufferWithoutSending() throws IOException {
+    var respIh = SerlvetApiInvocationHandler.builder().build();
+    var pool = new BufferPool(64, 2);
+    var sink = new Json.Utf8Sink(createHttpServletResponseProxy(respIh), pool);
+    var buffer = sink.buf;
+    sink.append("{\"k\":");
+    sink.release();
+    sink.release();
+
+    assertEquals(0, respIh.getResponseBody().length);
+    assertEquals(-1, respIh.getContentLength());
+    assertSame(buffer, pool.acquire());
+    assertNotSame(buffer, pool.acquire());
+  }
+
+  @Test
+  void testUtf8SinkReplacesUnpairedSurrogates() throws IOException {
+    var respIh = SerlvetApiInvocationHandler.builder().build();
+    var sink = new Json.Utf8Sink(createHttpServletResponseProxy(respIh));
+    sink.append("a\ud83db\ude00c\ud83d");
+    sink.close();
+
+    assertEquals("a?b?c?", new String(respIh.getResponseBody(), UTF_8));
+  }
+
+  @Test
+  void testEscape() throws IOException {
+    var sb = new StringBuilder();
+    Json.escape("plain \"q\" \\ \b\f\n\r\t \u0001\u001f \u2028 é 😀 \ud83d!", sb);
+    assertEquals("plain \\\"q\\\" \\\\ \\b\\f\\n\\r\\t \\u0001\\u001f \\u2028 é 😀 \\ud83d!",
+        sb.toString());
+  }
+
+  @Test
+  void testRenderEscapesKeys() throws IOException {
+    assertEquals("{\"a\\\"b\":\"c\"}", Json.renderObject(Map.of("a\"b", "c")));
+  }
+
+  @Test
+  void testRenderSkipsEmptyValuesWithoutDanglingCommas() throws IOException {
+    var list = new ArrayList<Object>(List.of("", "a"));
+    list.add(null);
+    var map = new LinkedHashMap<String, Object>();
+    map.put("e", "");
+    map.put("l", list);
+    map.put("n", null);
+    map.put("o", Map.of());
+
+    assertEquals("{\"l\":[\"a\"],\"o\":{}}", Json.renderObject(map));
+  }
+
+  @Test
+  void testRenderSortedKeys() throws IOException {
+    var map = new HashMap<String, Object>();
+    for (var key : List.of("zeta", "alpha", "mu", "beta", "omega")) {
+      map.put(key, Map.of("y", 1, "x", List.of(Map.of("b", 2, "a", 1))));
+    }
+    var sb = new StringBuilder();
+    Json.renderObject(map, sb, true);
+
+    var inner = "{\"x\":[{\"a\":1,\"b\":2}],\"y\":1}";
+    assertEquals("{\"alpha\":" + inner + ",\"beta\":" + inner + ",\"mu\":" + inner + ",\"omega\":"
+        + inner + ",\"zeta\":" + inner + "}", sb.toString());
+  }
+
+  @Test
+  void testParseObject() throws IOException {
+    var json = "{\"s\":\"a\\\"b\\u00e9\\ud83d\\ude00 ü\",\"i\":-42,\"l\":12345678901,"
+        + "\"d\":1.5e2,\"b\":true,\"n\":null,\"a\":[1,[],{}],\"o\":{\"k\":false}}";
+    @SuppressWarnings("unchecked")
+    var value = (Map<String, Object>) parse(json, JsonParser.Limits.DEFAULT);
+
+    assertEquals(List.of("s", "i", "l", "d", "b", "n", "a", "o"), List.copyOf(value.keySet()));
+    assertEquals("a\"bé😀 ü", value.get("s"));
+    assertEquals(-42, value.get("i"));
+    assertEquals(12345678901L, value.get("l"));
+    assertEquals(150.0, value.get("d"));
+    assertEquals(Boolean.TRUE, value.get("b"));
+    assertNull(value.get("n"));
+    assertEquals(List.of(1, List.of(), Map.of()), value.get("a"));
+    assertEquals(Map.of("k", false), value.get("o"));
+  }
+
+  @Test
+  void testParseReadsAcrossBuffers() throws IOException {
+    var longString = "x".repeat(BufferPool.SHARED.bufferSize() * 2 + 7);
+    assertEquals(List.of(longString), parse("[\"" + longString + "\"]", JsonParser.Limits.DEFAULT));
+  }
+
+  @Test
+  void testParseRejectsInvalidJson() {
+    for (var json : List.of("", "{", "{\"a\" 1}", "[1,]", "[1 2]", "tru", "\"\\x\"", "{} x",
+        "\"unterminated", "{\"a\":function(){}}")) {
+      assertThrows(JsonParser.ParseException.class, () -> parse(json, JsonParser.Limits.DEFAULT),
+          json);
+    }
+  }
+
+  @Test
+  void testParseRejectsInvalidNumbers() {
+    for (var json : List.of("01", "-01", "-", "-a", "1.", "1.e5", ".5", "1e", "1e+", "+1", "1e999",
+        "-1e999")) {
+      var e = assertThrows(JsonParser.ParseException.class,
+          () -> parse(json, JsonParser.Limits.DEFAULT), json);
+      assertTrue(e.getMessage().contains("Invalid number") || e.getMessage().contains("Unexpected"),
+          e::getMessage);
+    }
+  }
+
+  @Test
+  void testParseReadsNumbers() throws IOException {
+    assertEquals(List.of(0, 0, 10, -7, 0.5, -1.5e-3, 2.0E10, 1e308, 12345678901L),
+        parse("[0, -0, 10, -7, 0.5, -1.5e-3, 2E+10, 1e308, 12345678901]",
+            JsonParser.Limits.DEFAULT));
+  }
+
+  @Test
+  void testParseEnforcesLimits() throws IOException {
+    assertThrows(JsonParser.ParseException.class,
+        () -> parse("[[[1]]]", JsonParser.Limits.of(2, 100, 100)));
+    assertThrows(JsonParser.ParseException.class,
+        () -> parse("[\"abcdef\"]", JsonParser.Limits.of(2, 100, 5)));
+    assertThrows(JsonParser.ParseException.class,
+        () -> parse("[\"" + "\\n".repeat(6) + "\"]", JsonParser.Limits.of(2, 100, 5)));
+    assertThrows(JsonParser.ParseException.class,
+        () -> parse("[\"" + "é".repeat(6) + "\"]", JsonParser.Limits.of(2, 100, 5)));
+    assertEquals(List.of("é\nabc"), parse("[\"é\\nabc\"]", JsonParser.Limits.of(2, 100, 5)));
+    assertThrows(JsonParser.ParseException.class,
+        () -> parse("[1, 2, 3, 4]", JsonParser.Limits.of(2, 5, 100)));
+  }
+
+  private static Object parse(String json, JsonParser.Limits limits) throws IOException {
+    return Json.parse(new ByteArrayInputStream(json.getBytes(UTF_8)), limits);
+  }
+}
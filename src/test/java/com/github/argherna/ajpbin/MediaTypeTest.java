@@ -0,0 +1,61 @@
+package com.github.argherna.ajpbin;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class MediaTypeTest {
+
+  @Test
+  void testParseTypeAndParameters() {
+    var mediaType =
+        MediaType.parse(" Application/JSON ; Charset=\"ISO-8859-1\"; q = 1 ;x=\"a\\\"b\"");
+
+    assertEquals("application", mediaType.getType());
+    assertEquals("json", mediaType.getSubtype());
+    assertEquals(Constants.CT_APPLICATION_JSON, mediaType.getEssence());
+    assertEquals(Map.of("charset", "ISO-8859-1", "q", "1", "x", "a\"b"), mediaType.getParameters());
+    assertEquals(ISO_8859_1, mediaType.getCharset(UTF_8));
+  }
+
+  @Test
+  void testCharsetFallsBackToDefault() {
+    assertEquals(UTF_8, MediaType.parse("text/plain").getCharset(UTF_8));
+    assertEquals(UTF_8, MediaType.parse("text/plain; charset=no-such-charset").getCharset(UTF_8));
+    assertEquals(UTF_8, MediaType.parse("text/plain; charset=\"\"").getCharset(UTF_8));
+  }
+
+  @Test
+  void testMalformedValues() {
+    var noSubtype = MediaType.parse("json;charset=utf-8");
+    assertEquals("json", noSubtype.getType());
+    assertEquals("", noSubtype.getSubtype());
+    assertNull(MediaType.parse("text/plain; flag").getParameter("flag"));
+
+    var flagged = MediaType.parse("text/plain; flag; charset=ISO-8859-1");
+    assertEquals(Map.of("charset", "ISO-8859-1"), flagged.getParameters());
+    assertEquals(ISO_8859_1, flagged.getCharset(UTF_8));
+  }
+
+  @Test
+  void testParsedValuesAreCached() {
+    var value = "application/x-www-form-urlencoded; charset=UTF-8";
+    assertSame(MediaType.parse(value), MediaType.parse(new String(value)));
+  }
+
+  @Test
+  void testBoundaryValuesAreNotCached() {
+    var value = "multipart/form-data; Boundary=abc";
+    var mediaType = MediaType.parse(value);
+
+    assertEquals("abc", mediaType.getParameter("boundary"));
+    assertNotSame(mediaType, MediaType.parse(value));
+  }
+}
@@ -0,0 +1,119 @@
+package com.github.argherna.ajpbin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class MultipartTest {
+
+  private static final String BODY = "preamble\r\n"
+      + "--XyZ\r\n"
+      + "Content-Disposition: form-data; name=\"field\"\r\n"
+      + "\r\n"
+      + "value one\r\n"
+      + "--XyZ  \r\n"
+      + "Content-Disposition: form-data; name=\"field\"\r\n"
+      + "\r\n"
+      + "--XyZ is not a delimiter without CRLF\r\n"
+      + "--XyZ\r\n"
+      + "content-disposition: form-data; name=\"upload\"; filename=\"a;b.txt\"\r\n"
+      + "Content-Type: text/plain\r\n"
+      + "\r\n"
+      + "line 1\r\nline 2\r\n"
+      + "--XyZ--\r\n"
+      + "epilogue";
+
+  @Test
+  void testParseFieldsAndFiles() throws IOException {
+    var multipart = Multipart.parse(new ByteArrayInputStream(BODY.getBytes(UTF_8)), "XyZ", 10, 100);
+
+    assertEquals(Map.of("field", List.of("value one", "--XyZ is not a delimiter without CRLF")),
+        multipart.getForm());
+    assertEquals(Map.of("upload", "line 1\r\nline 2"), multipart.getFiles());
+  }
+
+  @Test
+  void testParseOneByteAtATime() throws IOException {
+    var bytes = BODY.getBytes(UTF_8);
+    var in = new InputStream() {
+      private int pos;
+
+      @Override
+      public int read() {
+        return pos < bytes.length ? bytes[pos++] & 0xff : -1;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) {
+        if (pos == bytes.length) {
+          return -1;
+        }
+        b[off] = bytes[pos++];
+        return 1;
+      }
+    };
+    var multipart = Multipart.parse(in, "XyZ", 10, 100);
+
+    assertEquals(Map.of("upload", "line 1\r\nline 2"), multipart.getFiles());
+  }
+
+  @Test
+  void testLargeAndBinaryParts() throws Exception {
+    var large = "x".repeat(100);
+    var body = "--b\r\n"
+        + "Content-Disposition: form-data; name=\"large\"; filename=\"large.txt\"\r\n\r\n"
+        + large + "\r\n"
+        + "--b\r\n"
+        + "Content-Disposition: form-data; name=\"binary\"; filename=\"bin\"\r\n"
+        + "Content-Type: image/png\r\n\r\n"
+        + "ÿ\u0000\r\n"
+        + "--b--";
+    var multipart = Multipart.parse(new ByteArrayInputStream(body.getBytes("ISO-8859-1")), "b",
+        10, 64);
+
+    var sha256 = new StringBuilder();
+    for (var b : MessageDigest.getInstance("SHA-256").digest(large.getBytes(UTF_8))) {
+      sha256.append(String.format("%02x", b));
+    }
+    assertEquals(Map.of("filename", "large.txt", "size", 100L, "sha256", sha256.toString()),
+        multipart.getFiles().get("large"));
+    assertEquals("data:image/png;base64,/wA=", multipart.getFiles().get("binary"));
+  }
+
+  @Test
+  void testMalformedBodies() {
+    assertThrows(Multipart.FormatException.class, () -> Multipart.parse(
+        new ByteArrayInputStream("--b\r\n\r\nno close".getBytes(UTF_8)), "b", 10, 64));
+    assertThrows(Multipart.FormatException.class, () -> Multipart.parse(
+        new ByteArrayInputStream("--b\r\n\r\n1\r\n--b\r\n\r\n2\r\n--b--".getBytes(UTF_8)), "b",
+        1, 64));
+  }
+
+  @Test
+  void testParameterWithoutValue() throws IOException {
+    assertEquals("x", Multipart.parameter("form-data; foo; name=\"x\"", "name"));
+    assertNull(Multipart.parameter("form-data; name", "name"));
+    var body = "--b\r\nContent-Disposition: form-data; foo; name=\"x\"\r\n\r\n1\r\n--b--";
+
+    assertEquals(Map.of("x", "1"),
+        Multipart.parse(new ByteArrayInputStream(body.getBytes(UTF_8)), "b", 10, 64).getForm());
+  }
+
+  @Test
+  void testBoundary() {
+    assertEquals("a b;c", Multipart.boundary(
+        MediaType.parse("multipart/form-data; charset=x; boundary=\"a b;c\"")));
+    assertEquals("abc", Multipart.boundary(MediaType.parse("multipart/form-data;boundary=abc")));
+    assertNull(Multipart.boundary(MediaType.parse("multipart/form-data")));
+  }
+}
@@ -0,0 +1,170 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.ServletApiProxies.createHttpServletRequestProxy;
+import static com.github.argherna.ajpbin.ServletApiProxies.createHttpServletResponseProxy;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.Test;
+
+class ProbeServletTest {
+
+  private static final Map<String, List<String>> HEADERS = headers();
+
+  private final ProbeServlet servlet = new ProbeServlet();
+
+  @Test
+  void testHealth() throws Exception {
+    var handler = get("/health", Map.of());
+
+    assertEquals("{\"status\":\"ok\"}", new String(handler.getResponseBody(), UTF_8));
+    assertEquals(handler.getResponseBody().length, handler.getContentLength());
+    assertEquals(Constants.CT_APPLICATION_JSON, handler.getResponseHeaders().get("Content-Type"));
+  }
+
+  @Test
+  void testIp() throws Exception {
+    assertEquals("{\"origin\":\"127.0.0.1\"}",
+        new String(get("/ip", Map.of()).getResponseBody(), UTF_8));
+  }
+
+  @Test
+  void testUserAgent() throws Exception {
+    assertEquals("{\"user-agent\":\"probe/1.0 \\\"x\\\"\"}",
+        new String(get("/user-agent", HEADERS).getResponseBody(), UTF_8));
+    assertEquals("{\"user-agent\":null}",
+        new String(get("/user-agent", Map.of()).getResponseBody(), UTF_8));
+  }
+
+  @Test
+  void testHeaders() throws Exception {
+    var handler = get("/headers", HEADERS);
+
+    assertEquals("{\"headers\":{\"User-Agent\":\"probe/1.0 \\\"x\\\"\",\"Accept\":\"*/*\","
+        + "\"X-Forwarded-For\":[\"10.0.0.1\",\"10.0.0.2\"]}}",
+        new String(handler.getResponseBody(), UTF_8));
+    assertEquals(handler.getResponseBody().length, handler.getContentLength());
+  }
+
+  @Test
+  void testAllocationBudget() throws Exception {
+    var bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    var threadBean = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+
+    // Bytes allocated beyond what the proxies allocate for the same calls: the sink and the
+    // headers writer, nothing per header or per byte.
+    assertBudget(threadBean, "/health", 32);
+    assertBudget(threadBean, "/ip", 64);
+    assertBudget(threadBean, "/user-agent", 64);
+    assertBudget(threadBean, "/headers", 96);
+  }
+
+  private void assertBudget(com.sun.management.ThreadMXBean threadBean, String servletPath,
+      long budget) throws Exception {
+    var body = get(servletPath, HEADERS).getResponseBody();
+    var servletBytes = allocatedPerRequest(threadBean, servletPath,
+        (request, response) -> servlet.doGet(request, response));
+    var proxyBytes = allocatedPerRequest(threadBean, servletPath,
+        (request, response) -> proxyCalls(servletPath, request, response, body));
+    var allocated = servletBytes - proxyBytes;
+    assertTrue(allocated < budget,
+        () -> servletPath + " allocated " + allocated + " bytes per request");
+  }
+
+  // Makes the same calls on the proxies that the servlet makes for a request, so that what the
+  // proxies allocate can be told apart from what the servlet does.
+  private static void proxyCalls(String servletPath, HttpServletRequest request,
+      HttpServletResponse response, byte[] body) throws IOException {
+    response.setDateHeader("Date", System.currentTimeMillis());
+    response.setHeader("X-Content-Type-Options", "nosniff");
+    response.setHeader("X-Frame-Options", "DENY");
+    response.setHeader("X-XSS-Protection", "1; mode=block");
+    request.getServletPath();
+    switch (servletPath) {
+      case "/health":
+        response.setContentType(Constants.CT_APPLICATION_JSON);
+        break;
+      case "/ip":
+        response.setContentType(Constants.CT_APPLICATION_JSON_UTF_8);
+        request.getRemoteAddr();
+        break;
+      case "/user-agent":
+        response.setContentType(Constants.CT_APPLICATION_JSON_UTF_8);
+        request.getHeader("User-Agent");
+        break;
+      default:
+        response.setContentType(Constants.CT_APPLICATION_JSON_UTF_8);
+        for (var names = request.getHeaderNames(); names.hasMoreElements();) {
+          for (var values = request.getHeaders(names.nextElement()); values.hasMoreElements();) {
+            values.nextElement();
+          }
+        }
+        break;
+    }
+    response.setContentLength(body.length);
+    var out = response.getOutputStream();
+    out.write(body, 0, body.length);
+    out.flush();
+  }
+
+  private long allocatedPerRequest(com.sun.management.ThreadMXBean threadBean, String servletPath,
+      Handler handler) throws Exception {
+    var count = 2000;
+    var requests = new HttpServletRequest[count];
+    var responses = new HttpServletResponse[count];
+    for (int round = 0; round < 3; round++) {
+      for (int i = 0; i < count; i++) {
+        var ih = SerlvetApiInvocationHandler.builder().method("GET").servletPath(servletPath)
+            .requestURI(servletPath).requestHeaders(HEADERS).build();
+        requests[i] = createHttpServletRequestProxy(ih);
+        responses[i] = createHttpServletResponseProxy(ih);
+      }
+      var threadId = Thread.currentThread().getId();
+      var before = threadBean.getThreadAllocatedBytes(threadId);
+      for (int i = 0; i < count; i++) {
+        handler.handle(requests[i], responses[i]);
+      }
+      var allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+      // The first rounds warm up the JIT.
+      if (round == 2) {
+        return allocated / count;
+      }
+    }
+    throw new AssertionError();
+  }
+
+  private interface Handler {
+    void handle(HttpServletRequest request, HttpServletResponse response) throws Exception;
+  }
+
+  private SerlvetApiInvocationHandler get(String servletPath, Map<String, List<String>> headers)
+      throws Exception {
+    var handler = SerlvetApiInvocationHandler.builder().method("GET").servletPath(servletPath)
+        .requestURI(servletPath).requestHeaders(headers).build();
+    servlet.doGet(createHttpServletRequestProxy(handler), createHttpServletResponseProxy(handler));
+    return handler;
+  }
+
+  private static Map<String, List<String>> headers() {
+    var headers = new LinkedHashMap<String, List<String>>();
+    headers.put("User-Agent", List.of("probe/1.0 \"x\""));
+    headers.put("Accept", List.of("*/*"));
+    headers.put("X-Forwarded-For", List.of("10.0.0.1", "10.0.0.2"));
+    headers.put("X-Empty", List.of(""));
+    return headers;
+  }
+}
@@ -0,0 +1,53 @@
+package com.github.argherna.ajpbin;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class RandomBytesTest {
+
+  @Test
+  void testSameSeedGivesSameBytes() throws IOException {
+    assertArrayEquals(write(100, RandomBytes.offset(42), 0),
+        write(100, RandomBytes.offset(42), 0));
+    assertFalse(Arrays.equals(write(100, RandomBytes.offset(42), 0),
+        write(100, RandomBytes.offset(43), 0)));
+  }
+
+  @Test
+  void testWriteWrapsAroundTheBlock() throws IOException {
+    var block = write(Constants.RANDOM_BLOCK_SIZE, 0, 0);
+    var wrapped = write(20, Constants.RANDOM_BLOCK_SIZE - 10, 7);
+
+    assertArrayEquals(Arrays.copyOfRange(block, Constants.RANDOM_BLOCK_SIZE - 10,
+        Constants.RANDOM_BLOCK_SIZE), Arrays.copyOfRange(wrapped, 0, 10));
+    assertArrayEquals(Arrays.copyOfRange(block, 0, 10), Arrays.copyOfRange(wrapped, 10, 20));
+  }
+
+  @Test
+  void testChunksAreFlushed() throws IOException {
+    var flushes = new int[1];
+    var out = new ByteArrayOutputStream() {
+      @Override
+      public void flush() {
+        flushes[0]++;
+      }
+    };
+    RandomBytes.write(out, 25, 0, 10);
+
+    assertEquals(25, out.size());
+    assertEquals(3, flushes[0]);
+  }
+
+  private static byte[] write(long length, int offset, int chunkSize) throws IOException {
+    var out = new ByteArrayOutputStream();
+    RandomBytes.write(out, length, offset, chunkSize);
+    return out.toByteArray();
+  }
+}
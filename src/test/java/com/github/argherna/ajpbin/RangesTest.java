@@ -0,0 +1,111 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.ServletApiProxies.createHttpServletRequestProxy;
+import static com.github.argherna.ajpbin.ServletApiProxies.createHttpServletResponseProxy;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static javax.servlet.http.HttpServletResponse.SC_OK;
+import static javax.servlet.http.HttpServletResponse.SC_PARTIAL_CONTENT;
+import static javax.servlet.http.HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class RangesTest {
+
+  @Test
+  void testParse() {
+    assertEquals(List.of(new Ranges.Range(0, 9)), Ranges.parse("bytes=0-9", 100));
+    assertEquals(List.of(new Ranges.Range(90, 99), new Ranges.Range(95, 99)),
+        Ranges.parse("bytes=-10, 95-", 100));
+    assertEquals(List.of(new Ranges.Range(0, 99)), Ranges.parse("Bytes=-200,100-", 100));
+    assertEquals(List.of(), Ranges.parse("bytes=100-200", 100));
+    assertNull(Ranges.parse("bytes=5-1", 100));
+    assertNull(Ranges.parse("bytes=a-", 100));
+    assertNull(Ranges.parse("items=0-1", 100));
+    assertNull(Ranges.parse("bytes=" + "0-0,".repeat(Constants.MAX_RANGES) + "1-1", 100));
+  }
+
+  @Test
+  void testSingleRangeAtTheEndOfLargeContent() throws IOException {
+    var length = 10L * 1024 * 1024 * 1024;
+    var handler = serve(Map.of("Range", List.of("bytes=-30")), length);
+
+    assertEquals(SC_PARTIAL_CONTENT, handler.getStatusCode());
+    assertEquals("bytes " + (length - 30) + "-" + (length - 1) + "/" + length,
+        handler.getResponseHeaders().get("Content-Range"));
+    assertEquals(30, handler.getContentLength());
+    assertEquals(alphabetAt(length - 30, 30),
+        new String(handler.getResponseBody(), US_ASCII));
+  }
+
+  @Test
+  void testMultipleRanges() throws IOException {
+    var handler = serve(Map.of("Range", List.of("bytes=0-1,26-27")), 52);
+
+    assertEquals(SC_PARTIAL_CONTENT, handler.getStatusCode());
+    var contentType = (String) handler.getResponseHeaders().get("Content-Type");
+    assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+    var boundary = contentType.substring(contentType.indexOf('=') + 1);
+    var body = "\r\n--" + boundary + "\r\nContent-Type: application/octet-stream\r\n"
+        + "Content-Range: bytes 0-1/52\r\n\r\nab"
+        + "\r\n--" + boundary + "\r\nContent-Type: application/octet-stream\r\n"
+        + "Content-Range: bytes 26-27/52\r\n\r\nab"
+        + "\r\n--" + boundary + "--\r\n";
+    assertEquals(body, new String(handler.getResponseBody(), US_ASCII));
+    assertEquals(body.length(), handler.getContentLength());
+  }
+
+  @Test
+  void testIfRangeAndUnsatisfiableRanges() throws IOException {
+    var handler = serve(Map.of("Range", List.of("bytes=0-1"), "If-Range", List.of("\"other\"")),
+        26);
+    assertEquals(SC_OK, handler.getStatusCode());
+    assertEquals(26, handler.getResponseBody().length);
+
+    handler = serve(Map.of("Range", List.of("bytes=0-1"), "If-Range", List.of("\"range26\"")), 26);
+    assertEquals(SC_PARTIAL_CONTENT, handler.getStatusCode());
+
+    handler = serve(Map.of("Range", List.of("bytes=26-")), 26);
+    assertEquals(SC_REQUESTED_RANGE_NOT_SATISFIABLE, handler.getStatusCode());
+    assertEquals("bytes */26", handler.getResponseHeaders().get("Content-Range"));
+  }
+
+  @Test
+  void testRangeServletCapsLength() throws Exception {
+    var servlet = new RangeServlet();
+    servlet.init();
+    var handler = SerlvetApiInvocationHandler.builder().method("GET").servletPath("/range")
+        .pathInfo("/" + Long.MAX_VALUE).requestURI("/range/" + Long.MAX_VALUE).build();
+
+    servlet.doGet(createHttpServletRequestProxy(handler), createHttpServletResponseProxy(handler));
+
+    assertEquals(SC_OK, handler.getStatusCode());
+    assertEquals(Constants.RANGE_MAX, handler.getContentLength());
+    assertEquals(Constants.RANGE_MAX, handler.getResponseBody().length);
+    assertEquals("\"range" + Constants.RANGE_MAX + "\"", handler.getResponseHeaders().get("ETag"));
+  }
+
+  private static SerlvetApiInvocationHandler serve(Map<String, List<String>> headers, long length)
+      throws IOException {
+    var handler = SerlvetApiInvocationHandler.builder().method("GET").requestHeaders(headers)
+        .build();
+    Ranges.serve(createHttpServletRequestProxy(handler), createHttpServletResponseProxy(handler),
+        new RangeServlet.Alphabet(length), "application/octet-stream",
+        "\"range" + length + "\"");
+    return handler;
+  }
+
+  private static String alphabetAt(long position, int count) {
+    var text = new StringBuilder();
+    for (long i = position; i < position + count; i++) {
+      text.append((char) ('a' + i % 26));
+    }
+    return text.toString();
+  }
+}
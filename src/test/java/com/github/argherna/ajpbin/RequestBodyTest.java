@@ -0,0 +1,124 @@
+package com.github.argherna.ajpbin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+class RequestBodyTest {
+
+  @Test
+  void testReadAcrossBuffers() throws IOException {
+    var text = "0123456789abcdefghijklmnopqrstuvwxyzé\n\r\nend";
+    var bytes = text.getBytes(UTF_8);
+    var pool = new BufferPool(8, 2);
+    var body = new RequestBody(pool, -1, 1024);
+    var in = new ByteArrayInputStream(bytes);
+    while (body.readFrom(in) != -1) {
+    }
+
+    assertFalse(body.isSpilled());
+    assertEquals(bytes.length, body.size());
+    assertEquals(text, body.toText(UTF_8));
+    assertArrayEquals(bytes, body.openStream().readAllBytes());
+
+    body.release();
+    assertEquals(0, body.size());
+    assertEquals(8, pool.acquire().length);
+  }
+
+  @Test
+  void testSpillToFile() throws IOException {
+    var bytes = new byte[100];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) i;
+    }
+    var body = new RequestBody(new BufferPool(16, 2), -1, 40);
+    var in = new ByteArrayInputStream(bytes);
+    while (body.readFrom(in) != -1) {
+    }
+
+    assertTrue(body.isSpilled());
+    assertEquals(bytes.length, body.size());
+    try (var stream = body.openStream()) {
+      assertArrayEquals(bytes, stream.readAllBytes());
+    }
+    body.release();
+    assertFalse(body.isSpilled());
+  }
+
+  @Test
+  void testTextAcrossBuffersAndInFile() throws IOException {
+    var text = "é".repeat(50) + "plain" + "€".repeat(20);
+    var pool = new BufferPool(16, 2);
+    var inMemory = RequestBody.read(new ByteArrayInputStream(text.getBytes(UTF_8)), -1,
+        RequestBody.Limits.of(1024, 1024));
+    var spilled = new RequestBody(pool, -1, 40);
+    var in = new ByteArrayInputStream(text.getBytes(UTF_8));
+    while (spilled.readFrom(in) != -1) {
+    }
+
+    assertFalse(inMemory.isSpilled());
+    assertTrue(spilled.isSpilled());
+    assertEquals(text, inMemory.toText(UTF_8));
+    assertEquals(text, spilled.toText(UTF_8));
+    // A multibyte char split across buffers is not malformed.
+    var split = new RequestBody(new BufferPool(3, 2), -1, 1024);
+    in = new ByteArrayInputStream("aaé€".getBytes(UTF_8));
+    while (split.readFrom(in) != -1) {
+    }
+    assertEquals("aaé€", split.toText(UTF_8));
+    inMemory.release();
+    spilled.release();
+    split.release();
+  }
+
+  @Test
+  void testSpillWhenContentLengthIsLarge() throws IOException {
+    var body = RequestBody.read(new ByteArrayInputStream("abc".getBytes(UTF_8)), 3,
+        RequestBody.Limits.of(10, 2));
+
+    assertTrue(body.isSpilled());
+    assertEquals("abc", body.toText(UTF_8));
+    body.release();
+  }
+
+  @Test
+  void testBinaryBodyAsDataUrl() throws IOException {
+    var bytes = new byte[] {(byte) 0xff, 0, (byte) 0xfe, 1};
+    var body = RequestBody.read(new ByteArrayInputStream(bytes), -1, RequestBody.Limits.DEFAULT);
+
+    assertNull(body.toText(UTF_8));
+    assertEquals("data:application/octet-stream;base64,"
+        + Base64.getEncoder().encodeToString(bytes), body.toDataUrl("application/octet-stream"));
+    body.release();
+  }
+
+  @Test
+  void testReadEmptyBody() throws IOException {
+    var body = RequestBody.read(new ByteArrayInputStream(new byte[0]), 0,
+        RequestBody.Limits.DEFAULT);
+
+    assertEquals(0, body.size());
+    assertEquals("", body.toText(UTF_8));
+    assertEquals(-1, body.openStream().read());
+    body.release();
+  }
+
+  @Test
+  void testReadTooLarge() {
+    var in = new ByteArrayInputStream(new byte[11]);
+
+    assertThrows(RequestBody.TooLargeException.class,
+        () -> RequestBody.read(in, -1, RequestBody.Limits.of(10, 5)));
+  }
+}
@@ -7,10 +7,18 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
 import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
 import javax.servlet.ServletOutputStream;
@@ -26,6 +34,12 @@ class SerlvetApiInvocationHandler implements InvocationHandler {
 
   private final String requestURI;
 
+  private final String queryString;
+
+  private final String servletPath;
+
+  private final String pathInfo;
+
   private final Map<String, List<String>> requestHeaders;
 
   private final String requestBodyText;
@@ -34,6 +48,10 @@ class SerlvetApiInvocationHandler implements InvocationHandler {
 
   private final Map<String, Object> responseHeaders;
 
+  private final ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
+
+  private long contentLength = -1;
+
   private int sendErrorCallCount = 0;
 
   private int setAttributeCallCount = 0;
@@ -44,6 +62,14 @@ class SerlvetApiInvocationHandler implements InvocationHandler {
 
   private String statusDescription = "";
 
+  private final boolean asyncSupported;
+
+  private final CountDownLatch dispatched = new CountDownLatch(1);
+
+  private volatile DispatcherType dispatcherType = DispatcherType.REQUEST;
+
+  private volatile long asyncTimeout = -1;
+
   static class Builder {
 
     private String contextPath = "";
@@ -52,6 +78,12 @@ class SerlvetApiInvocationHandler implements InvocationHandler {
 
     private String requestURI = "";
 
+    private String queryString;
+
+    private String servletPath = "";
+
+    private String pathInfo;
+
     private Map<String, Object> requestAttributes = new HashMap<>();
 
     private Map<String, List<String>> requestHeaders = Map.of();
@@ -60,6 +92,8 @@ class SerlvetApiInvocationHandler implements InvocationHandler {
 
     private Map<String, List<String>> parameters = Map.of();
 
+    private boolean asyncSupported;
+
     Builder contextPath(String contextPath) {
       this.contextPath = contextPath;
       return this;
@@ -75,6 +109,21 @@ class SerlvetApiInvocationHandler implements InvocationHandler {
       return this;
     }
 
+    Builder queryString(String queryString) {
+      this.queryString = queryString;
+      return this;
+    }
+
+    Builder servletPath(String servletPath) {
+      this.servletPath = servletPath;
+      return this;
+    }
+
+    Builder pathInfo(String pathInfo) {
+      this.pathInfo = pathInfo;
+      return this;
+    }
+
     Builder requestHeaders(Map<String, List<String>> requestHeaders) {
       this.requestHeaders = requestHeaders;
       return this;
@@ -95,6 +144,11 @@ class SerlvetApiInvocationHandler implements InvocationHandler {
       return this;
     }
 
+    Builder asyncSupported(boolean asyncSupported) {
+      this.asyncSupported = asyncSupported;
+      return this;
+    }
+
     SerlvetApiInvocationHandler build() {
       return new SerlvetApiInvocationHandler(this);
     }
@@ -104,11 +158,15 @@ class SerlvetApiInvocationHandler implements InvocationHandler {
     this.contextPath = builder.contextPath;
     this.methodName = builder.method;
     this.requestURI = builder.requestURI;
+    this.queryString = builder.queryString;
+    this.servletPath = builder.servletPath;
+    this.pathInfo = builder.pathInfo;
     this.requestHeaders = builder.requestHeaders;
     this.requestBodyText = builder.requestBodyText;
     this.requestAttributes = builder.requestAttributes;
     this.parameters = builder.parameters;
     this.responseHeaders = new HashMap<>();
+    this.asyncSupported = builder.asyncSupported;
   }
 
   static Builder builder() {
@@ -118,14 +176,44 @@ class SerlvetApiInvocationHandler implements InvocationHandler {
   @Override
   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
 
+    if (method.getName().equals("addHeader")) {
+      responseHeaders.merge((String) args[0], args[1], (a, b) -> a + ", " + b);
+      return null;
+    }
+
+    if (method.getName().equals("containsHeader")) {
+      return responseHeaders.containsKey((String) args[0]);
+    }
+
     if (method.getName().equals("getAttribute")) {
       return requestAttributes.get((String) args[0]);
     }
 
+    if (method.getName().equals("getAttributeNames")) {
+      return Collections.enumeration(List.copyOf(requestAttributes.keySet()));
+    }
+
+    if (method.getName().equals("getContentLengthLong")) {
+      return requestBodyText.isEmpty() ? -1L : (long) requestBodyText.getBytes().length;
+    }
+
     if (method.getName().equals("getContextPath")) {
       return contextPath;
     }
 
+    if (method.getName().equals("getDateHeader")) {
+      var values = requestHeaders.get((String) args[0]);
+      if (values == null || values.isEmpty()) {
+        return -1L;
+      }
+      return ZonedDateTime.parse(values.get(0), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant()
+          .toEpochMilli();
+    }
+
+    if (method.getName().equals("getDispatcherType")) {
+      return dispatcherType;
+    }
+
     if (method.getName().equals("getHeader")) {
       if (requestHeaders.isEmpty()) {
         return null;
@@ -138,6 +226,14 @@ class SerlvetApiInvocationHandler implements InvocationHandler {
       }
     }
 
+    if (method.getName().equals("getHeaderNames")) {
+      return Collections.enumeration(requestHeaders.keySet());
+    }
+
+    if (method.getName().equals("getHeaders")) {
+      return Collections.enumeration(requestHeaders.getOrDefault((String) args[0], List.of()));
+    }
+
     if (method.getName().equals("getInputStream")) {
       if (requestBodyText.length() > 0) {
         return new ByteArrayServletInputStream(new ByteArrayInputStream(requestBodyText.getBytes()));
@@ -146,12 +242,16 @@ class SerlvetApiInvocationHandler implements InvocationHandler {
       }
     }
 
+    if (method.getName().equals("isAsyncStarted")) {
+      return false;
+    }
+
     if (method.getName().equals("getMethod")) {
       return methodName;
     }
 
     if (method.getName().equals("getOutputStream")) {
-      return new ByteArrayServletOutputStream(new ByteArrayOutputStream());
+      return new ByteArrayServletOutputStream(responseBody);
     }
 
     if (method.getName().equals("getParameter")) {
@@ -170,10 +270,47 @@ class SerlvetApiInvocationHandler implements InvocationHandler {
       }
     }
 
+    if (method.getName().equals("getPathInfo")) {
+      return pathInfo;
+    }
+
+    if (method.getName().equals("getQueryString")) {
+      return queryString;
+    }
+
+    if (method.getName().equals("getRemoteAddr")) {
+      return "127.0.0.1";
+    }
+
     if (method.getName().equals("getRequestURI")) {
       return requestURI;
     }
 
+    if (method.getName().equals("getScheme")) {
+      return "http";
+    }
+
+    if (method.getName().equals("getServletPath")) {
+      return servletPath;
+    }
+
+    if (method.getName().equals("getServerName")) {
+      return "localhost";
+    }
+
+    if (method.getName().equals("getServerPort")) {
+      return 8080;
+    }
+
+    if (method.getName().equals("isAsyncSupported")) {
+      return asyncSupported;
+    }
+
+    if (method.getName().equals("removeAttribute")) {
+      requestAttributes.remove((String) args[0]);
+      return null;
+    }
+
     if (method.getName().equals("sendError")) {
       statusCode = (Integer) args[0];
       if (args.length > 1) {
@@ -189,6 +326,16 @@ class SerlvetApiInvocationHandler implements InvocationHandler {
       return null;
     }
 
+    if (method.getName().equals("setContentLength")) {
+      contentLength = (Integer) args[0];
+      return null;
+    }
+
+    if (method.getName().equals("setContentLengthLong")) {
+      contentLength = (Long) args[0];
+      return null;
+    }
+
     if (method.getName().equals("setContentType")) {
       responseHeaders.put("Content-Type", (String) args[0]);
       return null;
@@ -204,6 +351,13 @@ class SerlvetApiInvocationHandler implements InvocationHandler {
       return null;
     }
 
+    if (method.getName().equals("startAsync") && args == null) {
+      if (!asyncSupported) {
+        throw new IllegalStateException("Asynchronous processing not supported");
+      }
+      return createAsyncContextProxy();
+    }
+
     if (method.getName().equals("setStatus")) {
       statusCode = (Integer) args[0];
       setStatusCallCount++;
@@ -213,6 +367,40 @@ class SerlvetApiInvocationHandler implements InvocationHandler {
     throw new NoSuchMethodException(method.getName() + " not supported!");
   }
 
+  /**
+   * Waits for the AsyncContext returned by {@code startAsync} to be dispatched, after which the
+   * request's dispatcher type is {@link DispatcherType#ASYNC}.
+   */
+  boolean awaitDispatch(long timeout, TimeUnit unit) throws InterruptedException {
+    return dispatched.await(timeout, unit);
+  }
+
+  long getAsyncTimeout() {
+    return asyncTimeout;
+  }
+
+  private AsyncContext createAsyncContextProxy() {
+    return (AsyncContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] { AsyncContext.class }, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "setTimeout":
+              asyncTimeout = (Long) args[0];
+              return null;
+            case "getTimeout":
+              return asyncTimeout;
+            case "dispatch":
+              dispatcherType = DispatcherType.ASYNC;
+              dispatched.countDown();
+              return null;
+            case "addListener":
+            case "complete":
+              return null;
+            default:
+              throw new NoSuchMethodException(method.getName() + " not supported!");
+          }
+        });
+  }
+
   int getStatusCode() {
     return statusCode;
   }
@@ -233,6 +421,18 @@ class SerlvetApiInvocationHandler implements InvocationHandler {
     return setStatusCallCount;
   }
 
+  long getContentLength() {
+    return contentLength;
+  }
+
+  byte[] getResponseBody() {
+    return responseBody.toByteArray();
+  }
+
+  Map<String, Object> getResponseHeaders() {
+    return Map.copyOf(responseHeaders);
+  }
+
   Map<String, Object> getRequestAttributes() {
     return Map.copyOf(requestAttributes);
   }
@@ -0,0 +1,144 @@
+package com.github.argherna.ajpbin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.jupiter.api.Test;
+
+class SinkReadListenerTest {
+
+  private final byte[] body = new byte[1000 * 1000];
+
+  private final SinkInputStream in = new SinkInputStream(body);
+
+  private final SerlvetApiInvocationHandler handler = SerlvetApiInvocationHandler.builder().build();
+
+  private int dispatches;
+
+  @Test
+  void testSinkCountsAndDigestsTheBody() throws Exception {
+    for (int i = 0; i < body.length; i++) {
+      body[i] = (byte) (i * 31);
+    }
+    SinkReadListener.start(asyncContext(), SinkReadListener.SHA256_DIGEST);
+
+    drain();
+
+    @SuppressWarnings("unchecked")
+    var result = (Map<String, Object>) handler.getRequestAttributes()
+        .get(Constants.OUTPUT_MAP_ATTR_NAME);
+    assertEquals(1, dispatches);
+    assertEquals((long) body.length, result.get("bytes"));
+    assertTrue((Long) result.get("elapsed_nanos") > 0);
+    assertTrue((Double) result.get("mb_per_second") >= 0);
+    assertEquals(Hex.encode(MessageDigest.getInstance("SHA-256").digest(body)),
+        result.get("sha256"));
+  }
+
+  @Test
+  void testCrc32c() throws Exception {
+    SinkReadListener.start(asyncContext(), SinkReadListener.CRC32C_DIGEST);
+
+    drain();
+
+    var crc = new CRC32C();
+    crc.update(body);
+    @SuppressWarnings("unchecked")
+    var result = (Map<String, Object>) handler.getRequestAttributes()
+        .get(Constants.OUTPUT_MAP_ATTR_NAME);
+    assertEquals(String.format("%08x", crc.getValue()), result.get("crc32c"));
+    assertFalse(result.containsKey("sha256"));
+  }
+
+  @Test
+  void testIsSupported() {
+    assertTrue(SinkReadListener.isSupported("crc32c"));
+    assertFalse(SinkReadListener.isSupported("md5"));
+  }
+
+  // Hands the body over in bursts, as a container would.
+  private void drain() throws IOException {
+    while (!in.isFinished()) {
+      in.burst = 70000;
+      in.listener.onDataAvailable();
+    }
+    in.listener.onAllDataRead();
+  }
+
+  private AsyncContext asyncContext() {
+    HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[] {HttpServletRequest.class},
+        (proxy, method, args) -> method.getName().equals("getInputStream") ? in
+            : handler.invoke(proxy, method, args));
+    return (AsyncContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {AsyncContext.class}, (proxy, method, args) -> {
+          if (method.getName().equals("getRequest")) {
+            return request;
+          }
+          if (method.getName().equals("dispatch")) {
+            dispatches++;
+            return null;
+          }
+          throw new NoSuchMethodException(method.getName() + " not supported!");
+        });
+  }
+
+  private static final class SinkInputStream extends ServletInputStream {
+
+    private final byte[] bytes;
+
+    private int position;
+
+    private int burst;
+
+    private ReadListener listener;
+
+    private SinkInputStream(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public boolean isFinished() {
+      return position == bytes.length;
+    }
+
+    @Override
+    public boolean isReady() {
+      return burst > 0 && !isFinished();
+    }
+
+    @Override
+    public void setReadListener(ReadListener readListener) {
+      listener = readListener;
+    }
+
+    @Override
+    public int read() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (isFinished()) {
+        return -1;
+      }
+      var n = Math.min(Math.min(len, burst), bytes.length - position);
+      System.arraycopy(bytes, position, b, off, n);
+      position += n;
+      burst -= n;
+      return n;
+    }
+  }
+}
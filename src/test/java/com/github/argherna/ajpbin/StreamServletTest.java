@@ -0,0 +1,40 @@
+package com.github.argherna.ajpbin;
+
+import static com.github.argherna.ajpbin.ServletApiProxies.createHttpServletRequestProxy;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class StreamServletTest {
+
+  @Test
+  void testLinesDifferOnlyInId() throws IOException {
+    var request = createHttpServletRequestProxy(SerlvetApiInvocationHandler.builder()
+        .requestURI("/stream/12").queryString("a=1")
+        .requestHeaders(Map.of("Accept", List.of("*/*"))).build());
+    var flushes = new int[1];
+    var out = new ByteArrayOutputStream() {
+      @Override
+      public void flush() {
+        flushes[0]++;
+      }
+    };
+
+    StreamServlet.write(out, RequestSnapshot.capture(request, 10), 12);
+
+    var lines = new String(out.toByteArray(), UTF_8).split("\n", -1);
+    assertEquals(13, lines.length);
+    assertEquals("", lines[12]);
+    assertEquals(12, flushes[0]);
+    for (int i = 0; i < 12; i++) {
+      assertEquals("{\"args\":{\"a\":\"1\"},\"attributes\":{},\"headers\":{\"Accept\":\"*/*\"},"
+          + "\"id\":" + i + ",\"url\":\"http://localhost:8080/stream/12?a=1\"}", lines[i]);
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package com.github.argherna.ajpbin;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class UrlEncodedTest {
+
+  @Test
+  void testParseRepeatedAndValuelessParameters() {
+    var parameters = UrlEncoded.parse("a=1&flag&a=2&&=x&b=&a=3", 100);
+
+    assertEquals(Map.of("a", List.of("1", "2", "3"), "flag", "", "b", ""), parameters);
+  }
+
+  @Test
+  void testParseDecodesOnlyWhenNeeded() {
+    var parameters = UrlEncoded.parse("q=caf%C3%A9+au+lait&k%3Dy=a%3d%26b&raw=%zz%4", 100);
+
+    assertEquals("café au lait", parameters.get("q"));
+    assertEquals("a=&b", parameters.get("k=y"));
+    assertEquals("%zz%4", parameters.get("raw"));
+  }
+
+  @Test
+  void testParseStopsAtMaxParameters() {
+    var parameters = UrlEncoded.parse("a=1&b=2&c=3", 2);
+
+    assertEquals(2, parameters.size());
+    assertTrue(parameters.containsKey("a") && parameters.containsKey("b"));
+  }
+
+  @Test
+  void testParseFormBody() throws IOException {
+    var body = "a=1&flag&a=2&q=caf%C3%A9+au+lait&k%3Dy=a%3d%26b&raw=%zz%4&x=%";
+    var parameters = UrlEncoded.parse(new ByteArrayInputStream(body.getBytes(UTF_8)), UTF_8, 100,
+        100);
+
+    assertEquals(UrlEncoded.parse(body, 100), parameters);
+    assertEquals("café au lait", parameters.get("q"));
+    assertEquals("%zz%4", parameters.get("raw"));
+    assertEquals("%", parameters.get("x"));
+  }
+
+  @Test
+  void testParseFormBodyLimits() {
+    assertThrows(UrlEncoded.LimitExceededException.class, () -> UrlEncoded
+        .parse(new ByteArrayInputStream("a=1&b=2&c=3".getBytes(UTF_8)), UTF_8, 2, 100));
+    assertThrows(UrlEncoded.LimitExceededException.class, () -> UrlEncoded
+        .parse(new ByteArrayInputStream("a=12345".getBytes(UTF_8)), UTF_8, 2, 4));
+  }
+}
@@ -10,8 +10,11 @@ import static com.github.argherna.ajpbin.Constants.H_WEBDAV_IF;
 import static com.github.argherna.ajpbin.Constants.H_WEBDAV_LOCKTOKEN;
 import static com.github.argherna.ajpbin.Constants.H_WEBDAV_TIMEOUT;
 import static com.github.argherna.ajpbin.Constants.OUTPUT_DOCUMENT_ATTR_NAME;
+import static com.github.argherna.ajpbin.Constants.RANDOM_BLOCK_SIZE;
 import static com.github.argherna.ajpbin.Constants.SC_INSUFFICIENT_STORAGE;
 import static com.github.argherna.ajpbin.Constants.SC_LOCKED;
+import static com.github.argherna.ajpbin.Constants.VIRTUAL_FILE_MAX_SIZE;
+import static com.github.argherna.ajpbin.Constants.VIRTUAL_FILE_MIN_SIZE;
 import static com.github.argherna.ajpbin.Constants.WEBDAV_OPAQUE_LOCK_TOKEN;
 import static com.github.argherna.ajpbin.ServletApiProxies.createHttpServletRequestProxy;
 import static com.github.argherna.ajpbin.ServletApiProxies.createHttpServletResponseProxy;
@@ -21,15 +24,26 @@ import static javax.servlet.http.HttpServletResponse.SC_CREATED;
 import static javax.servlet.http.HttpServletResponse.SC_FORBIDDEN;
 import static javax.servlet.http.HttpServletResponse.SC_GONE;
 import static javax.servlet.http.HttpServletResponse.SC_METHOD_NOT_ALLOWED;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_FOUND;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
 import static javax.servlet.http.HttpServletResponse.SC_NO_CONTENT;
 import static javax.servlet.http.HttpServletResponse.SC_OK;
+import static javax.servlet.http.HttpServletResponse.SC_PARTIAL_CONTENT;
 import static javax.servlet.http.HttpServletResponse.SC_PRECONDITION_FAILED;
 import static javax.servlet.http.HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -284,4 +298,93 @@ class WebDavMethodsServletTest {
     assertTrue(expectedStatusCodes.contains(respIh.getStatusCode()));
     assertNotEquals(unexpected, respIh.getStatusCode());
   }
+
+  @Test
+  void testGetVirtualFile() throws Exception {
+    var handler = get("GET", "/docs/foo.txt", Map.of());
+    var body = handler.getResponseBody();
+
+    assertEquals(SC_OK, handler.getStatusCode());
+    assertEquals("text/plain", handler.getResponseHeaders().get(H_CONTENT_TYPE));
+    assertEquals(body.length, handler.getContentLength());
+    assertTrue(body.length >= VIRTUAL_FILE_MIN_SIZE && body.length <= VIRTUAL_FILE_MAX_SIZE);
+    assertNotNull(handler.getResponseHeaders().get("Last-Modified"));
+
+    var again = get("GET", "/docs/foo.txt", Map.of());
+    assertEquals(handler.getResponseHeaders().get("ETag"), again.getResponseHeaders().get("ETag"));
+    assertArrayEquals(body, again.getResponseBody());
+    assertNotEquals(handler.getResponseHeaders().get("ETag"),
+        get("GET", "/docs/bar.txt", Map.of()).getResponseHeaders().get("ETag"));
+  }
+
+  @Test
+  void testGetVirtualFileRange() throws Exception {
+    var body = get("GET", "/foo.png", Map.of()).getResponseBody();
+    var handler = get("GET", "/foo.png", Map.of("Range", List.of("bytes=100-199")));
+
+    assertEquals(SC_PARTIAL_CONTENT, handler.getStatusCode());
+    assertEquals("image/png", handler.getResponseHeaders().get(H_CONTENT_TYPE));
+    assertArrayEquals(Arrays.copyOfRange(body, 100, 200), handler.getResponseBody());
+  }
+
+  @Test
+  void testGetVirtualFileNotModified() throws Exception {
+    var handler = get("GET", "/a/b/baz.docx", Map.of());
+    var etag = (String) handler.getResponseHeaders().get("ETag");
+    var lastModified = (Long) handler.getResponseHeaders().get("Last-Modified");
+
+    handler = get("GET", "/a/b/baz.docx", Map.of("If-None-Match", List.of(etag)));
+    assertEquals(SC_NOT_MODIFIED, handler.getStatusCode());
+    assertEquals(etag, handler.getResponseHeaders().get("ETag"));
+    assertEquals(0, handler.getResponseBody().length);
+
+    var date = DateTimeFormatter.RFC_1123_DATE_TIME
+        .format(Instant.ofEpochMilli(lastModified).atOffset(ZoneOffset.UTC));
+    assertEquals(SC_NOT_MODIFIED,
+        get("GET", "/a/b/baz.docx", Map.of("If-Modified-Since", List.of(date))).getStatusCode());
+  }
+
+  @Test
+  void testVirtualFileContentDoesNotRepeat() throws Exception {
+    var files = new VirtualFiles(List.of("foo"), List.of("txt"), List.of("text/plain"));
+    VirtualFiles.VirtualFile file = null;
+    for (int i = 0; file == null || file.length() < 2 * RANDOM_BLOCK_SIZE; i++) {
+      file = files.find("/" + i + "/foo.txt");
+    }
+    var first = new ByteArrayOutputStream();
+    file.write(first, 0, 64);
+    var second = new ByteArrayOutputStream();
+    file.write(second, RANDOM_BLOCK_SIZE, 64);
+
+    assertFalse(Arrays.equals(first.toByteArray(), second.toByteArray()));
+  }
+
+  @Test
+  void testHeadVirtualFile() throws Exception {
+    var length = get("GET", "/foo.json", Map.of()).getContentLength();
+    var handler = get("HEAD", "/foo.json", Map.of());
+
+    assertEquals(SC_OK, handler.getStatusCode());
+    assertEquals(length, handler.getContentLength());
+    assertEquals("application/json", handler.getResponseHeaders().get(H_CONTENT_TYPE));
+    assertEquals(0, handler.getResponseBody().length);
+  }
+
+  @Test
+  void testGetUnknownFile() throws Exception {
+    assertEquals(SC_NOT_FOUND, get("GET", "/qux.txt", Map.of()).getStatusCode());
+    assertEquals(SC_NOT_FOUND, get("GET", "/foo.exe", Map.of()).getStatusCode());
+    assertEquals(SC_NOT_FOUND, get("GET", "/docs/", Map.of()).getStatusCode());
+    assertEquals(SC_NOT_FOUND, get("HEAD", "/foo", Map.of()).getStatusCode());
+  }
+
+  private SerlvetApiInvocationHandler get(String method, String pathInfo,
+      Map<String, List<String>> headers) throws Exception {
+    var handler = SerlvetApiInvocationHandler.builder().contextPath("/ajpbin").method(method)
+        .servletPath("/webdav").pathInfo(pathInfo).requestURI("/ajpbin/webdav" + pathInfo)
+        .requestHeaders(headers).build();
+    servlet.service(createHttpServletRequestProxy(handler),
+        createHttpServletResponseProxy(handler));
+    return handler;
+  }
 }